@@ -0,0 +1,27 @@
+package com.project.back_end.DTO;
+
+public class AuthenticatedUser {
+
+    // 1. 'role' field: "admin", "doctor" or "patient"
+    private final String role;
+
+    // 2. 'identifier' field: username for admins, email for doctors and patients
+    private final String identifier;
+
+    // 3. 'id' field: primary key of the user in its own table
+    private final Long id;
+
+    // 4. Constructor
+    public AuthenticatedUser(String role, String identifier, Long id) {
+        this.role = role;
+        this.identifier = identifier;
+        this.id = id;
+    }
+
+    // 5. Getters
+    public String getRole() { return role; }
+
+    public String getIdentifier() { return identifier; }
+
+    public Long getId() { return id; }
+}
@@ -0,0 +1,31 @@
+package com.project.back_end.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDateTime;
+
+// Booking command: which doctor and which slot. The patient comes from the token.
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BookingRequest {
+
+    // 1. 'doctorId' field
+    private Long doctorId;
+
+    // 2. 'appointmentTime' field: start of the requested slot
+    private LocalDateTime appointmentTime;
+
+    // 3. Constructors
+    public BookingRequest() {}
+
+    public BookingRequest(Long doctorId, LocalDateTime appointmentTime) {
+        this.doctorId = doctorId;
+        this.appointmentTime = appointmentTime;
+    }
+
+    // 4. Getters and Setters
+    public Long getDoctorId() { return doctorId; }
+    public void setDoctorId(Long doctorId) { this.doctorId = doctorId; }
+
+    public LocalDateTime getAppointmentTime() { return appointmentTime; }
+    public void setAppointmentTime(LocalDateTime appointmentTime) { this.appointmentTime = appointmentTime; }
+}
@@ -0,0 +1,33 @@
+package com.project.back_end.DTO;
+
+import com.project.back_end.models.ScheduleOverride;
+import com.project.back_end.models.ScheduleRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A doctor's full schedule as edited by an admin: weekly rules plus date exceptions.
+// Doctors without rules keep using their availableTimes list every day.
+public class DoctorSchedule {
+
+    // 1. 'rules' field: recurring weekly working hours
+    private List<ScheduleRule> rules = new ArrayList<>();
+
+    // 2. 'overrides' field: vacations, closed hours and extra clinics on specific dates
+    private List<ScheduleOverride> overrides = new ArrayList<>();
+
+    // 3. Constructors
+    public DoctorSchedule() {}
+
+    public DoctorSchedule(List<ScheduleRule> rules, List<ScheduleOverride> overrides) {
+        this.rules = rules;
+        this.overrides = overrides;
+    }
+
+    // 4. Getters and Setters
+    public List<ScheduleRule> getRules() { return rules; }
+    public void setRules(List<ScheduleRule> rules) { this.rules = rules; }
+
+    public List<ScheduleOverride> getOverrides() { return overrides; }
+    public void setOverrides(List<ScheduleOverride> overrides) { this.overrides = overrides; }
+}
@@ -0,0 +1,69 @@
+package com.project.back_end.config;
+
+import com.project.back_end.DTO.AuthenticatedUser;
+import com.project.back_end.services.TokenService;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+// Resolves @CurrentUser parameters from the `{token}` path variable.
+// The result is stored as a request attribute, so each request verifies its token at most once
+// per role no matter how many layers ask for the principal.
+@Component
+public class AuthenticatedUserResolver implements HandlerMethodArgumentResolver {
+
+    static final String ATTRIBUTE_PREFIX = AuthenticatedUser.class.getName() + ".";
+    private static final Object UNAUTHENTICATED = new Object();
+
+    private final TokenService tokenService;
+
+    public AuthenticatedUserResolver(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public boolean supportsParameter(@NonNull MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && AuthenticatedUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(@NonNull MethodParameter parameter,
+                                  ModelAndViewContainer mavContainer,
+                                  @NonNull NativeWebRequest webRequest,
+                                  WebDataBinderFactory binderFactory) {
+        Map<String, String> pathVariables = pathVariables(webRequest);
+        String role = parameter.getParameterAnnotation(CurrentUser.class).value();
+        if (role.isEmpty()) {
+            role = pathVariables.get("user");
+        }
+        String token = pathVariables.get("token");
+        if (role == null || token == null) {
+            return null;
+        }
+
+        String attribute = ATTRIBUTE_PREFIX + role.toLowerCase();
+        Object resolved = webRequest.getAttribute(attribute, RequestAttributes.SCOPE_REQUEST);
+        if (resolved == null) {
+            AuthenticatedUser user = tokenService.authenticate(token, role);
+            resolved = (user != null) ? user : UNAUTHENTICATED;
+            webRequest.setAttribute(attribute, resolved, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (resolved instanceof AuthenticatedUser) ? resolved : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> pathVariables(NativeWebRequest webRequest) {
+        Object variables = webRequest.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return (variables instanceof Map) ? (Map<String, String>) variables : Map.of();
+    }
+}
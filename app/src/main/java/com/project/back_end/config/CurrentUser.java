@@ -0,0 +1,16 @@
+package com.project.back_end.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a controller parameter that receives the AuthenticatedUser behind the `{token}` path variable.
+// The value is the required role; when empty, the role is taken from the `{user}` path variable.
+// The parameter is null when the token is missing, invalid or does not match the role.
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CurrentUser {
+
+    String value() default "";
+}
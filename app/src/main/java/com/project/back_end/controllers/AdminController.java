@@ -2,15 +2,26 @@
 package com.project.back_end.controllers;
 
 import com.project.back_end.models.Admin;
+import com.project.back_end.services.BulkImportService;
+import com.project.back_end.services.PrescriptionOutboxRelay;
 import com.project.back_end.services.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 // 1. Set Up the Controller Class
 // Annotated as RestController to handle web requests and return JSON.
@@ -20,20 +31,77 @@ import java.util.Map;
 public class AdminController {
 
     private final Service service;
+    private final BulkImportService bulkImportService;
+    private final PrescriptionOutboxRelay prescriptionOutbox;
 
     // 2. Autowire Service Dependency
     // Constructor injection for the Service class.
     @Autowired
-    public AdminController(Service service) {
+    public AdminController(Service service, BulkImportService bulkImportService,
+                           PrescriptionOutboxRelay prescriptionOutbox) {
         this.service = service;
+        this.bulkImportService = bulkImportService;
+        this.prescriptionOutbox = prescriptionOutbox;
     }
 
     // 3. Define the `adminLogin` Method
     // Handles HTTP POST requests for admin login.
     // Delegates to service.validateAdmin() and returns the ResponseEntity containing the token or error.
+    // Completes asynchronously, so the request thread is not held while the password is verified.
     @PostMapping("/login")
-    public ResponseEntity<Map<String, String>> adminLogin(@RequestBody Admin admin) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> adminLogin(@RequestBody Admin admin) {
         return service.validateAdmin(admin);
     }
-}
 
+    // 4. Define the `getCacheStats` Method
+    // Handles HTTP GET requests for cache hit/miss counters, plus the prescription outbox counters. Requires Admin token.
+    @GetMapping("/cache-stats/{token}")
+    public ResponseEntity<Map<String, Object>> getCacheStats(@PathVariable String token) {
+        if (!service.validateToken(token, "admin")) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Unauthorized access");
+            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+        }
+        Map<String, Object> stats = service.getCacheStats();
+        stats.put("prescriptionOutbox", prescriptionOutbox.getStats());
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    // 5. Define the `bulkImport` Method
+    // Handles HTTP POST requests that onboard many doctors or patients at once. Requires Admin token.
+    // `kind` is "doctors" or "patients"; the body is CSV (text/csv, with a header row) or one JSON object
+    // per line (application/x-ndjson), read as it arrives. Passwords may be plain or BCrypt hashes.
+    // Responds with the imported/duplicate/failed counts and the errors by line number.
+    @PostMapping("/import/{kind}/{token}")
+    public ResponseEntity<Map<String, Object>> bulkImport(@PathVariable String kind,
+                                                          @PathVariable String token,
+                                                          @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                                          InputStream body) {
+        Map<String, Object> response = new HashMap<>();
+        if (!service.validateToken(token, "admin")) {
+            response.put("message", "Unauthorized access");
+            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+        }
+
+        BulkImportService.Kind importKind = BulkImportService.parseKind(kind);
+        if (importKind == null) {
+            response.put("message", "Kind must be doctors or patients");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+        BulkImportService.Format format = BulkImportService.formatOf(contentType);
+        if (format == null) {
+            response.put("message", "Content-Type must be text/csv or application/x-ndjson");
+            return new ResponseEntity<>(response, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+
+        try {
+            return new ResponseEntity<>(bulkImportService.importRows(importKind, format, body), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        } catch (IOException e) {
+            response.put("message", "Upload could not be read");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.project.back_end.controllers;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.DTO.AuthenticatedUser;
+import com.project.back_end.DTO.BookingRequest;
+import com.project.back_end.config.CurrentUser;
 import com.project.back_end.models.Appointment;
-import com.project.back_end.models.Doctor;
-import com.project.back_end.repo.DoctorRepository;
 import com.project.back_end.services.AppointmentService;
+import com.project.back_end.services.ScheduleExporter;
 import com.project.back_end.services.Service;
-import com.project.back_end.services.TokenService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,44 +34,32 @@ public class AppointmentController {
     // 2. Autowire Dependencies
     private final AppointmentService appointmentService;
     private final Service service;
-    
-    // Additional dependencies needed to resolve Token -> DoctorId
-    private final TokenService tokenService;
-    private final DoctorRepository doctorRepository;
+    private final ScheduleExporter scheduleExporter;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
 
     @Autowired
     public AppointmentController(AppointmentService appointmentService, 
                                  Service service,
-                                 TokenService tokenService,
-                                 DoctorRepository doctorRepository) {
+                                 ScheduleExporter scheduleExporter) {
         this.appointmentService = appointmentService;
         this.service = service;
-        this.tokenService = tokenService;
-        this.doctorRepository = doctorRepository;
+        this.scheduleExporter = scheduleExporter;
     }
 
     // 3. Define the `getAppointments` Method
-    // Handles GET requests to fetch appointments. Validates doctor token first.
+    // Handles GET requests to fetch appointments. The doctor is resolved from the token once.
     @GetMapping("/{date}/{patientName}/{token}")
     public ResponseEntity<Map<String, Object>> getAppointments(@PathVariable String date,
                                                                @PathVariable String patientName,
-                                                               @PathVariable String token) {
+                                                               @CurrentUser("doctor") AuthenticatedUser doctor) {
         Map<String, Object> response = new HashMap<>();
 
-        // Validate token for "doctor" role
-        if (service.validateToken(token, "doctor")) {
-            // Logic to retrieve doctorId from token to pass to service
-            String email = tokenService.extractIdentifier(token);
-            Doctor doctor = doctorRepository.findByEmail(email);
-            
-            if (doctor != null) {
-                // Fetch appointments using appointmentService
-                Map<String, Object> appointments = appointmentService.getAppointments(doctor.getId(), date, patientName);
-                return new ResponseEntity<>(appointments, HttpStatus.OK);
-            } else {
-                response.put("message", "Doctor not found.");
-                return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-            }
+        // Token must belong to an existing doctor
+        if (doctor != null) {
+            // Fetch appointments using appointmentService
+            Map<String, Object> appointments = appointmentService.getAppointments(doctor.getId(), date, patientName);
+            return new ResponseEntity<>(appointments, HttpStatus.OK);
         } else {
             response.put("message", "Unauthorized access.");
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
@@ -68,33 +67,29 @@ public class AppointmentController {
     }
 
     // 4. Define the `bookAppointment` Method
-    // Handles POST requests to book a new appointment. Validates patient token.
+    // Handles POST requests to book a new appointment. Takes only {doctorId, appointmentTime};
+    // the patient is the token's owner. Validation and insert happen in one transaction.
     @PostMapping("/{token}")
-    public ResponseEntity<Map<String, String>> bookAppointment(@RequestBody Appointment appointment,
-                                                               @PathVariable String token) {
+    public ResponseEntity<Map<String, String>> bookAppointment(@RequestBody BookingRequest booking,
+                                                               @CurrentUser("patient") AuthenticatedUser patient) {
         Map<String, String> response = new HashMap<>();
 
-        // Validate token for "patient" role
-        if (service.validateToken(token, "patient")) {
-            // Validate appointment availability using Service
-            int validationResult = service.validateAppointment(appointment);
-
-            if (validationResult == 1) {
-                // Proceed to book
-                int result = appointmentService.bookAppointment(appointment);
-                if (result == 1) {
-                    response.put("message", "Appointment booked successfully.");
-                    return new ResponseEntity<>(response, HttpStatus.CREATED);
-                } else {
-                    response.put("message", "Failed to book appointment.");
-                    return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
-                }
-            } else if (validationResult == 0) {
+        // Token must belong to an existing patient
+        if (patient != null) {
+            int result = appointmentService.bookAppointment(booking, patient.getId());
+
+            if (result == 1) {
+                response.put("message", "Appointment booked successfully.");
+                return new ResponseEntity<>(response, HttpStatus.CREATED);
+            } else if (result == 0) {
                 response.put("message", "Time slot not available.");
                 return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-            } else {
+            } else if (result == -1) {
                 response.put("message", "Doctor not found.");
                 return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+            } else {
+                response.put("message", "Failed to book appointment.");
+                return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
             }
         } else {
             response.put("message", "Unauthorized access.");
@@ -106,12 +101,12 @@ public class AppointmentController {
     // Handles PUT requests to update an appointment.
     @PutMapping("/{token}")
     public ResponseEntity<Map<String, String>> updateAppointment(@RequestBody Appointment appointment,
-                                                                 @PathVariable String token) {
+                                                                 @CurrentUser("patient") AuthenticatedUser patient) {
         Map<String, String> response = new HashMap<>();
 
-        if (service.validateToken(token, "patient")) {
+        if (patient != null) {
             // Delegate to service
-            String result = appointmentService.updateAppointment(appointment.getId(), appointment, token);
+            String result = appointmentService.updateAppointment(appointment.getId(), appointment, patient.getId());
             
             response.put("message", result);
             if ("Appointment updated successfully.".equals(result)) {
@@ -129,12 +124,12 @@ public class AppointmentController {
     // Handles DELETE requests to cancel an appointment.
     @DeleteMapping("/{id}/{token}")
     public ResponseEntity<Map<String, String>> cancelAppointment(@PathVariable Long id,
-                                                                 @PathVariable String token) {
+                                                                 @CurrentUser("patient") AuthenticatedUser patient) {
         Map<String, String> response = new HashMap<>();
 
-        if (service.validateToken(token, "patient")) {
+        if (patient != null) {
             // Delegate to service
-            String result = appointmentService.cancelAppointment(id, token);
+            String result = appointmentService.cancelAppointment(id, patient.getId());
             
             response.put("message", result);
             if ("Appointment cancelled successfully.".equals(result)) {
@@ -147,4 +142,60 @@ public class AppointmentController {
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
         }
     }
+
+    // 7. Define the `exportSchedule` Method
+    // Handles GET requests to download the doctor's appointments from `from` to `to` (inclusive dates)
+    // as iCalendar (`ics`) or CSV (`csv`). The body is written on an async thread while the rows are read,
+    // so the response starts at once and nothing is collected in memory. The async timeout of this request is
+    // the export's own (schedule.export.timeout-ms), not the application-wide one.
+    // Spring streams only a declared StreamingResponseBody, so errors are written through one as well.
+    @GetMapping("/export/{format}/{from}/{to}/{token}")
+    public ResponseEntity<StreamingResponseBody> exportSchedule(@PathVariable String format,
+                                                                @PathVariable String from,
+                                                                @PathVariable String to,
+                                                                @CurrentUser("doctor") AuthenticatedUser doctor,
+                                                                HttpServletRequest request) {
+        if (doctor == null) {
+            return message(HttpStatus.UNAUTHORIZED, "Unauthorized access.");
+        }
+
+        ScheduleExporter.Format exportFormat = ScheduleExporter.Format.parse(format);
+        if (exportFormat == null) {
+            return message(HttpStatus.BAD_REQUEST, "Format must be ics or csv.");
+        }
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = LocalDate.parse(from);
+            toDate = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            return message(HttpStatus.BAD_REQUEST, "Dates must be in yyyy-MM-dd format.");
+        }
+        long days = ChronoUnit.DAYS.between(fromDate, toDate) + 1;
+        if (days < 1 || days > scheduleExporter.getMaxDays()) {
+            return message(HttpStatus.BAD_REQUEST, "The range must cover 1 to " + scheduleExporter.getMaxDays() + " days.");
+        }
+
+        AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+        if (asyncRequest != null) {
+            asyncRequest.setTimeout(scheduleExporter.getTimeoutMillis());
+        }
+        Long doctorId = doctor.getId();
+        StreamingResponseBody body = out -> scheduleExporter.export(doctorId, fromDate.atStartOfDay(),
+                toDate.plusDays(1).atStartOfDay(), exportFormat, out);
+        String filename = "schedule-" + fromDate + "-to-" + toDate + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    // A {"message": ...} JSON body, like the other endpoints return
+    private static ResponseEntity<StreamingResponseBody> message(HttpStatus status, String message) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", message);
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> JSON.writeValue(out, response));
+    }
 }
@@ -1,31 +1,59 @@
 package com.project.back_end.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.DTO.AuthenticatedUser;
+import com.project.back_end.DTO.DoctorSchedule;
 import com.project.back_end.DTO.Login;
+import com.project.back_end.config.CurrentUser;
 import com.project.back_end.models.Doctor;
+import com.project.back_end.models.ScheduleRule;
+import com.project.back_end.services.DoctorResponseCache;
 import com.project.back_end.services.DoctorService;
 import com.project.back_end.services.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 // 1. Set Up the Controller Class
 @RestController
 @RequestMapping("${api.path}" + "doctor")
 public class DoctorController {
 
+    // Upper bounds for one availability matrix request
+    private static final int MAX_MATRIX_DAYS = 31;
+    private static final int MAX_MATRIX_DOCTORS = 200;
+    private static final int MAX_PAGE_SIZE = 200;
+
     // 2. Autowire Dependencies
     private final DoctorService doctorService;
     private final Service service;
+    private final ObjectMapper objectMapper;
+    private final DoctorResponseCache responseCache;
 
     @Autowired
-    public DoctorController(DoctorService doctorService, Service service) {
+    public DoctorController(DoctorService doctorService, Service service, ObjectMapper objectMapper,
+                            DoctorResponseCache responseCache) {
         this.doctorService = doctorService;
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
     }
 
     // 3. Define the `getDoctorAvailability` Method
@@ -48,75 +76,249 @@ public class DoctorController {
         }
     }
 
-    // 4. Define the `getDoctor` Method
-    // Handles GET requests to retrieve a list of all doctors.
-    @GetMapping
-    public ResponseEntity<Map<String, Object>> getDoctor() {
+    // Define the `getAvailabilityMatrix` Method
+    // Handles GET requests for the free slots of several doctors over a date range in one call.
+    // Doctors are picked with ?doctorIds=1,2,3 or ?specialty=...; `from` and `to` are inclusive dates.
+    @GetMapping("/availability/matrix/{user}/{from}/{to}/{token}")
+    public ResponseEntity<Map<String, Object>> getAvailabilityMatrix(@PathVariable String from,
+                                                                     @PathVariable String to,
+                                                                     @RequestParam(required = false) List<Long> doctorIds,
+                                                                     @RequestParam(required = false) String specialty,
+                                                                     @CurrentUser AuthenticatedUser user) {
         Map<String, Object> response = new HashMap<>();
-        List<Doctor> doctors = doctorService.getDoctors();
-        response.put("doctors", doctors);
+
+        if (user == null) {
+            response.put("message", "Unauthorized access.");
+            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+        }
+
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = LocalDate.parse(from);
+            toDate = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            response.put("message", "Dates must be in yyyy-MM-dd format.");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+        if (toDate.isBefore(fromDate) || ChronoUnit.DAYS.between(fromDate, toDate) >= MAX_MATRIX_DAYS) {
+            response.put("message", "Date range must span 1 to " + MAX_MATRIX_DAYS + " days.");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+        boolean byIds = doctorIds != null && !doctorIds.isEmpty();
+        if (!byIds && (specialty == null || specialty.isBlank())) {
+            response.put("message", "Either doctorIds or specialty is required.");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+        if (byIds && doctorIds.size() > MAX_MATRIX_DOCTORS) {
+            response.put("message", "At most " + MAX_MATRIX_DOCTORS + " doctors per request.");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+
+        Map<String, Map<String, List<String>>> availability =
+                doctorService.getAvailabilityMatrix(doctorIds, specialty, fromDate, toDate, MAX_MATRIX_DOCTORS);
+        if (availability == null) {
+            response.put("message", "More than " + MAX_MATRIX_DOCTORS + " doctors have this specialty; pick them with doctorIds.");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+        response.put("from", fromDate.toString());
+        response.put("to", toDate.toString());
+        response.put("availability", availability);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    // 4. Define the `getDoctor` Method
+    // Handles GET requests to retrieve a list of all doctors. The encoded {"doctors": [...]} body is served
+    // from the response cache with a strong ETag (304 on If-None-Match, gzip when accepted) until a doctor
+    // changes. A list too large to cache is written incrementally while the doctors are read from the database.
+    @GetMapping
+    public ResponseEntity<?> getDoctor(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        List<Object> key = List.of("all");
+        if (responseCache.isOversized(key)) {
+            StreamingResponseBody body = this::writeDoctors;
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        }
+        return responseCache.getBytes(key, () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+            try {
+                writeDoctors(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }).toResponse(ifNoneMatch, acceptEncoding);
+    }
+
+    private void writeDoctors(OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("doctors");
+            doctorService.streamDoctors(doctor -> {
+                try {
+                    json.writeObject(doctor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    // Define the `getDoctorPage` Method
+    // Handles GET requests for one page of doctors with keyset pagination:
+    // ?size=50&sort=id|name, then ?cursor=<nextCursor of the previous page> until nextCursor is null.
+    @GetMapping("/page")
+    public ResponseEntity<Map<String, Object>> getDoctorPage(@RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "50") int size,
+                                                             @RequestParam(defaultValue = "id") String sort) {
+        try {
+            Map<String, Object> response = doctorService.getDoctorPage(cursor,
+                    Math.min(Math.max(size, 1), MAX_PAGE_SIZE), sort);
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+    }
+
     // 5. Define the `saveDoctor` Method
-    // Handles POST requests to register a new doctor. Requires Admin token.
+    // Handles POST requests to register a new doctor. Requires Admin token. Completes once the password has
+    // been hashed on the hashing pool and the doctor saved; a saturated pool answers 503 with Retry-After.
     @PostMapping("/{token}")
-    public ResponseEntity<Map<String, String>> saveDoctor(@RequestBody Doctor doctor,
-                                                          @PathVariable String token) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> saveDoctor(@RequestBody Doctor doctor,
+                                                                             @PathVariable String token) {
         Map<String, String> response = new HashMap<>();
 
         if (service.validateToken(token, "admin")) {
-            int result = doctorService.saveDoctor(doctor);
-            
-            if (result == 1) {
-                response.put("message", "Doctor added to db");
-                return new ResponseEntity<>(response, HttpStatus.CREATED);
-            } else if (result == -1) {
-                response.put("message", "Doctor already exists");
-                return new ResponseEntity<>(response, HttpStatus.CONFLICT);
-            } else {
-                response.put("message", "Some internal error occurred");
-                return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
-            }
+            return doctorService.hashPassword(doctor).thenApply(hashed -> {
+                int result = doctorService.saveDoctor(hashed);
+
+                if (result == 1) {
+                    response.put("message", "Doctor added to db");
+                    return new ResponseEntity<>(response, HttpStatus.CREATED);
+                } else if (result == -1) {
+                    response.put("message", "Doctor already exists");
+                    return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+                } else if (result == -2) {
+                    response.put("message", "A doctor with this email is being deleted; try again once the deletion has finished");
+                    return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+                } else {
+                    response.put("message", "Some internal error occurred");
+                    return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+                }
+            }).exceptionally(this::hashingFailure);
         } else {
             response.put("message", "Unauthorized access");
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED));
         }
     }
 
     // 6. Define the `doctorLogin` Method
-    // Handles POST requests for doctor login.
+    // Handles POST requests for doctor login. Completes once the password check on the hashing pool is done.
     @PostMapping("/login")
-    public ResponseEntity<Map<String, String>> doctorLogin(@RequestBody Login login) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> doctorLogin(@RequestBody Login login) {
+        return doctorService.validateDoctor(login).thenApply(result -> {
+            Map<String, String> response = new HashMap<>();
+            if (!"Invalid Credentials".equals(result)) {
+                response.put("token", result);
+                response.put("message", "Login successful");
+                return new ResponseEntity<>(response, HttpStatus.OK);
+            } else {
+                response.put("message", "Invalid Credentials");
+                return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+            }
+        }).exceptionally(error -> {
+            Map<String, String> response = new HashMap<>();
+            if (Service.isBusy(error)) {
+                response.put("message", "Too many login attempts, please retry shortly");
+                return Service.busy(response);
+            }
+            response.put("message", "Some internal error occurred");
+            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        });
+    }
+
+    // 7. Define the `updateDoctor` Method
+    // Handles PUT requests to update a doctor. Requires Admin token. A new password is hashed on the hashing
+    // pool first, as in saveDoctor.
+    @PutMapping("/{token}")
+    public CompletableFuture<ResponseEntity<Map<String, String>>> updateDoctor(@RequestBody Doctor doctor,
+                                                                               @PathVariable String token) {
         Map<String, String> response = new HashMap<>();
-        String result = doctorService.validateDoctor(login);
 
-        if (!"Invalid Credentials".equals(result)) {
-            response.put("token", result);
-            response.put("message", "Login successful");
-            return new ResponseEntity<>(response, HttpStatus.OK);
+        if (service.validateToken(token, "admin")) {
+            return doctorService.hashPassword(doctor).thenApply(hashed -> {
+                int result = doctorService.updateDoctor(hashed);
+
+                if (result == 1) {
+                    response.put("message", "Doctor updated");
+                    return new ResponseEntity<>(response, HttpStatus.OK);
+                } else if (result == -1) {
+                    response.put("message", "Doctor not found");
+                    return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+                } else {
+                    response.put("message", "Some internal error occurred");
+                    return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+                }
+            }).exceptionally(this::hashingFailure);
         } else {
-            response.put("message", "Invalid Credentials");
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+            response.put("message", "Unauthorized access");
+            return CompletableFuture.completedFuture(new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED));
         }
     }
 
-    // 7. Define the `updateDoctor` Method
-    // Handles PUT requests to update a doctor. Requires Admin token.
-    @PutMapping("/{token}")
-    public ResponseEntity<Map<String, String>> updateDoctor(@RequestBody Doctor doctor,
-                                                            @PathVariable String token) {
+    // 503 with Retry-After when the hashing pool turned the request away, 500 otherwise
+    private ResponseEntity<Map<String, String>> hashingFailure(Throwable error) {
+        Map<String, String> response = new HashMap<>();
+        if (Service.isBusy(error)) {
+            response.put("message", "Server busy, please retry shortly");
+            return Service.busy(response);
+        }
+        response.put("message", "Some internal error occurred");
+        return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    // Define the `getSchedule` Method
+    // Handles GET requests for a doctor's weekly rules and upcoming date exceptions.
+    @GetMapping("/schedule/{doctorId}")
+    public ResponseEntity<Map<String, Object>> getSchedule(@PathVariable Long doctorId) {
+        Map<String, Object> response = new HashMap<>();
+        DoctorSchedule schedule = doctorService.getSchedule(doctorId);
+
+        if (schedule == null) {
+            response.put("message", "Doctor not found");
+            return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+        }
+        response.put("rules", schedule.getRules());
+        response.put("overrides", schedule.getOverrides());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    // Define the `updateSchedule` Method
+    // Handles PUT requests replacing a doctor's weekly rules and date exceptions. Requires Admin token.
+    @PutMapping("/schedule/{doctorId}/{token}")
+    public ResponseEntity<Map<String, String>> updateSchedule(@PathVariable Long doctorId,
+                                                              @RequestBody DoctorSchedule schedule,
+                                                              @PathVariable String token) {
         Map<String, String> response = new HashMap<>();
 
         if (service.validateToken(token, "admin")) {
-            int result = doctorService.updateDoctor(doctor);
+            int result = doctorService.updateSchedule(doctorId, schedule);
 
             if (result == 1) {
-                response.put("message", "Doctor updated");
+                response.put("message", "Schedule updated");
                 return new ResponseEntity<>(response, HttpStatus.OK);
             } else if (result == -1) {
                 response.put("message", "Doctor not found");
                 return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+            } else if (result == -2) {
+                response.put("message", "Invalid schedule: every rule and exception needs a date or weekday, "
+                        + "a start before its end and a slot length of " + ScheduleRule.MIN_SLOT_MINUTES
+                        + " to " + ScheduleRule.MAX_SLOT_MINUTES + " minutes");
+                return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
             } else {
                 response.put("message", "Some internal error occurred");
                 return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -140,6 +342,9 @@ public class DoctorController {
             if (result == 1) {
                 response.put("message", "Doctor deleted successfully");
                 return new ResponseEntity<>(response, HttpStatus.OK);
+            } else if (result == 2) {
+                response.put("message", "Doctor removed; their appointments are being deleted in the background");
+                return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
             } else if (result == -1) {
                 response.put("message", "Doctor not found with id");
                 return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
@@ -153,14 +358,41 @@ public class DoctorController {
         }
     }
 
+    // Define the `getDeletionProgress` Method
+    // Handles GET requests for the progress of a background doctor deletion. Requires Admin token.
+    @GetMapping("/deletion/{id}/{token}")
+    public ResponseEntity<Map<String, Object>> getDeletionProgress(@PathVariable Long id,
+                                                                   @PathVariable String token) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!service.validateToken(token, "admin")) {
+            response.put("message", "Unauthorized access");
+            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+        }
+        Map<String, Object> progress = doctorService.getDeletionProgress(id);
+        if (progress == null) {
+            response.put("message", "No deletion in progress for this doctor");
+            return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(progress, HttpStatus.OK);
+    }
+
     // 9. Define the `filter` Method
-    // Handles GET requests to filter doctors.
+    // Handles GET requests to filter doctors. Returns one page (?page=0&size=50 by default), served from
+    // the response cache like getDoctor().
     @GetMapping("/filter/{name}/{time}/{speciality}")
-    public ResponseEntity<Map<String, Object>> filter(@PathVariable String name,
-                                                      @PathVariable String time,
-                                                      @PathVariable String speciality) {
-        // service.filterDoctor() returns a Map<String, Object> (doctors list)
-        Map<String, Object> response = service.filterDoctor(name, speciality, time);
-        return new ResponseEntity<>(response, HttpStatus.OK);
+    public ResponseEntity<byte[]> filter(@PathVariable String name,
+                                         @PathVariable String time,
+                                         @PathVariable String speciality,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "50") int size,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        int pageNumber = Math.max(page, 0);
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<Object> key = List.of("filter", name, time, speciality, pageNumber, pageSize);
+        // service.filterDoctor() returns a Map<String, Object> (doctors list and paging info)
+        return responseCache.get(key, () -> service.filterDoctor(name, speciality, time, pageNumber, pageSize))
+                .toResponse(ifNoneMatch, acceptEncoding);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package com.project.back_end.controllers;
+
+import com.project.back_end.services.Service;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 1. Set Up the Controller Class
+// Shared by all roles: tokens are stateless, so logging out means revoking the token.
+@RestController
+@RequestMapping("${api.path}" + "logout")
+public class LogoutController {
+
+    private final Service service;
+
+    @Autowired
+    public LogoutController(Service service) {
+        this.service = service;
+    }
+
+    // 2. Define the `logout` Method
+    // Handles POST requests to revoke the caller's token. Always succeeds, even for unknown tokens.
+    @PostMapping("/{token}")
+    public ResponseEntity<Map<String, String>> logout(@PathVariable String token) {
+        service.logout(token);
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Logged out");
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
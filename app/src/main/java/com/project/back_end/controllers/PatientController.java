@@ -1,8 +1,11 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.DTO.AuthenticatedUser;
 import com.project.back_end.DTO.Login;
+import com.project.back_end.config.CurrentUser;
 import com.project.back_end.models.Patient;
 import com.project.back_end.services.PatientService;
+import com.project.back_end.services.PrescriptionService;
 import com.project.back_end.services.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -11,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 // 1. Set Up the Controller Class
 @RestController
@@ -20,23 +24,25 @@ public class PatientController {
     // 2. Autowire Dependencies
     private final PatientService patientService;
     private final Service service;
+    private final PrescriptionService prescriptionService;
 
     @Autowired
-    public PatientController(PatientService patientService, Service service) {
+    public PatientController(PatientService patientService, Service service, PrescriptionService prescriptionService) {
         this.patientService = patientService;
         this.service = service;
+        this.prescriptionService = prescriptionService;
     }
 
     // 3. Define the `getPatient` Method
     // Handles GET requests to retrieve patient details using a token.
     @GetMapping("/{token}")
-    public ResponseEntity<Map<String, Object>> getPatient(@PathVariable String token) {
+    public ResponseEntity<Map<String, Object>> getPatient(@CurrentUser("patient") AuthenticatedUser patient) {
         Map<String, Object> response = new HashMap<>();
 
-        // Validate token for "patient" role
-        if (service.validateToken(token, "patient")) {
+        // Token must belong to an existing patient
+        if (patient != null) {
             // Fetch patient details
-            return patientService.getPatientDetails(token);
+            return patientService.getPatientDetails(patient.getId());
         } else {
             response.put("message", "Unauthorized access.");
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
@@ -44,33 +50,41 @@ public class PatientController {
     }
 
     // 4. Define the `createPatient` Method
-    // Handles POST requests for patient registration.
+    // Handles POST requests for patient registration. Completes once the password has been hashed on the
+    // hashing pool and the patient saved; a saturated pool answers 503 with Retry-After.
     @PostMapping
-    public ResponseEntity<Map<String, String>> createPatient(@RequestBody Patient patient) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> createPatient(@RequestBody Patient patient) {
         Map<String, String> response = new HashMap<>();
 
         // Check if patient already exists (validatePatient returns true if valid/not exists)
         if (service.validatePatient(patient)) {
             // Attempt to create patient
-            int result = patientService.createPatient(patient);
-
-            if (result == 1) {
-                response.put("message", "Signup successful");
-                return new ResponseEntity<>(response, HttpStatus.CREATED);
-            } else {
+            return patientService.createPatient(patient).thenApply(result -> {
+                if (result == 1) {
+                    response.put("message", "Signup successful");
+                    return new ResponseEntity<>(response, HttpStatus.CREATED);
+                } else {
+                    response.put("message", "Internal server error");
+                    return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+                }
+            }).exceptionally(error -> {
+                if (Service.isBusy(error)) {
+                    response.put("message", "Too many signups, please retry shortly");
+                    return Service.busy(response);
+                }
                 response.put("message", "Internal server error");
                 return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
-            }
+            });
         } else {
             response.put("message", "Patient with email id or phone no already exist");
-            return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(response, HttpStatus.CONFLICT));
         }
     }
 
     // 5. Define the `login` Method
     // Handles POST requests for patient login.
     @PostMapping("/login")
-    public ResponseEntity<Map<String, String>> login(@RequestBody Login login) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> login(@RequestBody Login login) {
         // Delegates authentication to service.validatePatientLogin
         return service.validatePatientLogin(login);
     }
@@ -79,13 +93,13 @@ public class PatientController {
     // Handles GET requests to fetch appointment details for a specific patient.
     @GetMapping("/{id}/{token}")
     public ResponseEntity<Map<String, Object>> getPatientAppointment(@PathVariable Long id,
-                                                                     @PathVariable String token) {
+                                                                     @CurrentUser("patient") AuthenticatedUser patient) {
         Map<String, Object> response = new HashMap<>();
 
-        // Validate token for "patient" role
-        if (service.validateToken(token, "patient")) {
+        // Token must belong to an existing patient
+        if (patient != null) {
             // Fetch appointments
-            return patientService.getPatientAppointment(id, token);
+            return patientService.getPatientAppointment(id, patient.getId());
         } else {
             response.put("message", "Unauthorized access.");
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
@@ -97,16 +111,31 @@ public class PatientController {
     @GetMapping("/filter/{condition}/{name}/{token}")
     public ResponseEntity<Map<String, Object>> filterPatientAppointment(@PathVariable String condition,
                                                                         @PathVariable String name,
-                                                                        @PathVariable String token) {
+                                                                        @CurrentUser("patient") AuthenticatedUser patient) {
         Map<String, Object> response = new HashMap<>();
 
-        // Validate token for "patient" role
-        if (service.validateToken(token, "patient")) {
+        // Token must belong to an existing patient
+        if (patient != null) {
             // Delegates filtering logic to service.filterPatient
-            return service.filterPatient(condition, name, token);
+            return service.filterPatient(condition, name, patient.getId());
+        } else {
+            response.put("message", "Unauthorized access.");
+            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+        }
+    }
+
+    // 8. Define the `getMedicationHistory` Method
+    // Handles GET requests for the patient's prescriptions across all completed appointments, newest first.
+    @GetMapping("/medications/{token}")
+    public ResponseEntity<Map<String, Object>> getMedicationHistory(@CurrentUser("patient") AuthenticatedUser patient) {
+        Map<String, Object> response = new HashMap<>();
+
+        // Token must belong to an existing patient
+        if (patient != null) {
+            return prescriptionService.getMedicationHistory(patient.getId());
         } else {
             response.put("message", "Unauthorized access.");
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
         }
     }
-}
\ No newline at end of file
+}
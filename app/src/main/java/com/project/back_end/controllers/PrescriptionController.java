@@ -1,7 +1,10 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.DTO.AuthenticatedUser;
+import com.project.back_end.config.CurrentUser;
 import com.project.back_end.models.Prescription;
 import com.project.back_end.services.AppointmentService;
+import com.project.back_end.services.PrescriptionOutboxRelay;
 import com.project.back_end.services.PrescriptionService;
 import com.project.back_end.services.Service;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,20 +24,24 @@ public class PrescriptionController {
     // 2. Autowire Dependencies
     private final PrescriptionService prescriptionService;
     private final Service service;
+    private final PrescriptionOutboxRelay prescriptionOutbox;
     private final AppointmentService appointmentService;
 
     @Autowired
     public PrescriptionController(PrescriptionService prescriptionService,
                                   Service service,
+                                  PrescriptionOutboxRelay prescriptionOutbox,
                                   AppointmentService appointmentService) {
         this.prescriptionService = prescriptionService;
         this.service = service;
+        this.prescriptionOutbox = prescriptionOutbox;
         this.appointmentService = appointmentService;
     }
 
     // 3. Define the `savePrescription` Method
     // Handles POST requests to save a new prescription. Validates doctor token.
-    // Updates appointment status and delegates save logic.
+    // Records the prescription and completes the appointment in one MySQL transaction; the outbox relay
+    // writes it to Mongo shortly after, so the response is 202 Accepted.
     @PostMapping("/{token}")
     public ResponseEntity<Map<String, String>> savePrescription(@Valid @RequestBody Prescription prescription,
                                                                 @PathVariable String token) {
@@ -42,11 +49,19 @@ public class PrescriptionController {
 
         // Validate token for "doctor" role
         if (service.validateToken(token, "doctor")) {
-            // Update the status of the corresponding appointment (e.g., status 1 for "Prescribed/Completed")
-            appointmentService.changeStatus(1, prescription.getAppointmentId());
-
-            // Delegate saving logic to PrescriptionService
-            return prescriptionService.savePrescription(prescription);
+            int result = prescriptionOutbox.submit(prescription);
+            if (result == 1) {
+                response.put("message", "Prescription accepted");
+                return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+            } else if (result == 0) {
+                response.put("message", "Prescription already exists for this appointment.");
+                return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+            } else if (result == -1) {
+                response.put("message", "Appointment not found.");
+                return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+            }
+            response.put("message", "Error saving prescription");
+            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
         } else {
             response.put("message", "Unauthorized access.");
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
@@ -69,4 +84,24 @@ public class PrescriptionController {
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
         }
     }
-}
\ No newline at end of file
+
+    // 5. Define the `getMedicationHistory` Method
+    // Handles GET requests for a patient's prescriptions across all completed appointments, newest first.
+    // Only for doctors who have (or had) an appointment with the patient.
+    @GetMapping("/history/{patientId}/{token}")
+    public ResponseEntity<Map<String, Object>> getMedicationHistory(@PathVariable Long patientId,
+                                                                    @CurrentUser("doctor") AuthenticatedUser doctor) {
+        Map<String, Object> response = new HashMap<>();
+
+        // Token must belong to an existing doctor
+        if (doctor == null) {
+            response.put("message", "Unauthorized access.");
+            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+        }
+        if (!appointmentService.isPatientOf(doctor.getId(), patientId)) {
+            response.put("message", "No appointment with this patient.");
+            return new ResponseEntity<>(response, HttpStatus.FORBIDDEN);
+        }
+        return prescriptionService.getMedicationHistory(patientId);
+    }
+}
@@ -1,5 +1,6 @@
 package com.project.back_end.models;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotNull;
@@ -8,7 +9,19 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "appointment")
+// Loads doctor and patient with the appointment in one joined select, for the patient-side listings
+@NamedEntityGraph(name = "Appointment.doctorAndPatient",
+                  attributeNodes = {@NamedAttributeNode("doctor"), @NamedAttributeNode("patient")})
+// A doctor can hold only one appointment per start time; concurrent bookings of the same slot
+// fail on insert instead of both succeeding; the same key serves the doctor's day and slot lookups.
+// The time index serves the archiver's scan for old rows, and the patient index the patient's
+// listings by status, already in time order.
+@Table(name = "appointment",
+       uniqueConstraints = @UniqueConstraint(name = "uk_appointment_doctor_time",
+                                             columnNames = {"doctor_id", "appointment_time"}),
+       indexes = {@Index(name = "idx_appointment_time", columnList = "appointment_time"),
+                  @Index(name = "idx_appointment_patient_status_time",
+                         columnList = "patient_id, status, appointment_time")})
 public class Appointment {
 
     // Status Constants for code readability
@@ -23,7 +36,8 @@ public class Appointment {
 //      - Represents the doctor assigned to this appointment.
 //      - The @ManyToOne annotation defines the relationship, indicating many appointments can be linked to one doctor.
 //      - The @NotNull annotation ensures that an appointment must be associated with a doctor when created.
-    @ManyToOne
+//      - Loaded lazily; queries that need the doctor fetch it explicitly (join fetch or entity graph).
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "doctor_id", nullable = false)
     @NotNull(message = "Doctor is required")
     private Doctor doctor;
@@ -31,7 +45,8 @@ public class Appointment {
 //      - Represents the patient assigned to this appointment.
 //      - The @ManyToOne annotation defines the relationship, indicating many appointments can be linked to one patient.
 //      - The @NotNull annotation ensures that an appointment must be associated with a patient when created.
-    @ManyToOne
+//      - Loaded lazily, like the doctor.
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
     @NotNull(message = "Patient is required")
     private Patient patient;
@@ -49,6 +64,13 @@ public class Appointment {
     @NotNull(message = "Status is required")
     private int status = STATUS_SCHEDULED; 
 
+//      - Whether a prescription exists for this appointment; not persisted.
+//      - Filled in only for the doctor's daily schedule (AppointmentService.getAppointments); null elsewhere,
+//        and then left out of the JSON.
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasPrescription;
+
     // Default Constructor
     public Appointment() {}
 
@@ -96,4 +118,7 @@ public class Appointment {
 
     public int getStatus() { return status; }
     public void setStatus(int status) { this.status = status; }
+
+    public Boolean getHasPrescription() { return hasPrescription; }
+    public void setHasPrescription(Boolean hasPrescription) { this.hasPrescription = hasPrescription; }
 }
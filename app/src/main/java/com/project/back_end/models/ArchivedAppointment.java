@@ -0,0 +1,62 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+// Cold storage for past appointments. AppointmentArchiver moves appointments older than the hot window
+// out of the `appointment` table into this one, keeping their ids, so the hot table (and its indexes)
+// only holds recent and upcoming appointments. Read by history views; late status changes
+// (AppointmentService.changeStatus) fall back to it.
+@Entity
+@Table(name = "appointment_archive",
+       indexes = {@Index(name = "idx_archive_doctor_time", columnList = "doctor_id, appointment_time"),
+                  @Index(name = "idx_archive_patient_time", columnList = "patient_id, appointment_time")})
+public class ArchivedAppointment {
+
+//      - Same id the appointment had in the hot table (prescriptions refer to it).
+    @Id
+    private Long id;
+
+//      - Plain ids rather than associations: the archive carries no foreign keys, and queries join
+//        Doctor and Patient explicitly when they need them.
+    @NotNull
+    @Column(name = "doctor_id")
+    private Long doctorId;
+
+    @NotNull
+    @Column(name = "patient_id")
+    private Long patientId;
+
+    @NotNull
+    @Column(name = "appointment_time")
+    private LocalDateTime appointmentTime;
+
+//      - Status at the time of archiving: 0 = Scheduled, 1 = Completed, 2 = Cancelled
+    private int status;
+
+    @NotNull
+    private LocalDateTime archivedAt;
+
+    // Constructors
+    public ArchivedAppointment() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getDoctorId() { return doctorId; }
+    public void setDoctorId(Long doctorId) { this.doctorId = doctorId; }
+
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+    public LocalDateTime getAppointmentTime() { return appointmentTime; }
+    public void setAppointmentTime(LocalDateTime appointmentTime) { this.appointmentTime = appointmentTime; }
+
+    public int getStatus() { return status; }
+    public void setStatus(int status) { this.status = status; }
+
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
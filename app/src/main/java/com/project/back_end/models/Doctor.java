@@ -2,11 +2,15 @@ package com.project.back_end.models;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.BatchSize;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
 @Entity
-@Table(name = "doctor") // References the 'doctors' SQL table
+@Table(name = "doctor", // References the 'doctors' SQL table
+       indexes = {@Index(name = "idx_doctor_name_id", columnList = "name, id"), // keyset paging by name
+                  @Index(name = "idx_doctor_specialty", columnList = "specialty")})
 public class Doctor {
 
     @Id
@@ -62,8 +66,10 @@ public class Doctor {
     //      - Represents the available times for the doctor in a list of time slots.
     //      - Each time slot is represented as a string (e.g., "09:00-10:00", "10:00-11:00").
     //      - The @ElementCollection annotation ensures that the list of time slots is stored as a separate collection in the database.
-    // Using a converter to store the list as a single column in the 'doctors' table
-    @ElementCollection(fetch = FetchType.EAGER) // EAGER loads times whenever you load a Doctor
+    //      - Loaded lazily: queries that return doctors for display fetch the times explicitly
+    //        (findAllWithAvailableTimes), and any other access loads the times of up to 100 doctors at once.
+    @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(
         name = "doctor_available_times",        // Name of the secondary table
         joinColumns = @JoinColumn(name = "doctor_id") // Foreign key to Doctor table
@@ -71,6 +77,14 @@ public class Doctor {
     @Column(name = "available_times")
     private List<String> availableTimes; //
 
+    //    - Description:
+    //      - Set when the doctor is deleted but their appointments are still being removed in the background
+    //        (see DoctorDeletionJob). A retired doctor is hidden from every listing and cannot log in or be booked;
+    //        the row itself is deleted once the appointments are gone.
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean retired;
+
     // Constructors
     public Doctor() {}
 
@@ -104,5 +118,8 @@ public class Doctor {
 
     public List<String> getAvailableTimes() { return availableTimes; }
     public void setAvailableTimes(List<String> availableTimes) { this.availableTimes = availableTimes; }
+
+    public boolean isRetired() { return retired; }
+    public void setRetired(boolean retired) { this.retired = retired; }
 }
 
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 
 @Entity
-@Table(name = "patient")
+@Table(name = "patient",
+       indexes = {@Index(name = "idx_patient_email", columnList = "email"), // login and lookups by email
+                  @Index(name = "idx_patient_phone", columnList = "phone")})  // duplicate check at sign-up
 public class Patient {
 
     @Id
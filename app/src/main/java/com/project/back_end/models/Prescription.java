@@ -18,6 +18,11 @@ public class Prescription {
     @NotNull(message = "Appointment ID is required")
     private Long appointmentId; 
     // Links this prescription to a specific MySQL appointment
+    // Unique: at most one prescription per appointment (index created by PrescriptionService.ensureIndexes)
+
+    private Long patientId;
+    // The appointment's patient, filled in when the prescription is submitted (older prescriptions lack it)
+    // Indexed by PrescriptionService.ensureIndexes, for per-patient lookups
 
     @NotNull(message = "Medication name is required")
     @Size(min = 3, max = 100, message = "Medication name must be between 3 and 100 characters")
@@ -51,6 +56,9 @@ public class Prescription {
     public Long getAppointmentId() { return appointmentId; }
     public void setAppointmentId(Long appointmentId) { this.appointmentId = appointmentId; }
 
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
     public String getMedication() { return medication; }
     public void setMedication(String medication) { this.medication = medication; }
 
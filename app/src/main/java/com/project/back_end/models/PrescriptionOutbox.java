@@ -0,0 +1,78 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+// A prescription accepted in MySQL, waiting to be (or already) written to Mongo.
+// Inserted in the same transaction that marks the appointment completed; the relay in
+// services.PrescriptionOutboxRelay copies pending rows to the `prescription` collection.
+@Entity
+@Table(name = "prescription_outbox",
+       uniqueConstraints = @UniqueConstraint(name = "uk_prescription_outbox_appointment", columnNames = "appointment_id"),
+       indexes = @Index(name = "idx_prescription_outbox_next_attempt", columnList = "next_attempt_at")) // relay polling
+public class PrescriptionOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+//      - One prescription per appointment: a second submission fails on the unique constraint,
+//        whether the first is still pending or already relayed.
+    @NotNull
+    @Column(name = "appointment_id")
+    private Long appointmentId;
+
+//      - The prescription as JSON; cleared once relayed.
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @NotNull
+    private LocalDateTime createdAt;
+
+//      - When the relay should (re)try; null once the row is done with, which also takes it out of the index.
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    private int attempts;
+
+    @Column(length = 500)
+    private String lastError;
+
+    private LocalDateTime relayedAt;
+
+    // Constructors
+    public PrescriptionOutbox() {}
+
+    public PrescriptionOutbox(Long appointmentId, String payload, LocalDateTime createdAt) {
+        this.appointmentId = appointmentId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getAppointmentId() { return appointmentId; }
+    public void setAppointmentId(Long appointmentId) { this.appointmentId = appointmentId; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getRelayedAt() { return relayedAt; }
+    public void setRelayedAt(LocalDateTime relayedAt) { this.relayedAt = relayedAt; }
+}
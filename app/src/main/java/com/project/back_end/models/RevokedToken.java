@@ -0,0 +1,45 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "revoked_token",
+       indexes = @Index(name = "idx_revoked_token_expires", columnList = "expires_at")) // purge and reload by expiry
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+//      - Identifies what was revoked: "jti:<token id>" for a single logged-out token,
+//        or "<role>:<user id>" for every token of a deleted user.
+//      - Unique, so revoking the same key twice is a no-op.
+    @NotNull
+    @Column(unique = true, length = 100)
+    private String revocationKey;
+
+//      - After this instant every token the key could match has expired on its own,
+//        so the row can be purged.
+    @NotNull
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public RevokedToken() {}
+
+    public RevokedToken(String revocationKey, LocalDateTime expiresAt) {
+        this.revocationKey = revocationKey;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getRevocationKey() { return revocationKey; }
+    public void setRevocationKey(String revocationKey) { this.revocationKey = revocationKey; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,88 @@
+package com.project.back_end.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// A date exception to a doctor's weekly schedule: time off (vacation, closed afternoon)
+// or an extra clinic on a specific date.
+@Entity
+@Table(name = "doctor_schedule_override",
+       indexes = @Index(name = "idx_schedule_override_doctor_date", columnList = "doctor_id, override_date"))
+public class ScheduleOverride {
+
+    public enum Type {
+        CLOSED, // no slots in [startTime, endTime), or the whole day when no times are given
+        EXTRA   // additional slots in [startTime, endTime)
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+//      - The doctor this exception belongs to. Written through doctorId;
+//        the association only provides the foreign key and is never serialized.
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", insertable = false, updatable = false)
+    @JsonIgnore
+    private Doctor doctor;
+
+    @NotNull
+    @Column(name = "override_date")
+    private LocalDate date;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(length = 6)
+    private Type type;
+
+//      - Optional for CLOSED (whole day), required for EXTRA.
+    private LocalTime startTime;
+
+    private LocalTime endTime;
+
+//      - Slot length of an EXTRA clinic.
+    @Min(ScheduleRule.MIN_SLOT_MINUTES)
+    @Max(ScheduleRule.MAX_SLOT_MINUTES)
+    private int slotMinutes = 60;
+
+    // Constructors
+    public ScheduleOverride() {}
+
+    public ScheduleOverride(LocalDate date, Type type, LocalTime startTime, LocalTime endTime, int slotMinutes) {
+        this.date = date;
+        this.type = type;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.slotMinutes = slotMinutes;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getDoctorId() { return doctorId; }
+    public void setDoctorId(Long doctorId) { this.doctorId = doctorId; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public LocalTime getStartTime() { return startTime; }
+    public void setStartTime(LocalTime startTime) { this.startTime = startTime; }
+
+    public LocalTime getEndTime() { return endTime; }
+    public void setEndTime(LocalTime endTime) { this.endTime = endTime; }
+
+    public int getSlotMinutes() { return slotMinutes; }
+    public void setSlotMinutes(int slotMinutes) { this.slotMinutes = slotMinutes; }
+}
@@ -0,0 +1,80 @@
+package com.project.back_end.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+@Entity
+@Table(name = "doctor_schedule_rule",
+       indexes = @Index(name = "idx_schedule_rule_doctor_day", columnList = "doctor_id, day_of_week, start_time"))
+public class ScheduleRule {
+
+    // Bounds on slotMinutes, for rules and overrides alike; WeeklySchedule.isValid checks them before saving
+    public static final int MIN_SLOT_MINUTES = 5;
+    public static final int MAX_SLOT_MINUTES = 480;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+//      - The doctor this weekly rule belongs to. Written through doctorId;
+//        the association only provides the foreign key and is never serialized.
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", insertable = false, updatable = false)
+    @JsonIgnore
+    private Doctor doctor;
+
+//      - Weekday the rule repeats on, e.g. MONDAY.
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(length = 9)
+    private DayOfWeek dayOfWeek;
+
+//      - Working hours on that weekday; cut into consecutive slots of slotMinutes.
+//        A trailing remainder shorter than one slot is not offered.
+    @NotNull
+    private LocalTime startTime;
+
+    @NotNull
+    private LocalTime endTime;
+
+    @Min(MIN_SLOT_MINUTES)
+    @Max(MAX_SLOT_MINUTES)
+    private int slotMinutes = 60;
+
+    // Constructors
+    public ScheduleRule() {}
+
+    public ScheduleRule(DayOfWeek dayOfWeek, LocalTime startTime, LocalTime endTime, int slotMinutes) {
+        this.dayOfWeek = dayOfWeek;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.slotMinutes = slotMinutes;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getDoctorId() { return doctorId; }
+    public void setDoctorId(Long doctorId) { this.doctorId = doctorId; }
+
+    public DayOfWeek getDayOfWeek() { return dayOfWeek; }
+    public void setDayOfWeek(DayOfWeek dayOfWeek) { this.dayOfWeek = dayOfWeek; }
+
+    public LocalTime getStartTime() { return startTime; }
+    public void setStartTime(LocalTime startTime) { this.startTime = startTime; }
+
+    public LocalTime getEndTime() { return endTime; }
+    public void setEndTime(LocalTime endTime) { this.endTime = endTime; }
+
+    public int getSlotMinutes() { return slotMinutes; }
+    public void setSlotMinutes(int slotMinutes) { this.slotMinutes = slotMinutes; }
+}
@@ -1,7 +1,11 @@
 package com.project.back_end.repo;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import com.project.back_end.models.Admin;
 
 @Repository
@@ -14,4 +18,11 @@ public interface AdminRepository extends JpaRepository<Admin, Long> {
     // Returns an Admin entity that matches the provided username.
     Admin findByUsername(String username);
 
-}
\ No newline at end of file
+    // **updatePassword**
+    // Replaces the stored password hash, e.g. when it is rehashed at login with a new cost.
+    @Modifying
+    @Transactional
+    @Query("UPDATE Admin a SET a.password = :password WHERE a.id = :id")
+    void updatePassword(@Param("id") Long id, @Param("password") String password);
+
+}
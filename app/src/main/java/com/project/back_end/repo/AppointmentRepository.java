@@ -1,15 +1,23 @@
 package com.project.back_end.repo;
 
+import com.project.back_end.DTO.AppointmentDTO;
 import com.project.back_end.models.Appointment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
@@ -20,20 +28,38 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     // 2. Custom Query Methods
 
     // **findByDoctorIdAndAppointmentTimeBetween**
-    // Uses LEFT JOIN FETCH to eagerly load doctor and available times as requested.
-    @Query("SELECT DISTINCT a FROM Appointment a " +
-           "LEFT JOIN FETCH a.doctor d " +
-           "LEFT JOIN FETCH d.availableTimes " +
+    // Uses JOIN FETCH to load doctor and patient in the same statement (one row per appointment).
+    // The doctor's available times are left to one batch load, instead of multiplying the rows.
+    @Query("SELECT a FROM Appointment a " +
+           "JOIN FETCH a.doctor d " +
+           "JOIN FETCH a.patient " +
            "WHERE d.id = :doctorId AND a.appointmentTime BETWEEN :start AND :end")
     List<Appointment> findByDoctorIdAndAppointmentTimeBetween(@Param("doctorId") Long doctorId, 
                                                               @Param("start") LocalDateTime start, 
                                                               @Param("end") LocalDateTime end);
 
+    // **findBookedTimes**
+    // Start times of a doctor's non-cancelled appointments in a range; used to build the slot bitmap.
+    @Query("SELECT a.appointmentTime FROM Appointment a " +
+           "WHERE a.doctor.id = :doctorId AND a.status <> 2 AND a.appointmentTime BETWEEN :start AND :end")
+    List<LocalDateTime> findBookedTimes(@Param("doctorId") Long doctorId,
+                                        @Param("start") LocalDateTime start,
+                                        @Param("end") LocalDateTime end);
+
+    // **findBookedTimesByDoctorIds**
+    // (doctorId, start time) of the non-cancelled appointments of several doctors in a range.
+    // One statement serves a whole availability matrix; rows are grouped by doctor and day in memory.
+    @Query("SELECT a.doctor.id, a.appointmentTime FROM Appointment a " +
+           "WHERE a.doctor.id IN :doctorIds AND a.status <> 2 AND a.appointmentTime BETWEEN :start AND :end")
+    List<Object[]> findBookedTimesByDoctorIds(@Param("doctorIds") Collection<Long> doctorIds,
+                                              @Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
+
     // **findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween**
-    // Uses LEFT JOIN to fetch doctor and patient details.
-    @Query("SELECT DISTINCT a FROM Appointment a " +
-           "LEFT JOIN FETCH a.doctor d " +
-           "LEFT JOIN FETCH a.patient p " +
+    // Uses JOIN FETCH to load doctor and patient details in the same statement.
+    @Query("SELECT a FROM Appointment a " +
+           "JOIN FETCH a.doctor d " +
+           "JOIN FETCH a.patient p " +
            "WHERE d.id = :doctorId " +
            "AND LOWER(p.name) LIKE LOWER(CONCAT('%', :patientName, '%')) " +
            "AND a.appointmentTime BETWEEN :start AND :end")
@@ -44,31 +70,156 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
 
     // **deleteAllByDoctorId**
     // Marked as @Modifying and @Transactional.
+    // One set-based DELETE; no appointment is loaded. Returns the number of rows removed.
     @Modifying
     @Transactional
-    void deleteAllByDoctorId(Long doctorId);
+    @Query("DELETE FROM Appointment a WHERE a.doctor.id = :doctorId")
+    int deleteAllByDoctorId(@Param("doctorId") Long doctorId);
+
+    // **countByDoctorId**
+    // Counts on the foreign key column; the derived query joined the doctor table for it.
+    @Query("SELECT COUNT(a) FROM Appointment a WHERE a.doctor.id = :doctorId")
+    long countByDoctorId(@Param("doctorId") Long doctorId);
+
+    // **existsByDoctorIdAndPatientIdAndStatusNot**
+    // Whether the doctor has an appointment with the patient in a status other than the given one.
+    @Query("SELECT COUNT(a) > 0 FROM Appointment a " +
+           "WHERE a.doctor.id = :doctorId AND a.patient.id = :patientId AND a.status <> :status")
+    boolean existsByDoctorIdAndPatientIdAndStatusNot(@Param("doctorId") Long doctorId,
+                                                     @Param("patientId") Long patientId,
+                                                     @Param("status") int status);
+
+    // **findIdsByDoctorId**
+    // The next chunk of a doctor's appointment ids, for deleting a long history in short transactions.
+    @Query("SELECT a.id FROM Appointment a WHERE a.doctor.id = :doctorId ORDER BY a.id")
+    List<Long> findIdsByDoctorId(@Param("doctorId") Long doctorId, Limit limit);
+
+    // **findIdsBefore**
+    // The next batch of appointments that started before the cutoff, whatever their status, for AppointmentArchiver
+    @Query("SELECT a.id FROM Appointment a WHERE a.appointmentTime < :cutoff ORDER BY a.appointmentTime")
+    List<Long> findIdsBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    // **deleteAllByIdIn**
+    @Modifying
+    @Query("DELETE FROM Appointment a WHERE a.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
 
     // **findByPatientId**
-    List<Appointment> findByPatientId(Long patientId);
+    // The entity graph joins doctor and patient, so converting the result to DTOs runs no further selects.
+    // Filters on the foreign key column: the derived query put the condition on an outer-joined patient,
+    // which no index can serve.
+    @EntityGraph("Appointment.doctorAndPatient")
+    @Query("SELECT a FROM Appointment a WHERE a.patient.id = :patientId")
+    List<Appointment> findByPatientId(@Param("patientId") Long patientId);
 
     // **findByPatient_IdAndStatusOrderByAppointmentTimeAsc**
-    List<Appointment> findByPatientIdAndStatusOrderByAppointmentTimeAsc(Long patientId, int status);
+    @EntityGraph("Appointment.doctorAndPatient")
+    @Query("SELECT a FROM Appointment a WHERE a.patient.id = :patientId AND a.status = :status ORDER BY a.appointmentTime")
+    List<Appointment> findByPatientIdAndStatusOrderByAppointmentTimeAsc(@Param("patientId") Long patientId,
+                                                                        @Param("status") int status);
 
     // **filterByDoctorNameAndPatientId**
     // Custom query for filtering by doctor name (LIKE) and patient ID.
+    @EntityGraph("Appointment.doctorAndPatient")
     @Query("SELECT a FROM Appointment a WHERE a.patient.id = :patientId AND LOWER(a.doctor.name) LIKE LOWER(CONCAT('%', :doctorName, '%'))")
     List<Appointment> filterByDoctorNameAndPatientId(@Param("doctorName") String doctorName, @Param("patientId") Long patientId);
 
     // **filterByDoctorNameAndPatientIdAndStatus**
+    @EntityGraph("Appointment.doctorAndPatient")
     @Query("SELECT a FROM Appointment a WHERE a.patient.id = :patientId AND a.status = :status AND LOWER(a.doctor.name) LIKE LOWER(CONCAT('%', :doctorName, '%'))")
     List<Appointment> filterByDoctorNameAndPatientIdAndStatus(@Param("doctorName") String doctorName, 
                                                               @Param("patientId") Long patientId, 
                                                               @Param("status") int status);
 
+    // 3. DTO Projection Queries
+    // Select straight into AppointmentDTO: only the ten listed columns are read, and no entity
+    // enters the persistence context. Used by the patient-side appointment listings.
+    // The patient condition is on a.patient.id, so idx_appointment_patient_status_time drives the query.
+
+    String APPOINTMENT_DTO = "SELECT new com.project.back_end.DTO.AppointmentDTO(" +
+            "a.id, d.id, d.name, p.id, p.name, p.email, p.phone, p.address, a.appointmentTime, a.status) " +
+            "FROM Appointment a JOIN a.doctor d JOIN a.patient p ";
+
+    // **findDtosByPatientId**
+    @Query(APPOINTMENT_DTO + "WHERE a.patient.id = :patientId")
+    List<AppointmentDTO> findDtosByPatientId(@Param("patientId") Long patientId);
+
+    // **findDtosByPatientIdAndStatus**
+    @Query(APPOINTMENT_DTO + "WHERE a.patient.id = :patientId AND a.status = :status ORDER BY a.appointmentTime")
+    List<AppointmentDTO> findDtosByPatientIdAndStatus(@Param("patientId") Long patientId, @Param("status") int status);
+
+    // **filterDtosByDoctorNameAndPatientId**
+    @Query(APPOINTMENT_DTO + "WHERE a.patient.id = :patientId AND LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%'))")
+    List<AppointmentDTO> filterDtosByDoctorNameAndPatientId(@Param("doctorName") String doctorName,
+                                                            @Param("patientId") Long patientId);
+
+    // **filterDtosByDoctorNameAndPatientIdAndStatus**
+    @Query(APPOINTMENT_DTO + "WHERE a.patient.id = :patientId AND a.status = :status " +
+           "AND LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%'))")
+    List<AppointmentDTO> filterDtosByDoctorNameAndPatientIdAndStatus(@Param("doctorName") String doctorName,
+                                                                     @Param("patientId") Long patientId,
+                                                                     @Param("status") int status);
+
+    // **findDoctorIdById**
+    // The doctor of an appointment, or null if there is no such (hot) appointment.
+    @Query("SELECT a.doctor.id FROM Appointment a WHERE a.id = :id")
+    Long findDoctorIdById(@Param("id") Long id);
+
+    // **findPatientIdById**
+    // The patient of an appointment, or null if there is no such (hot) appointment.
+    @Query("SELECT a.patient.id FROM Appointment a WHERE a.id = :id")
+    Long findPatientIdById(@Param("id") Long id);
+
+    // **findCompletedHistory**
+    // (id, start time, doctor name) of every completed appointment of a patient, hot and archived, in one
+    // round trip; the ids PrescriptionService looks prescriptions up by. Each half runs on its patient index.
+    @Query("SELECT a.id, a.appointmentTime, d.name FROM Appointment a JOIN a.doctor d " +
+           "WHERE a.patient.id = :patientId AND a.status = 1 " +
+           "UNION ALL " +
+           "SELECT x.id, x.appointmentTime, xd.name FROM ArchivedAppointment x JOIN Doctor xd ON xd.id = x.doctorId " +
+           "WHERE x.patientId = :patientId AND x.status = 1")
+    List<Object[]> findCompletedHistory(@Param("patientId") Long patientId);
+
+    // **streamUpcomingScheduled**
+    // (id, start time) of every scheduled appointment after now, read from a cursor; loads ReminderScheduler.
+    // Must be consumed inside a transaction and closed.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.id, a.appointmentTime FROM Appointment a WHERE a.appointmentTime > :now AND a.status = 0")
+    Stream<Object[]> streamUpcomingScheduled(@Param("now") LocalDateTime now);
+
+    // **findFirstScheduleTime**
+    // Start of the doctor's earliest appointment in [start, end), or null; ScheduleExporter writes the
+    // archived rows before it without holding the hot cursor open.
+    @Query("SELECT MIN(a.appointmentTime) FROM Appointment a " +
+           "WHERE a.doctor.id = :doctorId AND a.appointmentTime >= :start AND a.appointmentTime < :end")
+    LocalDateTime findFirstScheduleTime(@Param("doctorId") Long doctorId,
+                                        @Param("start") LocalDateTime start,
+                                        @Param("end") LocalDateTime end);
+
+    // **streamDoctorSchedule**
+    // (id, start time, status, patient name, email, phone) of a doctor's appointments in [start, end),
+    // in start order, read from a cursor for ScheduleExporter. Scalar columns only, so nothing enters the
+    // persistence context however long the range. Must be consumed inside a transaction and closed.
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT a.id, a.appointmentTime, a.status, p.name, p.email, p.phone " +
+           "FROM Appointment a JOIN a.patient p " +
+           "WHERE a.doctor.id = :doctorId AND a.appointmentTime >= :start AND a.appointmentTime < :end " +
+           "ORDER BY a.appointmentTime")
+    Stream<Object[]> streamDoctorSchedule(@Param("doctorId") Long doctorId,
+                                          @Param("start") LocalDateTime start,
+                                          @Param("end") LocalDateTime end);
+
+    // **findScheduledDtosByIds**
+    // The appointments of a batch of due reminders that are still scheduled.
+    @Query(APPOINTMENT_DTO + "WHERE a.id IN :ids AND a.status = 0")
+    List<AppointmentDTO> findScheduledDtosByIds(@Param("ids") Collection<Long> ids);
+
     // **updateStatus**
-    // Updates status for a specific appointment ID.
+    // Updates status for a specific appointment ID. Returns the number of rows updated (0 if there is no
+    // such appointment in the hot table).
     @Modifying
     @Transactional
     @Query("UPDATE Appointment a SET a.status = :status WHERE a.id = :id")
-    void updateStatus(@Param("status") int status, @Param("id") long id);
+    int updateStatus(@Param("status") int status, @Param("id") long id);
 }
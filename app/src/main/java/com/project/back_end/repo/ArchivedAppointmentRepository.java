@@ -0,0 +1,111 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.ArchivedAppointment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ArchivedAppointmentRepository extends JpaRepository<ArchivedAppointment, Long> {
+
+    // **copyFromAppointments**
+    // Copies the given hot appointments into the archive in one INSERT ... SELECT.
+    @Modifying
+    @Query("INSERT INTO ArchivedAppointment (id, doctorId, patientId, appointmentTime, status, archivedAt) " +
+           "SELECT a.id, a.doctor.id, a.patient.id, a.appointmentTime, a.status, :now " +
+           "FROM Appointment a WHERE a.id IN :ids")
+    int copyFromAppointments(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // **findDoctorDay**
+    // (archived appointment, doctor, patient) rows of one doctor in a time range, for the doctor's day view.
+    @Query("SELECT a, d, p FROM ArchivedAppointment a " +
+           "JOIN Doctor d ON d.id = a.doctorId JOIN Patient p ON p.id = a.patientId " +
+           "WHERE a.doctorId = :doctorId AND a.appointmentTime BETWEEN :start AND :end " +
+           "AND (:patientName IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :patientName, '%')))")
+    List<Object[]> findDoctorDay(@Param("doctorId") Long doctorId,
+                                 @Param("patientName") String patientName,
+                                 @Param("start") LocalDateTime start,
+                                 @Param("end") LocalDateTime end);
+
+    // **streamDoctorSchedule**
+    // Same rows as AppointmentRepository.streamDoctorSchedule, from the archive.
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT a.id, a.appointmentTime, a.status, p.name, p.email, p.phone " +
+           "FROM ArchivedAppointment a JOIN Patient p ON p.id = a.patientId " +
+           "WHERE a.doctorId = :doctorId AND a.appointmentTime >= :start AND a.appointmentTime < :end " +
+           "ORDER BY a.appointmentTime")
+    Stream<Object[]> streamDoctorSchedule(@Param("doctorId") Long doctorId,
+                                          @Param("start") LocalDateTime start,
+                                          @Param("end") LocalDateTime end);
+
+    // DTO projections for the patient history views; same shape as AppointmentRepository's
+
+    String ARCHIVED_DTO = "SELECT new com.project.back_end.DTO.AppointmentDTO(" +
+            "a.id, d.id, d.name, p.id, p.name, p.email, p.phone, p.address, a.appointmentTime, a.status) " +
+            "FROM ArchivedAppointment a JOIN Doctor d ON d.id = a.doctorId JOIN Patient p ON p.id = a.patientId ";
+
+    // **findDtosByPatientId**
+    @Query(ARCHIVED_DTO + "WHERE a.patientId = :patientId")
+    List<AppointmentDTO> findDtosByPatientId(@Param("patientId") Long patientId);
+
+    // **findDtosByPatientIdAndStatus**
+    @Query(ARCHIVED_DTO + "WHERE a.patientId = :patientId AND a.status = :status ORDER BY a.appointmentTime")
+    List<AppointmentDTO> findDtosByPatientIdAndStatus(@Param("patientId") Long patientId, @Param("status") int status);
+
+    // **filterDtosByDoctorNameAndPatientId**
+    @Query(ARCHIVED_DTO + "WHERE a.patientId = :patientId AND LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%'))")
+    List<AppointmentDTO> filterDtosByDoctorNameAndPatientId(@Param("doctorName") String doctorName,
+                                                            @Param("patientId") Long patientId);
+
+    // **filterDtosByDoctorNameAndPatientIdAndStatus**
+    @Query(ARCHIVED_DTO + "WHERE a.patientId = :patientId AND a.status = :status " +
+           "AND LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%'))")
+    List<AppointmentDTO> filterDtosByDoctorNameAndPatientIdAndStatus(@Param("doctorName") String doctorName,
+                                                                     @Param("patientId") Long patientId,
+                                                                     @Param("status") int status);
+
+    // **updateStatus**
+    // Status change for an appointment that has already been archived. Returns the number of rows updated.
+    @Modifying
+    @Query("UPDATE ArchivedAppointment a SET a.status = :status WHERE a.id = :id")
+    int updateStatus(@Param("status") int status, @Param("id") long id);
+
+    // **countByDoctorId**
+    long countByDoctorId(Long doctorId);
+
+    // **findPatientIdById**
+    // The patient of an archived appointment, or null if there is no such archived appointment.
+    @Query("SELECT a.patientId FROM ArchivedAppointment a WHERE a.id = :id")
+    Long findPatientIdById(@Param("id") Long id);
+
+    // **existsByDoctorIdAndPatientIdAndStatusNot**
+    boolean existsByDoctorIdAndPatientIdAndStatusNot(Long doctorId, Long patientId, int status);
+
+    // **findIdsByDoctorId**
+    // The next chunk of a doctor's archived appointment ids, for DoctorDeletionJob, in idx_archive_doctor_time order.
+    @Query("SELECT a.id FROM ArchivedAppointment a WHERE a.doctorId = :doctorId ORDER BY a.appointmentTime")
+    List<Long> findIdsByDoctorId(@Param("doctorId") Long doctorId, Limit limit);
+
+    // **deleteAllByDoctorId**
+    @Modifying
+    @Query("DELETE FROM ArchivedAppointment a WHERE a.doctorId = :doctorId")
+    int deleteAllByDoctorId(@Param("doctorId") Long doctorId);
+
+    // **deleteAllByIdIn**
+    @Modifying
+    @Query("DELETE FROM ArchivedAppointment a WHERE a.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -1,18 +1,28 @@
 package com.project.back_end.repo;
 
 import com.project.back_end.models.Doctor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+public interface DoctorRepository extends JpaRepository<Doctor, Long>, JpaSpecificationExecutor<Doctor> {
 
     // 1. Extend JpaRepository
     // Inherits basic CRUD functionality (save, delete, update, find, etc.).
+    // JpaSpecificationExecutor runs the dynamic doctor search built by DoctorSpecifications.
 
     // 2. Custom Query Methods
 
@@ -20,6 +30,11 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     // Retrieves a Doctor by their email.
     Doctor findByEmail(String email);
 
+    // **findExistingEmails**
+    // Which of the given emails are taken; one set-based lookup per bulk import chunk.
+    @Query("SELECT d.email FROM Doctor d WHERE d.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     // **findByNameLike**
     // Retrieves a list of Doctors whose name contains the search string.
     // Using @Query to handle the CONCAT pattern matching as described.
@@ -33,8 +48,58 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     @Query("SELECT d FROM Doctor d WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :name, '%')) AND LOWER(d.specialty) = LOWER(:specialty)")
     List<Doctor> findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(@Param("name") String name, @Param("specialty") String specialty);
 
-    // **findBySpecialtyIgnoreCase**
-    // Retrieves doctors with a specific specialty, ignoring case.
-    List<Doctor> findBySpecialtyIgnoreCase(String specialty);
+    // **findIdsBySpecialty**
+    // Ids of the doctors with a specialty, lowest first, at most `limit`. Plain equality, like
+    // DoctorSpecifications.specialtyIs: the column's case-insensitive collation ignores case, and
+    // idx_doctor_specialty stays usable (UPPER()/LOWER() on the column would force a full scan).
+    @Query("SELECT d.id FROM Doctor d WHERE d.retired = false AND d.specialty = :specialty ORDER BY d.id")
+    List<Long> findIdsBySpecialty(@Param("specialty") String specialty, Limit limit);
+
+    // **findAllWithAvailableTimes**
+    // Loads every doctor together with their time slots in a single statement.
+    // Retired doctors (deletion in progress) are left out here and in the listings below.
+    @Query("SELECT DISTINCT d FROM Doctor d LEFT JOIN FETCH d.availableTimes WHERE d.retired = false")
+    List<Doctor> findAllWithAvailableTimes();
+
+    // Loads several doctors together with their time slots in a single statement.
+    @Query("SELECT DISTINCT d FROM Doctor d LEFT JOIN FETCH d.availableTimes WHERE d.id IN :ids AND d.retired = false")
+    List<Doctor> findAllWithAvailableTimes(@Param("ids") Collection<Long> ids);
+
+    // **findIdsAfter**
+    // Keyset page of doctor ids in id order: an index range scan, however deep the client pages.
+    @Query("SELECT d.id FROM Doctor d WHERE d.retired = false AND d.id > :afterId ORDER BY d.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Limit limit);
+
+    // **findIdsAfterName**
+    // Keyset page of doctor ids in (name, id) order, resuming after the given name and id.
+    // The redundant d.name >= :name gives idx_doctor_name_id a start key; the OR alone reads the index from the top.
+    @Query("SELECT d.id FROM Doctor d WHERE d.retired = false AND d.name >= :name " +
+           "AND (d.name > :name OR d.id > :afterId) ORDER BY d.name, d.id")
+    List<Long> findIdsAfterName(@Param("name") String name, @Param("afterId") long afterId, Limit limit);
+
+    // **streamAllWithAvailableTimes**
+    // Every doctor with their time slots, read row by row from a server-side cursor.
+    // Must be consumed inside a transaction and closed.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT d FROM Doctor d LEFT JOIN FETCH d.availableTimes WHERE d.retired = false ORDER BY d.id")
+    Stream<Doctor> streamAllWithAvailableTimes();
+
+    // **findRetiredIds**
+    // Doctors whose deletion was started but not finished, e.g. because the application was stopped.
+    @Query("SELECT d.id FROM Doctor d WHERE d.retired = true")
+    List<Long> findRetiredIds();
+
+    // **retire**
+    // Hides a doctor until its background deletion removes the row.
+    @Modifying
+    @Query("UPDATE Doctor d SET d.retired = true WHERE d.id = :id")
+    void retire(@Param("id") Long id);
+
+    // **updatePassword**
+    // Replaces the stored password hash, e.g. when it is rehashed at login with a new cost.
+    @Modifying
+    @Transactional
+    @Query("UPDATE Doctor d SET d.password = :password WHERE d.id = :id")
+    void updatePassword(@Param("id") Long id, @Param("password") String password);
 
-}
\ No newline at end of file
+}
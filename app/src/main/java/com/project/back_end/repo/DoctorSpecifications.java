@@ -0,0 +1,102 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.ScheduleRule;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalTime;
+import java.util.Locale;
+
+// Composable predicates for the doctor search. Each criterion is applied in SQL only when it is set,
+// so one query covers every combination of name, specialty and time of day.
+public final class DoctorSpecifications {
+
+    private static final int NOON_MINUTE = 12 * 60;
+
+    private DoctorSpecifications() {}
+
+    // All criteria combined; null criteria are left out
+    public static Specification<Doctor> matching(String name, String specialty, String amOrPm) {
+        Specification<Doctor> spec = Specification.where(notRetired());
+        if (name != null) {
+            spec = spec.and(nameContains(name));
+        }
+        if (specialty != null) {
+            spec = spec.and(specialtyIs(specialty));
+        }
+        if (amOrPm != null) {
+            spec = spec.and(offersSlotsIn(amOrPm));
+        }
+        return spec;
+    }
+
+    // Leaves out doctors whose deletion is still in progress
+    public static Specification<Doctor> notRetired() {
+        return (root, query, cb) -> cb.isFalse(root.get("retired"));
+    }
+
+    // Case-insensitive substring match; % and _ typed by the user are matched literally
+    public static Specification<Doctor> nameContains(String name) {
+        String pattern = "%" + name.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("name")), pattern, '\\');
+    }
+
+    // Plain equality, like DoctorRepository.findIdsBySpecialty: the column's case-insensitive collation
+    // ignores case, and idx_doctor_specialty stays usable (LOWER() on the column would force a full scan)
+    public static Specification<Doctor> specialtyIs(String specialty) {
+        String value = specialty.trim();
+        return (root, query, cb) -> cb.equal(root.get("specialty"), value);
+    }
+
+    // "AM": a slot starting before noon, "PM": a slot starting from noon on - the rule WeeklySchedule.hasSlotsIn
+    // applies for the in-memory directory, so both give the same results. Like the directory it looks at the
+    // weekly template only; date overrides do not change it. Doctors with weekly rules are judged by the slots
+    // their valid rules cut (a rule's last slot starts at end - (end - start) % slotMinutes - slotMinutes), the
+    // others by the start of their "HH:mm-HH:mm" availableTimes; like WeeklySchedule, only a two-digit hour
+    // counts, so an unparseable "9:00-10:00" is in neither half. Any other value matches nobody.
+    public static Specification<Doctor> offersSlotsIn(String amOrPm) {
+        boolean morning = "AM".equalsIgnoreCase(amOrPm);
+        boolean afternoon = "PM".equalsIgnoreCase(amOrPm);
+        return (root, query, cb) -> {
+            if (!morning && !afternoon) {
+                return cb.disjunction();
+            }
+
+            Subquery<Long> anyRule = query.subquery(Long.class);
+            Root<ScheduleRule> rule = anyRule.from(ScheduleRule.class);
+            anyRule.select(rule.get("id")).where(cb.equal(rule.get("doctorId"), root.get("id")));
+
+            Subquery<Long> ruleInHalf = query.subquery(Long.class);
+            Root<ScheduleRule> halfRule = ruleInHalf.from(ScheduleRule.class);
+            Expression<Integer> start = minuteOf(cb, halfRule.get("startTime"));
+            Expression<Integer> end = minuteOf(cb, halfRule.get("endTime"));
+            Expression<Integer> slot = halfRule.get("slotMinutes");
+            ruleInHalf.select(halfRule.get("id")).where(
+                    cb.equal(halfRule.get("doctorId"), root.get("id")),
+                    cb.between(slot, ScheduleRule.MIN_SLOT_MINUTES, ScheduleRule.MAX_SLOT_MINUTES), // as WeeklySchedule.isValid
+                    cb.ge(cb.diff(end, start), slot), // cuts at least one slot
+                    morning
+                            ? cb.lt(start, NOON_MINUTE)
+                            : cb.ge(cb.diff(cb.diff(end, cb.mod(cb.diff(end, start), slot)), slot), NOON_MINUTE));
+
+            Subquery<Long> legacyInHalf = query.subquery(Long.class);
+            Root<Doctor> doctor = legacyInHalf.correlate(root);
+            Expression<String> time = cb.trim(doctor.<Doctor, String>join("availableTimes"));
+            Expression<String> hour = cb.substring(time, 1, 2);
+            legacyInHalf.select(doctor.get("id")).where(
+                    cb.equal(cb.substring(time, 3, 1), ":"),
+                    morning ? cb.between(hour, "00", "11") : cb.between(hour, "12", "23"));
+
+            return cb.or(cb.exists(ruleInHalf), cb.and(cb.not(cb.exists(anyRule)), cb.exists(legacyInHalf)));
+        };
+    }
+
+    private static Expression<Integer> minuteOf(CriteriaBuilder cb, Expression<LocalTime> time) {
+        return cb.sum(cb.prod(cb.function("hour", Integer.class, time), 60), cb.function("minute", Integer.class, time));
+    }
+}
@@ -2,7 +2,14 @@ package com.project.back_end.repo;
 
 import com.project.back_end.models.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
@@ -11,8 +18,25 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     // Retrieves a Patient by their email address.
     Patient findByEmail(String email);
 
-    // **findByEmailOrPhone**
-    // Retrieves a Patient by either their email or phone number.
-    Patient findByEmailOrPhone(String email, String phone);
+    // **existsByEmail** / **existsByPhone**
+    // Duplicate checks at sign-up, one index lookup each (an email OR phone condition cannot use either index).
+    boolean existsByEmail(String email);
+
+    boolean existsByPhone(String phone);
+
+    // **findExistingEmails** / **findExistingPhones**
+    // The same checks for a whole bulk import chunk, one statement each.
+    @Query("SELECT p.email FROM Patient p WHERE p.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT p.phone FROM Patient p WHERE p.phone IN :phones")
+    List<String> findExistingPhones(@Param("phones") Collection<String> phones);
+
+    // **updatePassword**
+    // Replaces the stored password hash, e.g. when it is rehashed at login with a new cost.
+    @Modifying
+    @Transactional
+    @Query("UPDATE Patient p SET p.password = :password WHERE p.id = :id")
+    void updatePassword(@Param("id") Long id, @Param("password") String password);
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.PrescriptionOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PrescriptionOutboxRepository extends JpaRepository<PrescriptionOutbox, Long> {
+
+    // **findDue**
+    // The next batch of rows due for relaying, oldest attempt first, locked for this transaction.
+    // Rows locked by another instance's relay are skipped (SKIP LOCKED) rather than waited for.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM PrescriptionOutbox o WHERE o.nextAttemptAt <= :now ORDER BY o.nextAttemptAt")
+    List<PrescriptionOutbox> findDue(@Param("now") LocalDateTime now, Limit limit);
+
+    // **findAppointmentIdsIn**
+    // Which of the given appointments have a submitted prescription, relayed or not.
+    @Query("SELECT o.appointmentId FROM PrescriptionOutbox o WHERE o.appointmentId IN :appointmentIds")
+    List<Long> findAppointmentIdsIn(@Param("appointmentIds") Collection<Long> appointmentIds);
+
+    // **markRelayed**
+    // Closes rows whose prescription is in Mongo; the payload is no longer needed.
+    @Modifying
+    @Query("UPDATE PrescriptionOutbox o SET o.nextAttemptAt = NULL, o.payload = NULL, o.relayedAt = :now " +
+           "WHERE o.id IN :ids")
+    int markRelayed(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
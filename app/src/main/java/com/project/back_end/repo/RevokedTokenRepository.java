@@ -0,0 +1,40 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    // **existsByRevocationKey**
+    // Exact check used to confirm a Bloom filter hit.
+    boolean existsByRevocationKey(String revocationKey);
+
+    // **insertIgnore**
+    // Adds a revocation, or does nothing if the key is already revoked. A single statement, so two
+    // instances revoking the same key at once cannot fail on the unique revocation_key.
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO revoked_token (revocation_key, expires_at) VALUES (:key, :expiresAt)",
+           nativeQuery = true)
+    int insertIgnore(@Param("key") String revocationKey, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // **findActiveKeys**
+    // Loads only the keys of revocations that can still match a live token.
+    @Query("SELECT r.revocationKey FROM RevokedToken r WHERE r.expiresAt > :now")
+    List<String> findActiveKeys(@Param("now") LocalDateTime now);
+
+    // **deleteExpired**
+    // Bulk-deletes revocations whose tokens have all expired.
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,33 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.ScheduleOverride;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ScheduleOverrideRepository extends JpaRepository<ScheduleOverride, Long> {
+
+    // **findByDoctorIdAndDateGreaterThanEqualOrderByDate**
+    // Upcoming date exceptions of one doctor, for display and editing.
+    List<ScheduleOverride> findByDoctorIdAndDateGreaterThanEqualOrderByDate(Long doctorId, LocalDate from);
+
+    // **findByDoctorIdsFrom**
+    // Date exceptions of several doctors from a date on, in one statement; used when compiling schedules.
+    @Query("SELECT o FROM ScheduleOverride o WHERE o.doctorId IN :doctorIds AND o.date >= :from")
+    List<ScheduleOverride> findByDoctorIdsFrom(@Param("doctorIds") Collection<Long> doctorIds,
+                                               @Param("from") LocalDate from);
+
+    // **deleteByDoctorId**
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ScheduleOverride o WHERE o.doctorId = :doctorId")
+    void deleteByDoctorId(@Param("doctorId") Long doctorId);
+}
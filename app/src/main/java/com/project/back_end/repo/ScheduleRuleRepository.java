@@ -0,0 +1,31 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.ScheduleRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ScheduleRuleRepository extends JpaRepository<ScheduleRule, Long> {
+
+    // **findByDoctorIdOrderByDayOfWeekAscStartTimeAsc**
+    // Weekly rules of one doctor, for display and editing.
+    List<ScheduleRule> findByDoctorIdOrderByDayOfWeekAscStartTimeAsc(Long doctorId);
+
+    // **findByDoctorIds**
+    // Weekly rules of several doctors in one statement; used when compiling schedules.
+    @Query("SELECT r FROM ScheduleRule r WHERE r.doctorId IN :doctorIds")
+    List<ScheduleRule> findByDoctorIds(@Param("doctorIds") Collection<Long> doctorIds);
+
+    // **deleteByDoctorId**
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ScheduleRule r WHERE r.doctorId = :doctorId")
+    void deleteByDoctorId(@Param("doctorId") Long doctorId);
+}
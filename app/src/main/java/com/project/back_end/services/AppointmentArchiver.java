@@ -0,0 +1,85 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Hot/cold split of appointments. The `appointment` table keeps the last hot-days days and everything
+// upcoming; older appointments, whatever their status, are moved to `appointment_archive` in small batches,
+// each batch one short transaction (INSERT ... SELECT of up to batch-size ids, then DELETE of the same ids). AppointmentService.changeStatus falls back to the archive,
+// so a late status change (such as a prescription for an old appointment) still lands.
+// Services ask isArchived() to decide whether a lookup needs the archive at all.
+@Component
+public class AppointmentArchiver {
+
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int hotDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    @Autowired
+    public AppointmentArchiver(AppointmentRepository appointmentRepository,
+                               ArchivedAppointmentRepository archivedAppointmentRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${appointment.archive.hot-days:30}") int hotDays,
+                               @Value("${appointment.archive.batch-size:500}") int batchSize,
+                               @Value("${appointment.archive.max-batches-per-run:200}") int maxBatchesPerRun) {
+        this.appointmentRepository = appointmentRepository;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hotDays = hotDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    // Appointments starting before this instant belong in the archive
+    public LocalDateTime cutoff() {
+        return LocalDate.now().minusDays(hotDays).atStartOfDay();
+    }
+
+    // True if appointments starting at `time` may already have been archived
+    public boolean isArchived(LocalDateTime time) {
+        return time.isBefore(cutoff());
+    }
+
+    // Moves appointments older than the hot window, at most max-batches-per-run batches per call.
+    // Returns the number of appointments moved.
+    @Scheduled(fixedDelayString = "${appointment.archive.interval-ms:3600000}",
+               initialDelayString = "${appointment.archive.initial-delay-ms:60000}")
+    public int archivePastAppointments() {
+        LocalDateTime cutoff = cutoff();
+        int moved = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer count = transactionTemplate.execute(status -> moveBatch(cutoff));
+            if (count == null || count == 0) {
+                break;
+            }
+            moved += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        return moved;
+    }
+
+    private int moveBatch(LocalDateTime cutoff) {
+        List<Long> ids = appointmentRepository.findIdsBefore(cutoff, Limit.of(batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedAppointmentRepository.copyFromAppointments(ids, LocalDateTime.now());
+        return appointmentRepository.deleteAllByIdIn(ids);
+    }
+}
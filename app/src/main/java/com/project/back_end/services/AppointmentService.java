@@ -1,21 +1,33 @@
 package com.project.back_end.services;
 
+import com.project.back_end.DTO.BookingRequest;
 import com.project.back_end.models.Appointment;
+import com.project.back_end.models.ArchivedAppointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
 import com.project.back_end.repo.DoctorRepository;
 import com.project.back_end.repo.PatientRepository;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 // 1. Add @Service Annotation
@@ -27,6 +39,18 @@ public class AppointmentService {
     private final TokenService tokenService;
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final AppointmentArchiver appointmentArchiver;
+    private final ReminderScheduler reminderScheduler;
+    private final PrescriptionService prescriptionService;
+
+    // Striped per-doctor locks: bookings for the same doctor are serialized within this instance,
+    // bookings for different doctors rarely contend. The unique (doctor_id, appointment_time)
+    // constraint covers bookings made through other instances.
+    private static final int BOOKING_LOCK_STRIPES = 64;
+    private final ReentrantLock[] bookingLocks = new ReentrantLock[BOOKING_LOCK_STRIPES];
 
     // 2. Constructor Injection for Dependencies
     @Autowired
@@ -34,81 +58,160 @@ public class AppointmentService {
                               com.project.back_end.services.Service service,
                               TokenService tokenService,
                               PatientRepository patientRepository,
-                              DoctorRepository doctorRepository) {
+                              DoctorRepository doctorRepository,
+                              AvailabilityIndex availabilityIndex,
+                              PlatformTransactionManager transactionManager,
+                              ArchivedAppointmentRepository archivedAppointmentRepository,
+                              AppointmentArchiver appointmentArchiver,
+                              ReminderScheduler reminderScheduler,
+                              PrescriptionService prescriptionService) {
         this.appointmentRepository = appointmentRepository;
         this.service = service;
         this.tokenService = tokenService;
         this.patientRepository = patientRepository;
         this.doctorRepository = doctorRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.appointmentArchiver = appointmentArchiver;
+        this.reminderScheduler = reminderScheduler;
+        this.prescriptionService = prescriptionService;
+        for (int i = 0; i < BOOKING_LOCK_STRIPES; i++) {
+            bookingLocks[i] = new ReentrantLock();
+        }
+    }
+
+    private ReentrantLock lockFor(Long doctorId) {
+        return bookingLocks[Math.floorMod(Long.hashCode(doctorId), BOOKING_LOCK_STRIPES)];
     }
 
     // 4. Book Appointment Method
-    // Saves the new appointment to the database. Returns 1 for success, 0 for failure.
-    @Transactional // 3. Add @Transactional Annotation
-    public int bookAppointment(Appointment appointment) {
+    // Checks the slot and inserts the appointment in one transaction, under the doctor's lock.
+    // Doctor and patient are referenced by id only (no SELECT), so a booking is a single INSERT
+    // once the slot bitmap is warm.
+    // Returns 1 for success, 0 if the slot is not available, -1 if the doctor does not exist,
+    // and -2 on any other failure.
+    public int bookAppointment(BookingRequest request, Long patientId) {
+        Long doctorId = request.getDoctorId();
+        LocalDateTime time = request.getAppointmentTime();
+        if (doctorId == null || patientId == null || time == null || !time.isAfter(LocalDateTime.now())) {
+            return 0;
+        }
+
+        ReentrantLock lock = lockFor(doctorId);
+        lock.lock();
         try {
-            // Additional logic to check doctor availability could go here
-            appointmentRepository.save(appointment);
-            return 1;
+            Integer result = transactionTemplate.execute(status -> {
+                Boolean isFree = availabilityIndex.isSlotFree(doctorId, time);
+                if (isFree == null) {
+                    return -1;
+                }
+                if (!isFree) {
+                    return 0;
+                }
+                Appointment appointment = new Appointment(
+                        doctorRepository.getReferenceById(doctorId),
+                        patientRepository.getReferenceById(patientId),
+                        time);
+                // Flush inside the transaction so a unique-key clash surfaces here
+                appointmentRepository.saveAndFlush(appointment);
+                AfterCommit.run(() -> reminderScheduler.schedule(appointment.getId(), time));
+                return 1;
+            });
+            if (result != null && result == 1) {
+                // Committed; still holding the lock, so the next booking sees the slot as taken
+                availabilityIndex.markBooked(doctorId, time);
+            }
+            return result != null ? result : -2;
+        } catch (DataIntegrityViolationException e) {
+            // Taken through another instance; rebuild this day from the database on next read
+            availabilityIndex.markFree(doctorId, time);
+            return 0;
         } catch (Exception e) {
             e.printStackTrace();
-            return 0;
+            return -2;
+        } finally {
+            lock.unlock();
         }
     }
 
     // 5. Update Appointment Method
-    // Validates patient ID matches, checks availability, and updates.
-    @Transactional
-    public String updateAppointment(Long id, Appointment updatedDetails, String token) {
-        try {
-            // Validate the patient ID from token matches the appointment owner
-            Long patientId = tokenService.getPatientIdFromToken(token); // Assuming method exists
-            Optional<Appointment> existingApptOpt = appointmentRepository.findById(id);
-
-            if (existingApptOpt.isEmpty()) {
-                return "Appointment not found.";
-            }
-
-            Appointment existingAppt = existingApptOpt.get();
-
-            if (!existingAppt.getPatient().getId().equals(patientId)) {
-                return "Unauthorized: You can only update your own appointments.";
-            }
+    // Moves an appointment to a new time. Like a booking, the new slot is checked and the row written in one
+    // transaction under the doctor's lock, and a unique-key clash means the slot was taken elsewhere.
+    // patientId is the authenticated caller, already resolved from the token.
+    public String updateAppointment(Long id, Appointment updatedDetails, Long patientId) {
+        Long doctorId = id != null ? appointmentRepository.findDoctorIdById(id) : null;
+        if (doctorId == null) {
+            return "Appointment not found.";
+        }
+        LocalDateTime time = updatedDetails.getAppointmentTime();
+        if (time == null || !time.isAfter(LocalDateTime.now())) {
+            return "Doctor is not available at the selected time.";
+        }
 
-            // Check if the doctor is available at the new specified time
-            // (Simplified check: actual logic would query doctor's available times/slots)
-            boolean isDoctorAvailable = true; // Placeholder for actual availability logic
+        ReentrantLock lock = lockFor(doctorId);
+        lock.lock();
+        try {
+            LocalDateTime[] previousTime = new LocalDateTime[1];
+            String result = transactionTemplate.execute(status -> {
+                Optional<Appointment> existingApptOpt = appointmentRepository.findById(id);
+                if (existingApptOpt.isEmpty()) {
+                    return "Appointment not found.";
+                }
+                Appointment existingAppt = existingApptOpt.get();
+                if (!existingAppt.getPatient().getId().equals(patientId)) {
+                    return "Unauthorized: You can only update your own appointments.";
+                }
+                if (time.equals(existingAppt.getAppointmentTime())) {
+                    return "Appointment updated successfully.";
+                }
 
-            if (!isDoctorAvailable) {
-                return "Doctor is not available at the selected time.";
+                // Checked against the doctor's slots and bookings, as for a new booking
+                if (!Boolean.TRUE.equals(availabilityIndex.isSlotFree(doctorId, time))) {
+                    return "Doctor is not available at the selected time.";
+                }
+                previousTime[0] = existingAppt.getAppointmentTime();
+                existingAppt.setAppointmentTime(time);
+                // Flush inside the transaction so a unique-key clash surfaces here
+                appointmentRepository.saveAndFlush(existingAppt);
+                AfterCommit.run(() -> reminderScheduler.schedule(id, time));
+                return "Appointment updated successfully.";
+            });
+            if (previousTime[0] != null) {
+                // Committed; still holding the lock, so the next booking sees the new slot as taken
+                availabilityIndex.markFree(doctorId, previousTime[0]);
+                availabilityIndex.markBooked(doctorId, time);
             }
-
-            // Update details
-            existingAppt.setAppointmentTime(updatedDetails.getAppointmentTime());
-            // Update other fields as necessary
-            
-            appointmentRepository.save(existingAppt);
-            return "Appointment updated successfully.";
-
+            return result != null ? result : "Error updating appointment.";
+        } catch (DataIntegrityViolationException e) {
+            // Taken through another instance; rebuild this day from the database on next read
+            availabilityIndex.markFree(doctorId, time);
+            return "Doctor is not available at the selected time.";
         } catch (Exception e) {
             e.printStackTrace();
             return "Error updating appointment.";
+        } finally {
+            lock.unlock();
         }
     }
 
     // 6. Cancel Appointment Method
     // Cancels (deletes) an appointment after checking patient ownership.
     @Transactional
-    public String cancelAppointment(Long id, String token) {
+    public String cancelAppointment(Long id, Long patientId) {
         try {
-            Long patientId = tokenService.getPatientIdFromToken(token);
             Optional<Appointment> existingApptOpt = appointmentRepository.findById(id);
 
             if (existingApptOpt.isPresent()) {
                 Appointment appt = existingApptOpt.get();
                 // Check for patient ID match
                 if (appt.getPatient().getId().equals(patientId)) {
+                    Long doctorId = appt.getDoctor().getId();
                     appointmentRepository.deleteById(id);
+                    AfterCommit.run(() -> {
+                        availabilityIndex.markFree(doctorId, appt.getAppointmentTime());
+                        reminderScheduler.cancel(id);
+                    });
                     return "Appointment cancelled successfully.";
                 } else {
                     return "Unauthorized action.";
@@ -129,9 +232,10 @@ public class AppointmentService {
         LocalDateTime endOfDay = localDate.atTime(LocalTime.MAX);
 
         List<Appointment> appointments;
+        boolean byName = patientName != null && !patientName.equalsIgnoreCase("null") && !patientName.trim().isEmpty();
 
         // Logic to fetch the list based on filters
-        if (patientName != null && !patientName.equalsIgnoreCase("null") && !patientName.trim().isEmpty()) {
+        if (byName) {
             appointments = appointmentRepository.findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween(
                     doctorId, patientName, startOfDay, endOfDay);
         } else {
@@ -139,6 +243,26 @@ public class AppointmentService {
                     doctorId, startOfDay, endOfDay);
         }
 
+        // Days before the hot window may (also) live in the archive; rebuild those rows as unsaved
+        // appointments so the response has the same shape
+        if (appointmentArchiver.isArchived(startOfDay)) {
+            appointments = new ArrayList<>(appointments);
+            for (Object[] row : archivedAppointmentRepository.findDoctorDay(
+                    doctorId, byName ? patientName : null, startOfDay, endOfDay)) {
+                ArchivedAppointment archived = (ArchivedAppointment) row[0];
+                Appointment appointment = new Appointment((Doctor) row[1], (Patient) row[2], archived.getAppointmentTime());
+                appointment.setId(archived.getId());
+                appointment.setStatus(archived.getStatus());
+                appointments.add(appointment);
+            }
+            appointments.sort(Comparator.comparing(Appointment::getAppointmentTime));
+        }
+        // Every row shares the same doctor instance; load its time slots once, before the session closes
+        if (!appointments.isEmpty()) {
+            Hibernate.initialize(appointments.get(0).getDoctor().getAvailableTimes());
+        }
+        markPrescriptions(appointments);
+
         // Wrap the list in a Map
         Map<String, Object> response = new HashMap<>();
         response.put("appointments", appointments);
@@ -146,10 +270,59 @@ public class AppointmentService {
         return response;
     }
 
+    // Sets hasPrescription on each row of a schedule with one lookup for the whole day. Only completed
+    // appointments can have a prescription (submitting one completes the appointment), so only their ids
+    // are looked up. If the lookup fails the flags stay null and the schedule is served without them.
+    private void markPrescriptions(List<Appointment> appointments) {
+        List<Long> completed = new ArrayList<>();
+        for (Appointment appointment : appointments) {
+            if (appointment.getStatus() == Appointment.STATUS_COMPLETED) {
+                completed.add(appointment.getId());
+            }
+        }
+        Set<Long> prescribed;
+        try {
+            prescribed = prescriptionService.findPrescribedAppointmentIds(completed);
+        } catch (Exception e) {
+            System.err.println("Could not look up prescriptions for the schedule: " + e.getMessage());
+            return;
+        }
+        for (Appointment appointment : appointments) {
+            appointment.setHasPrescription(prescribed.contains(appointment.getId()));
+        }
+    }
+
     // 8. Change Status Method
-    // Updates the status of an appointment.
+    // Updates the status of an appointment, in the archive if it has already been moved there.
+    // Returns the number of appointments updated: 1, or 0 if there is no such appointment.
     @Transactional // Add @Transactional to ensure atomicity
-    public void changeStatus(int status, long id) {
-        appointmentRepository.updateStatus(status, id);
+    public int changeStatus(int status, long id) {
+        int updated = appointmentRepository.updateStatus(status, id);
+        if (updated == 0) {
+            // Archived appointments are in the past, so there is no reminder left to cancel
+            return archivedAppointmentRepository.updateStatus(status, id);
+        }
+        if (status != Appointment.STATUS_SCHEDULED) {
+            AfterCommit.run(() -> reminderScheduler.cancel(id));
+        }
+        return updated;
+    }
+
+    // findPatientId Method
+    // The patient of an appointment, looked up in the archive if it has already been moved there;
+    // null if there is no such appointment.
+    @Transactional(readOnly = true)
+    public Long findPatientId(Long appointmentId) {
+        Long patientId = appointmentRepository.findPatientIdById(appointmentId);
+        return patientId != null ? patientId : archivedAppointmentRepository.findPatientIdById(appointmentId);
+    }
+
+    // 9. isPatientOf Method
+    // Whether the doctor has a (not cancelled) appointment with the patient: upcoming, past or archived.
+    @Transactional(readOnly = true)
+    public boolean isPatientOf(Long doctorId, Long patientId) {
+        return appointmentRepository.existsByDoctorIdAndPatientIdAndStatusNot(doctorId, patientId, Appointment.STATUS_CANCELLED)
+                || archivedAppointmentRepository.existsByDoctorIdAndPatientIdAndStatusNot(doctorId, patientId,
+                        Appointment.STATUS_CANCELLED);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,392 @@
+package com.project.back_end.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.ScheduleOverride;
+import com.project.back_end.models.ScheduleRule;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.ScheduleOverrideRepository;
+import com.project.back_end.repo.ScheduleRuleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-memory availability engine. Each doctor's schedule is compiled once into a WeeklySchedule
+// (minute-of-day arrays per weekday plus resolved date exceptions), and each (doctor, day) keeps a
+// BitSet of booked slots. Reads and booking checks are O(slots) with no SQL; bitsets are updated
+// incrementally on book/update/cancel and rebuilt lazily from MySQL on a miss. Only this instance's changes
+// reach a bitmap, so each one is dropped booked-ttl-ms after it was loaded, however often it is read or
+// updated since: a slot freed elsewhere (another instance, a doctor deletion) is seen within that time.
+// A bitmap loaded by a multi-doctor matrix query is put in place under the same doctor lock that
+// markBooked takes, so a booking committed while that query runs is applied to the loaded bitmap
+// instead of being overwritten by it.
+@Component
+public class AvailabilityIndex {
+
+    // Cached for ids that have no doctor; compiled schedules are never this instance
+    private static final WeeklySchedule MISSING = WeeklySchedule.EMPTY;
+
+    private final DoctorRepository doctorRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ScheduleRuleRepository scheduleRuleRepository;
+    private final ScheduleOverrideRepository scheduleOverrideRepository;
+
+    private final Cache<Long, WeeklySchedule> schedules;
+    private final Cache<DayKey, BitSet> bookedSlots;
+    private final ReentrantLock[] doctorLocks = new ReentrantLock[64]; // striped by doctor id
+
+    @Autowired
+    public AvailabilityIndex(DoctorRepository doctorRepository,
+                             AppointmentRepository appointmentRepository,
+                             ScheduleRuleRepository scheduleRuleRepository,
+                             ScheduleOverrideRepository scheduleOverrideRepository,
+                             @Value("${availability.index.max-doctors:10000}") long maxDoctors,
+                             @Value("${availability.index.max-days:100000}") long maxDays,
+                             @Value("${availability.index.booked-ttl-ms:60000}") long bookedTtlMillis) {
+        this.doctorRepository = doctorRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.scheduleRuleRepository = scheduleRuleRepository;
+        this.scheduleOverrideRepository = scheduleOverrideRepository;
+        this.schedules = Caffeine.newBuilder()
+                .maximumSize(maxDoctors)
+                .recordStats()
+                .build();
+        this.bookedSlots = Caffeine.newBuilder()
+                .maximumSize(maxDays)
+                .expireAfter(new LoadedExpiry(Duration.ofMillis(bookedTtlMillis).toNanos()))
+                .recordStats()
+                .build();
+        for (int i = 0; i < doctorLocks.length; i++) {
+            doctorLocks[i] = new ReentrantLock();
+        }
+    }
+
+    // Free slots of a doctor on a date, ordered by start time. Empty if the doctor does not exist.
+    public List<String> freeSlots(Long doctorId, LocalDate date) {
+        WeeklySchedule schedule = scheduleOf(doctorId);
+        if (schedule == null) {
+            return new ArrayList<>();
+        }
+        WeeklySchedule.Day day = schedule.day(date);
+        return free(day, bookedOn(doctorId, date, day));
+    }
+
+    // Free slots of several doctors over a date range (inclusive): doctorId -> date -> free slots.
+    // Doctors that do not exist are left out. Doctors missing from the cache are compiled from one query
+    // per table, and every (doctor, day) bitmap that is not cached is filled from one range query over
+    // all of them, so a warm matrix costs no statement at all.
+    public Map<Long, Map<LocalDate, List<String>>> freeSlots(Collection<Long> doctorIds, LocalDate from, LocalDate to) {
+        Map<Long, WeeklySchedule> compiled = schedulesOf(doctorIds);
+        List<DayKey> keys = new ArrayList<>();
+        for (Long doctorId : compiled.keySet()) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                keys.add(new DayKey(doctorId, date));
+            }
+        }
+        Map<DayKey, BitSet> booked = new HashMap<>(bookedSlots.getAllPresent(keys));
+        Set<DayKey> missing = new LinkedHashSet<>();
+        for (DayKey key : keys) {
+            if (!booked.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            booked.putAll(loadBookedLocked(missing, compiled));
+        }
+
+        Map<Long, Map<LocalDate, List<String>>> matrix = new LinkedHashMap<>();
+        for (DayKey key : keys) {
+            WeeklySchedule.Day day = compiled.get(key.doctorId()).day(key.date());
+            matrix.computeIfAbsent(key.doctorId(), id -> new LinkedHashMap<>())
+                    .put(key.date(), free(day, booked.get(key)));
+        }
+        return matrix;
+    }
+
+    // True if the time is the start of one of the doctor's slots on that date and that slot is free,
+    // false if not, null if the doctor does not exist.
+    public Boolean isSlotFree(Long doctorId, LocalDateTime time) {
+        WeeklySchedule schedule = scheduleOf(doctorId);
+        if (schedule == null) {
+            return null;
+        }
+        WeeklySchedule.Day day = schedule.day(time.toLocalDate());
+        int slot = day.slotStartingAt(minuteOfDay(time));
+        return slot >= 0 && !bookedOn(doctorId, time.toLocalDate(), day).get(slot);
+    }
+
+    // Incremental updates, to be called once the change is committed.
+    // Days that are not cached are left alone; they are rebuilt from the database when next read.
+    public void markBooked(Long doctorId, LocalDateTime time) {
+        update(doctorId, time, true);
+    }
+
+    // Another appointment may still cover the same slot, so freeing rebuilds the day on next read.
+    public void markFree(Long doctorId, LocalDateTime time) {
+        if (doctorId != null && time != null) {
+            ReentrantLock lock = lockOf(doctorId);
+            lock.lock();
+            try {
+                bookedSlots.invalidate(new DayKey(doctorId, time.toLocalDate()));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Drops everything known about a doctor, e.g. after the schedule was edited or the doctor deleted.
+    public void invalidateDoctor(Long doctorId) {
+        schedules.invalidate(doctorId);
+        bookedSlots.asMap().keySet().removeIf(key -> key.doctorId() == doctorId);
+    }
+
+    // Same for several doctors, with one pass over the cached days
+    public void invalidateDoctors(Collection<Long> doctorIds) {
+        if (doctorIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>(doctorIds);
+        schedules.invalidateAll(ids);
+        bookedSlots.asMap().keySet().removeIf(key -> ids.contains(key.doctorId()));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("doctors", statsOf(schedules.stats(), schedules.estimatedSize()));
+        result.put("days", statsOf(bookedSlots.stats(), bookedSlots.estimatedSize()));
+        return result;
+    }
+
+    // ----------------------------------------------------------------------
+    // Internals
+    // ----------------------------------------------------------------------
+
+    private WeeklySchedule scheduleOf(Long doctorId) {
+        if (doctorId == null) {
+            return null;
+        }
+        WeeklySchedule schedule = schedules.get(doctorId, id ->
+                compileAll(List.of(id), doctorRepository.findAllWithAvailableTimes(List.of(id))).get(id));
+        return schedule == MISSING ? null : schedule;
+    }
+
+    // Batch form of scheduleOf: one doctor query for all doctors not yet cached, in the caller's order
+    private Map<Long, WeeklySchedule> schedulesOf(Collection<Long> doctorIds) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Long id : doctorIds) {
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return present(ids, schedules.getAll(ids, missing -> compileAll(missing,
+                doctorRepository.findAllWithAvailableTimes(List.copyOf(missing)))));
+    }
+
+    // Compiles the given doctors with their weekly rules and upcoming date exceptions, read for all
+    // of them at once. Requested ids without a doctor map to MISSING.
+    private Map<Long, WeeklySchedule> compileAll(Collection<? extends Long> requested, List<Doctor> doctors) {
+        Map<Long, WeeklySchedule> result = new HashMap<>();
+        if (!doctors.isEmpty()) {
+            List<Long> ids = doctors.stream().map(Doctor::getId).toList();
+            Map<Long, List<ScheduleRule>> rules = new HashMap<>();
+            for (ScheduleRule rule : scheduleRuleRepository.findByDoctorIds(ids)) {
+                rules.computeIfAbsent(rule.getDoctorId(), id -> new ArrayList<>()).add(rule);
+            }
+            Map<Long, List<ScheduleOverride>> overrides = new HashMap<>();
+            for (ScheduleOverride override : scheduleOverrideRepository.findByDoctorIdsFrom(ids, LocalDate.now())) {
+                overrides.computeIfAbsent(override.getDoctorId(), id -> new ArrayList<>()).add(override);
+            }
+            for (Doctor doctor : doctors) {
+                result.put(doctor.getId(), WeeklySchedule.compile(doctor.getAvailableTimes(),
+                        rules.get(doctor.getId()), overrides.get(doctor.getId())));
+            }
+        }
+        for (Long id : requested) {
+            result.putIfAbsent(id, MISSING);
+        }
+        return result;
+    }
+
+    private static Map<Long, WeeklySchedule> present(Collection<Long> ids, Map<Long, WeeklySchedule> loaded) {
+        Map<Long, WeeklySchedule> result = new LinkedHashMap<>();
+        for (Long id : ids) {
+            WeeklySchedule schedule = loaded.get(id);
+            if (schedule != null && schedule != MISSING) {
+                result.put(id, schedule);
+            }
+        }
+        return result;
+    }
+
+    // Loads the missing bitmaps with loadBooked while holding the locks of all their doctors (taken in
+    // stripe order, so two matrices never deadlock), and caches them before letting bookings through.
+    // A bitmap another reader cached meanwhile is kept: it is at least as recent.
+    private Map<DayKey, BitSet> loadBookedLocked(Set<DayKey> missing, Map<Long, WeeklySchedule> compiled) {
+        BitSet stripes = new BitSet(doctorLocks.length);
+        for (DayKey key : missing) {
+            stripes.set(stripeOf(key.doctorId()));
+        }
+        List<ReentrantLock> held = new ArrayList<>();
+        try {
+            for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+                doctorLocks[i].lock();
+                held.add(doctorLocks[i]);
+            }
+            Map<DayKey, BitSet> result = new HashMap<>();
+            loadBooked(missing, compiled).forEach((key, bits) -> {
+                BitSet cached = bookedSlots.asMap().putIfAbsent(key, bits);
+                result.put(key, cached != null ? cached : bits);
+            });
+            return result;
+        } finally {
+            for (ReentrantLock lock : held) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ReentrantLock lockOf(long doctorId) {
+        return doctorLocks[stripeOf(doctorId)];
+    }
+
+    private int stripeOf(long doctorId) {
+        return (int) Math.floorMod(doctorId, (long) doctorLocks.length);
+    }
+
+    // Fills the given (doctor, day) bitmaps from a single query spanning all their doctors and days
+    private Map<DayKey, BitSet> loadBooked(Set<? extends DayKey> missing, Map<Long, WeeklySchedule> compiled) {
+        Map<DayKey, BitSet> result = new HashMap<>();
+        Set<Long> doctorIds = new HashSet<>();
+        LocalDate first = null;
+        LocalDate last = null;
+        for (DayKey key : missing) {
+            result.put(key, new BitSet(compiled.get(key.doctorId()).day(key.date()).size()));
+            doctorIds.add(key.doctorId());
+            first = (first == null || key.date().isBefore(first)) ? key.date() : first;
+            last = (last == null || key.date().isAfter(last)) ? key.date() : last;
+        }
+        if (doctorIds.isEmpty()) {
+            return result;
+        }
+        List<Object[]> rows = appointmentRepository.findBookedTimesByDoctorIds(
+                doctorIds, first.atStartOfDay(), last.atTime(LocalTime.MAX));
+        for (Object[] row : rows) {
+            Long doctorId = (Long) row[0];
+            LocalDateTime time = (LocalDateTime) row[1];
+            BitSet bits = result.get(new DayKey(doctorId, time.toLocalDate()));
+            if (bits != null) {
+                compiled.get(doctorId).day(time.toLocalDate()).markCovering(bits, minuteOfDay(time), true);
+            }
+        }
+        return result;
+    }
+
+    private BitSet bookedOn(Long doctorId, LocalDate date, WeeklySchedule.Day day) {
+        return bookedSlots.get(new DayKey(doctorId, date), key -> {
+            BitSet booked = new BitSet(day.size());
+            List<LocalDateTime> times = appointmentRepository.findBookedTimes(
+                    doctorId, date.atStartOfDay(), date.atTime(LocalTime.MAX));
+            for (LocalDateTime time : times) {
+                day.markCovering(booked, minuteOfDay(time), true);
+            }
+            return booked;
+        });
+    }
+
+    private void update(Long doctorId, LocalDateTime time, boolean booked) {
+        if (doctorId == null || time == null) {
+            return;
+        }
+        ReentrantLock lock = lockOf(doctorId);
+        lock.lock();
+        try {
+            updateLocked(doctorId, time, booked);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateLocked(Long doctorId, LocalDateTime time, boolean booked) {
+        WeeklySchedule schedule = schedules.getIfPresent(doctorId);
+        if (schedule == null || schedule == MISSING) {
+            bookedSlots.invalidate(new DayKey(doctorId, time.toLocalDate()));
+            return;
+        }
+        WeeklySchedule.Day day = schedule.day(time.toLocalDate());
+        // Copy-on-write so concurrent readers never see a half-updated bitset
+        bookedSlots.asMap().computeIfPresent(new DayKey(doctorId, time.toLocalDate()), (key, current) -> {
+            BitSet next = (BitSet) current.clone();
+            day.markCovering(next, minuteOfDay(time), booked);
+            return next;
+        });
+    }
+
+    private static List<String> free(WeeklySchedule.Day day, BitSet booked) {
+        List<String> free = new ArrayList<>(day.size());
+        for (int i = 0; i < day.size(); i++) {
+            if (!booked.get(i)) {
+                free.add(day.label(i));
+            }
+        }
+        return free;
+    }
+
+    private static int minuteOfDay(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static Map<String, Object> statsOf(CacheStats stats, long size) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", size);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        return result;
+    }
+
+    record DayKey(long doctorId, LocalDate date) {}
+
+    // Expires a bitmap a fixed time after it was loaded; local updates and reads do not extend it
+    private static final class LoadedExpiry implements Expiry<DayKey, BitSet> {
+        private final long ttlNanos;
+
+        LoadedExpiry(long ttlNanos) {
+            this.ttlNanos = ttlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(DayKey key, BitSet value, long currentTime) {
+            return ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(DayKey key, BitSet value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(DayKey key, BitSet value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Bulk onboarding of doctors or patients from a CSV or NDJSON upload, read line by line.
+// Rows are handled in chunks of bulk-import.chunk-size:
+//   1. parse and validate each row (the entity's Bean Validation constraints, as for a single save)
+//   2. drop duplicates within the file, and against the database with one IN query per unique column
+//   3. hash the passwords that are not BCrypt hashes already, in parallel on the hashing pool
+//   4. insert the chunk in one transaction with JDBC batches; doctors' generated ids come back with the
+//      batch and key the batch of their available times
+// Bad rows are reported by line number and skipped; they never stop the import. Chunks commit one by one,
+// so a failed chunk leaves the ones before it in place.
+@Component
+public class BulkImportService {
+
+    public enum Kind { DOCTORS, PATIENTS }
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String INSERT_DOCTOR =
+            "INSERT INTO doctor (name, specialty, email, password, phone, retired) VALUES (?, ?, ?, ?, ?, false)";
+    private static final String INSERT_AVAILABLE_TIME =
+            "INSERT INTO doctor_available_times (doctor_id, available_times) VALUES (?, ?)";
+    private static final String INSERT_PATIENT =
+            "INSERT INTO patient (name, email, password, phone, address) VALUES (?, ?, ?, ?, ?)";
+
+    private static final List<String> DOCTOR_COLUMNS = List.of("name", "specialty", "email", "password", "phone");
+    private static final List<String> PATIENT_COLUMNS = List.of("name", "email", "password", "phone", "address");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+    private final PasswordHasher passwordHasher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final DoctorDirectory doctorDirectory;
+    private final AvailabilityIndex availabilityIndex;
+    private final DoctorResponseCache responseCache;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    @Autowired
+    public BulkImportService(JdbcTemplate jdbcTemplate,
+                             DoctorRepository doctorRepository,
+                             PatientRepository patientRepository,
+                             PasswordHasher passwordHasher,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             DoctorDirectory doctorDirectory,
+                             AvailabilityIndex availabilityIndex,
+                             DoctorResponseCache responseCache,
+                             @Value("${bulk-import.chunk-size:1000}") int chunkSize,
+                             @Value("${bulk-import.max-errors:1000}") int maxErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.passwordHasher = passwordHasher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.doctorDirectory = doctorDirectory;
+        this.availabilityIndex = availabilityIndex;
+        this.responseCache = responseCache;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    // Kind from the path ("doctors"/"patients"), or null
+    public static Kind parseKind(String value) {
+        for (Kind kind : Kind.values()) {
+            if (kind.name().equalsIgnoreCase(value)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    // Format from the upload's Content-Type (text/csv, application/x-ndjson, application/jsonl ...), or null
+    public static Format formatOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.contains("csv")) {
+            return Format.CSV;
+        }
+        if (type.contains("ndjson") || type.contains("jsonl") || type.contains("json-seq")) {
+            return Format.NDJSON;
+        }
+        return null;
+    }
+
+    // Imports every row of the upload. Returns the counts and the per-row errors (the first
+    // bulk-import.max-errors of them). Throws IllegalArgumentException when a CSV header lacks a column.
+    public Map<String, Object> importRows(Kind kind, Format format, InputStream in) throws IOException {
+        Report report = new Report(maxErrors);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        Map<String, Integer> header = null;
+        Set<String> seenEmails = new HashSet<>();
+        Set<String> seenPhones = new HashSet<>();
+        List<Row<Doctor>> doctors = new ArrayList<>(chunkSize);
+        List<Row<Patient>> patients = new ArrayList<>(chunkSize);
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = csvHeader(line, kind == Kind.DOCTORS ? DOCTOR_COLUMNS : PATIENT_COLUMNS);
+                continue;
+            }
+            try {
+                if (kind == Kind.DOCTORS) {
+                    doctors.add(new Row<>(lineNumber, format == Format.CSV ? doctorFromCsv(header, line) : fromJson(line, Doctor.class)));
+                } else {
+                    patients.add(new Row<>(lineNumber, format == Format.CSV ? patientFromCsv(header, line) : fromJson(line, Patient.class)));
+                }
+            } catch (IllegalArgumentException e) {
+                report.failed(lineNumber, e.getMessage());
+            }
+            if (doctors.size() == chunkSize) {
+                importDoctors(doctors, seenEmails, report);
+                doctors.clear();
+            }
+            if (patients.size() == chunkSize) {
+                importPatients(patients, seenEmails, seenPhones, report);
+                patients.clear();
+            }
+        }
+        if (!doctors.isEmpty()) {
+            importDoctors(doctors, seenEmails, report);
+        }
+        if (!patients.isEmpty()) {
+            importPatients(patients, seenEmails, seenPhones, report);
+        }
+        return report.toMap();
+    }
+
+    // ----------------------------------------------------------------------
+    // Chunks
+    // ----------------------------------------------------------------------
+
+    private void importDoctors(List<Row<Doctor>> chunk, Set<String> seenEmails, Report report) {
+        List<Row<Doctor>> rows = validate(chunk, report);
+        rows = dropDuplicates(rows, seenEmails, d -> d.getEmail(), doctorRepository::findExistingEmails,
+                "Email already exists", report);
+        rows = hashPasswords(rows, Doctor::getPassword, Doctor::setPassword, report);
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Row<Doctor>> batch = rows;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                KeyHolder keys = new GeneratedKeyHolder();
+                jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_DOCTOR, Statement.RETURN_GENERATED_KEYS),
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                Doctor doctor = batch.get(i).entity;
+                                ps.setString(1, doctor.getName());
+                                ps.setString(2, doctor.getSpecialty());
+                                ps.setString(3, doctor.getEmail());
+                                ps.setString(4, doctor.getPassword());
+                                ps.setString(5, doctor.getPhone());
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return batch.size();
+                            }
+                        }, keys);
+                List<Map<String, Object>> generated = keys.getKeyList();
+                if (generated.size() != batch.size()) {
+                    throw new IllegalStateException("Expected " + batch.size() + " generated ids, got " + generated.size());
+                }
+
+                List<Long> ids = new ArrayList<>(batch.size());
+                List<Object[]> times = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    Long id = ((Number) generated.get(i).values().iterator().next()).longValue();
+                    ids.add(id);
+                    List<String> availableTimes = batch.get(i).entity.getAvailableTimes();
+                    if (availableTimes != null) {
+                        for (String time : availableTimes) {
+                            times.add(new Object[]{id, time});
+                        }
+                    }
+                }
+                if (!times.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_AVAILABLE_TIME, times);
+                }
+                AfterCommit.run(() -> {
+                    availabilityIndex.invalidateDoctors(ids);
+                    doctorDirectory.refresh(ids);
+                    responseCache.bump();
+                });
+            });
+            report.imported += batch.size();
+        } catch (Exception e) {
+            e.printStackTrace();
+            report.chunkFailed(batch, e);
+        }
+    }
+
+    private void importPatients(List<Row<Patient>> chunk, Set<String> seenEmails, Set<String> seenPhones, Report report) {
+        List<Row<Patient>> rows = validate(chunk, report);
+        rows = dropDuplicates(rows, seenEmails, Patient::getEmail, patientRepository::findExistingEmails,
+                "Email already exists", report);
+        rows = dropDuplicates(rows, seenPhones, Patient::getPhone, patientRepository::findExistingPhones,
+                "Phone already exists", report);
+        rows = hashPasswords(rows, Patient::getPassword, Patient::setPassword, report);
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Object[]> values = new ArrayList<>(rows.size());
+        for (Row<Patient> row : rows) {
+            Patient patient = row.entity;
+            values.add(new Object[]{patient.getName(), patient.getEmail(), patient.getPassword(),
+                    patient.getPhone(), patient.getAddress()});
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_PATIENT, values));
+            report.imported += rows.size();
+        } catch (Exception e) {
+            e.printStackTrace();
+            report.chunkFailed(rows, e);
+        }
+    }
+
+    private <T> List<Row<T>> validate(List<Row<T>> chunk, Report report) {
+        List<Row<T>> valid = new ArrayList<>(chunk.size());
+        for (Row<T> row : chunk) {
+            Set<ConstraintViolation<T>> violations = validator.validate(row.entity);
+            if (violations.isEmpty()) {
+                valid.add(row);
+            } else {
+                report.failed(row.line, violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+            }
+        }
+        return valid;
+    }
+
+    // Drops rows whose value (compared ignoring case, like the column collation) appeared earlier in the
+    // file or is already stored; the stored values are looked up with one query for the whole chunk
+    private <T> List<Row<T>> dropDuplicates(List<Row<T>> rows, Set<String> seen, Function<T, String> value,
+                                            Function<Collection<String>, List<String>> findExisting,
+                                            String message, Report report) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        Set<String> values = new HashSet<>();
+        for (Row<T> row : rows) {
+            values.add(value.apply(row.entity));
+        }
+        Set<String> existing = new HashSet<>();
+        for (String stored : findExisting.apply(values)) {
+            existing.add(stored.toLowerCase(Locale.ROOT));
+        }
+        List<Row<T>> unique = new ArrayList<>(rows.size());
+        for (Row<T> row : rows) {
+            String key = value.apply(row.entity).toLowerCase(Locale.ROOT);
+            if (existing.contains(key) || !seen.add(key)) {
+                report.duplicate(row.line, message);
+            } else {
+                unique.add(row);
+            }
+        }
+        return unique;
+    }
+
+    // Passwords that are BCrypt hashes already (exported from another system) are stored as they are.
+    // The rest are hashed on the shared pool; when its queue is full the chunk waits for its own hashes
+    // to finish before submitting more, so logins are not starved.
+    private <T> List<Row<T>> hashPasswords(List<Row<T>> rows, Function<T, String> password,
+                                           BiConsumer<T, String> setPassword, Report report) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        Map<Row<T>, String> failures = new HashMap<>();
+        for (Row<T> row : rows) {
+            String raw = password.apply(row.entity);
+            if (PasswordHasher.isBcryptHash(raw)) {
+                continue;
+            }
+            CompletableFuture<String> hash = passwordHasher.hash(raw);
+            if (hash.isCompletedExceptionally()) {
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+                pending.clear();
+                hash = passwordHasher.hash(raw);
+            }
+            pending.add(hash.handle((hashed, error) -> {
+                if (error != null) {
+                    synchronized (failures) {
+                        failures.put(row, "Password could not be hashed, retry later");
+                    }
+                } else {
+                    setPassword.accept(row.entity, hashed);
+                }
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        if (failures.isEmpty()) {
+            return rows;
+        }
+        List<Row<T>> hashed = new ArrayList<>(rows.size());
+        for (Row<T> row : rows) {
+            String failure = failures.get(row);
+            if (failure != null) {
+                report.failed(row.line, failure);
+            } else {
+                hashed.add(row);
+            }
+        }
+        return hashed;
+    }
+
+    // ----------------------------------------------------------------------
+    // Parsing
+    // ----------------------------------------------------------------------
+
+    private <T> T fromJson(String line, Class<T> type) {
+        try {
+            return objectMapper.readValue(line, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static Map<String, Integer> csvHeader(String line, List<String> required) {
+        List<String> names = csvFields(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim().toLowerCase(Locale.ROOT).replace("_", ""), i);
+        }
+        for (String column : required) {
+            if (!header.containsKey(column)) {
+                throw new IllegalArgumentException("CSV header must name the columns " + String.join(", ", required));
+            }
+        }
+        return header;
+    }
+
+    // Doctor columns: name, specialty, email, password, phone and optionally availableTimes,
+    // whose slots are separated by '|' ("09:00-10:00|10:00-11:00")
+    private static Doctor doctorFromCsv(Map<String, Integer> header, String line) {
+        List<String> fields = csvFields(line);
+        Doctor doctor = new Doctor(field(header, fields, "name"), field(header, fields, "specialty"),
+                field(header, fields, "email"), field(header, fields, "password"), field(header, fields, "phone"),
+                new ArrayList<>());
+        String times = field(header, fields, "availabletimes");
+        if (times != null) {
+            for (String time : times.split("\\|")) {
+                if (!time.isBlank()) {
+                    doctor.getAvailableTimes().add(time.trim());
+                }
+            }
+        }
+        return doctor;
+    }
+
+    // Patient columns: name, email, password, phone, address
+    private static Patient patientFromCsv(Map<String, Integer> header, String line) {
+        List<String> fields = csvFields(line);
+        Patient patient = new Patient();
+        patient.setName(field(header, fields, "name"));
+        patient.setEmail(field(header, fields, "email"));
+        patient.setPassword(field(header, fields, "password"));
+        patient.setPhone(field(header, fields, "phone"));
+        patient.setAddress(field(header, fields, "address"));
+        return patient;
+    }
+
+    private static String field(Map<String, Integer> header, List<String> fields, String column) {
+        Integer index = header.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Splits one CSV record (RFC 4180 quoting; a quoted field cannot span lines)
+    static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static final class Row<T> {
+        final int line;
+        final T entity;
+
+        Row(int line, T entity) {
+            this.line = line;
+            this.entity = entity;
+        }
+    }
+
+    private static final class Report {
+        private final int maxErrors;
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        int imported;
+        int duplicates;
+        int failed;
+
+        Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void failed(int line, String message) {
+            failed++;
+            error(line, message);
+        }
+
+        void duplicate(int line, String message) {
+            duplicates++;
+            error(line, message);
+        }
+
+        void chunkFailed(List<? extends Row<?>> rows, Exception e) {
+            String message = "Not imported: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (Row<?> row : rows) {
+                failed(row.line, message);
+            }
+        }
+
+        private void error(int line, String message) {
+            if (errors.size() < maxErrors) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("line", line);
+                error.put("message", message);
+                errors.add(error);
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("imported", imported);
+            result.put("duplicates", duplicates);
+            result.put("failed", failed);
+            result.put("errors", errors);
+            result.put("errorsTruncated", duplicates + failed > errors.size());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.ScheduleOverrideRepository;
+import com.project.back_end.repo.ScheduleRuleRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Deletes a retired doctor's appointments in the background, chunk by chunk, then the doctor itself.
+// Each chunk is its own short transaction (select up to chunk-size ids, delete them by id), so row locks
+// are held briefly and the admin request that started the deletion returns immediately.
+// Deletions left unfinished by a shutdown are picked up again at startup from the retired flag.
+@Component
+public class DoctorDeletionJob {
+
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final ScheduleRuleRepository scheduleRuleRepository;
+    private final ScheduleOverrideRepository scheduleOverrideRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    private final Map<Long, Progress> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "doctor-deletion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public DoctorDeletionJob(AppointmentRepository appointmentRepository,
+                             ArchivedAppointmentRepository archivedAppointmentRepository,
+                             DoctorRepository doctorRepository,
+                             ScheduleRuleRepository scheduleRuleRepository,
+                             ScheduleOverrideRepository scheduleOverrideRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${doctor.delete.chunk-size:500}") int chunkSize) {
+        this.appointmentRepository = appointmentRepository;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.doctorRepository = doctorRepository;
+        this.scheduleRuleRepository = scheduleRuleRepository;
+        this.scheduleOverrideRepository = scheduleOverrideRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    // Queues the deletion of a retired doctor, unless it is already queued or running
+    public void start(Long doctorId) {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
+        jobs.values().removeIf(p -> p.finishedAt != null && p.finishedAt.isBefore(cutoff));
+        jobs.compute(doctorId, (id, existing) -> {
+            if (existing != null && existing.finishedAt == null) {
+                return existing;
+            }
+            Progress progress = new Progress(id, appointmentRepository.countByDoctorId(id)
+                    + archivedAppointmentRepository.countByDoctorId(id));
+            executor.execute(() -> run(progress));
+            return progress;
+        });
+    }
+
+    // Progress of the latest deletion of a doctor, or null if none is known
+    public Map<String, Object> getProgress(Long doctorId) {
+        Progress progress = jobs.get(doctorId);
+        return progress != null ? progress.toMap() : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        for (Long id : doctorRepository.findRetiredIds()) {
+            start(id);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(Progress progress) {
+        Long doctorId = progress.doctorId;
+        try {
+            // Hot appointments first, then the archived ones
+            if (!deleteInChunks(progress, () -> {
+                List<Long> ids = appointmentRepository.findIdsByDoctorId(doctorId, Limit.of(chunkSize));
+                return ids.isEmpty() ? 0 : appointmentRepository.deleteAllByIdIn(ids);
+            }) || !deleteInChunks(progress, () -> {
+                List<Long> ids = archivedAppointmentRepository.findIdsByDoctorId(doctorId, Limit.of(chunkSize));
+                return ids.isEmpty() ? 0 : archivedAppointmentRepository.deleteAllByIdIn(ids);
+            })) {
+                progress.state = "interrupted"; // resumed at next startup
+                progress.finishedAt = LocalDateTime.now();
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                scheduleRuleRepository.deleteByDoctorId(doctorId);
+                scheduleOverrideRepository.deleteByDoctorId(doctorId);
+                doctorRepository.deleteById(doctorId);
+            });
+            progress.state = "done";
+        } catch (RuntimeException e) {
+            progress.state = "failed";
+            progress.error = e.getMessage();
+        }
+        progress.finishedAt = LocalDateTime.now();
+    }
+
+    // Runs chunk deletions, one transaction each, until one removes nothing.
+    // Returns false if the thread was interrupted first.
+    private boolean deleteInChunks(Progress progress, Supplier<Integer> chunk) {
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            Integer removed = transactionTemplate.execute(status -> chunk.get());
+            if (removed == null || removed == 0) {
+                return true;
+            }
+            progress.deleted.addAndGet(removed);
+        }
+    }
+
+    private static final class Progress {
+        final Long doctorId;
+        final long total;
+        final AtomicLong deleted = new AtomicLong();
+        final LocalDateTime startedAt = LocalDateTime.now();
+        volatile String state = "running";
+        volatile String error;
+        volatile LocalDateTime finishedAt;
+
+        Progress(Long doctorId, long total) {
+            this.doctorId = doctorId;
+            this.total = total;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("doctorId", doctorId);
+            result.put("state", state);
+            result.put("appointmentsTotal", total);
+            result.put("appointmentsDeleted", deleted.get());
+            result.put("startedAt", startedAt.toString());
+            result.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+            if (error != null) {
+                result.put("error", error);
+            }
+            return result;
+        }
+    }
+}
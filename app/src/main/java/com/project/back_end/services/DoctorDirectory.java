@@ -0,0 +1,322 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.ScheduleRule;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.ScheduleRuleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory directory of all doctors, so the doctor search never runs LIKE '%x%' scans on MySQL.
+//
+//   - name:      trigram postings (sorted position arrays) over the lower-cased name; a query of three or
+//                more characters intersects the postings of its trigrams, then confirms each candidate
+//                with contains(). Shorter queries scan the lower-cased names.
+//   - specialty: lower-cased specialty -> BitSet of positions
+//   - AM/PM:     BitSets of doctors whose weekly schedule has morning / afternoon slots
+//
+// Every doctor gets a position when added. An edit retires the old position and appends a new one, so
+// postings stay sorted; the index is compacted once retired positions outnumber live ones.
+// Loaded from MySQL on first use and kept in step by DoctorService after each commit.
+@Component
+public class DoctorDirectory {
+
+    private static final int GRAM = 3;
+
+    private final DoctorRepository doctorRepository;
+    private final ScheduleRuleRepository scheduleRuleRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    private Doctor[] doctors = new Doctor[16];
+    private String[] names = new String[16];
+    private int size;
+    private final Map<Long, Integer> positionById = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, Postings> nameGrams = new HashMap<>();
+    private final Map<String, BitSet> bySpecialty = new HashMap<>();
+    private final BitSet morning = new BitSet();
+    private final BitSet afternoon = new BitSet();
+
+    @Autowired
+    public DoctorDirectory(DoctorRepository doctorRepository, ScheduleRuleRepository scheduleRuleRepository) {
+        this.doctorRepository = doctorRepository;
+        this.scheduleRuleRepository = scheduleRuleRepository;
+    }
+
+    // Doctors matching every given criterion, ordered by id. A null or blank criterion is ignored;
+    // name matches case-insensitively anywhere in the name, specialty exactly ignoring case,
+    // and time is "AM" or "PM" (any other value matches nobody).
+    public List<Doctor> search(String name, String specialty, String time) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            BitSet matches = (BitSet) live.clone();
+            if (specialty != null) {
+                BitSet withSpecialty = bySpecialty.get(specialty.trim().toLowerCase(Locale.ROOT));
+                if (withSpecialty == null) {
+                    return new ArrayList<>();
+                }
+                matches.and(withSpecialty);
+            }
+            if (time != null) {
+                if ("AM".equalsIgnoreCase(time)) {
+                    matches.and(morning);
+                } else if ("PM".equalsIgnoreCase(time)) {
+                    matches.and(afternoon);
+                } else {
+                    return new ArrayList<>();
+                }
+            }
+            if (name != null) {
+                matches = matchName(name.toLowerCase(Locale.ROOT), matches);
+            }
+
+            List<Doctor> result = new ArrayList<>(matches.cardinality());
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                result.add(doctors[i]);
+            }
+            result.sort(Comparator.comparing(Doctor::getId));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Re-reads one doctor (and its weekly rules) after it was saved, updated or had its schedule changed
+    public void refresh(Long doctorId) {
+        refresh(List.of(doctorId));
+    }
+
+    // Re-reads several doctors with two statements, e.g. after a bulk import
+    public void refresh(Collection<Long> doctorIds) {
+        if (doctorIds.isEmpty() || !isLoaded()) {
+            return; // picked up by the initial load
+        }
+        List<Doctor> found = doctorRepository.findAllWithAvailableTimes(doctorIds);
+        Map<Long, List<ScheduleRule>> rulesByDoctor = new HashMap<>();
+        for (ScheduleRule rule : scheduleRuleRepository.findByDoctorIds(doctorIds)) {
+            rulesByDoctor.computeIfAbsent(rule.getDoctorId(), id -> new ArrayList<>()).add(rule);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long doctorId : doctorIds) {
+                retire(doctorId);
+            }
+            for (Doctor doctor : found) {
+                add(doctor, WeeklySchedule.compile(doctor.getAvailableTimes(), rulesByDoctor.get(doctor.getId()), null));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long doctorId) {
+        if (!isLoaded()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            retire(doctorId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Replaces the whole directory; used for the initial load and by tests and benchmarks
+    public void load(List<Doctor> all, List<ScheduleRule> rules) {
+        Map<Long, List<ScheduleRule>> rulesByDoctor = new HashMap<>();
+        for (ScheduleRule rule : rules) {
+            rulesByDoctor.computeIfAbsent(rule.getDoctorId(), id -> new ArrayList<>()).add(rule);
+        }
+        lock.writeLock().lock();
+        try {
+            clear(Math.max(16, all.size()));
+            for (Doctor doctor : all) {
+                add(doctor, WeeklySchedule.compile(doctor.getAvailableTimes(), rulesByDoctor.get(doctor.getId()), null));
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Internals
+    // ----------------------------------------------------------------------
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load(doctorRepository.findAllWithAvailableTimes(), scheduleRuleRepository.findAll());
+                }
+            }
+        }
+    }
+
+    // Waits for an initial load in progress, so a change committed during the load is applied after it
+    private boolean isLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (this) {
+            return loaded;
+        }
+    }
+
+    private BitSet matchName(String query, BitSet candidates) {
+        BitSet result = new BitSet();
+        if (query.length() < GRAM) {
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                if (names[i].contains(query)) {
+                    result.set(i);
+                }
+            }
+            return result;
+        }
+
+        // Intersect postings, smallest first
+        List<Postings> lists = new ArrayList<>();
+        for (String gram : grams(query)) {
+            Postings postings = nameGrams.get(gram);
+            if (postings == null) {
+                return result;
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+        Postings smallest = lists.get(0);
+        outer:
+        for (int k = 0; k < smallest.size; k++) {
+            int position = smallest.positions[k];
+            if (!candidates.get(position)) {
+                continue;
+            }
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(position)) {
+                    continue outer;
+                }
+            }
+            // Trigrams can match out of order; confirm the substring
+            if (names[position].contains(query)) {
+                result.set(position);
+            }
+        }
+        return result;
+    }
+
+    private void add(Doctor doctor, WeeklySchedule schedule) {
+        if (size == doctors.length) {
+            doctors = Arrays.copyOf(doctors, size * 2);
+            names = Arrays.copyOf(names, size * 2);
+        }
+        int position = size++;
+        String name = doctor.getName() != null ? doctor.getName().toLowerCase(Locale.ROOT) : "";
+        doctors[position] = doctor;
+        names[position] = name;
+        positionById.put(doctor.getId(), position);
+        live.set(position);
+        for (String gram : grams(name)) {
+            nameGrams.computeIfAbsent(gram, g -> new Postings()).append(position);
+        }
+        if (doctor.getSpecialty() != null) {
+            bySpecialty.computeIfAbsent(doctor.getSpecialty().trim().toLowerCase(Locale.ROOT), s -> new BitSet())
+                    .set(position);
+        }
+        morning.set(position, schedule.hasSlotsIn("AM"));
+        afternoon.set(position, schedule.hasSlotsIn("PM"));
+    }
+
+    private void retire(Long doctorId) {
+        Integer position = positionById.remove(doctorId);
+        if (position == null) {
+            return;
+        }
+        live.clear(position);
+        doctors[position] = null;
+        names[position] = "";
+        if (size - positionById.size() > Math.max(1024, positionById.size())) {
+            compact();
+        }
+    }
+
+    // Rebuilds positions and postings from the live doctors, dropping retired entries
+    private void compact() {
+        List<Doctor> current = new ArrayList<>(positionById.size());
+        List<Boolean> am = new ArrayList<>(positionById.size());
+        List<Boolean> pm = new ArrayList<>(positionById.size());
+        for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) {
+            current.add(doctors[i]);
+            am.add(morning.get(i));
+            pm.add(afternoon.get(i));
+        }
+        clear(Math.max(16, current.size()));
+        for (int i = 0; i < current.size(); i++) {
+            add(current.get(i), WeeklySchedule.EMPTY);
+            morning.set(i, am.get(i));
+            afternoon.set(i, pm.get(i));
+        }
+    }
+
+    private void clear(int capacity) {
+        doctors = new Doctor[capacity];
+        names = new String[capacity];
+        size = 0;
+        positionById.clear();
+        live.clear();
+        nameGrams.clear();
+        bySpecialty.clear();
+        morning.clear();
+        afternoon.clear();
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    // Ascending positions holding one trigram
+    private static final class Postings {
+        int[] positions = new int[4];
+        int size;
+
+        void append(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        boolean contains(int position) {
+            return Arrays.binarySearch(positions, 0, size, position) >= 0;
+        }
+    }
+}
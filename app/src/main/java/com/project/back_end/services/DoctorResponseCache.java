@@ -0,0 +1,199 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Cache of already encoded JSON responses of the public doctor endpoints, plus their gzip variants.
+// Keys include the directory version, which DoctorService bumps after every committed change to a doctor,
+// so stale entries are never served and simply age out. Each entry carries a strong ETag derived from
+// its bytes, so browsers revalidate with If-None-Match and get a 304 without a body.
+@Component
+public class DoctorResponseCache {
+
+    // Responses smaller than this are not worth compressing
+    private static final int GZIP_MIN_BYTES = 1024;
+    // Keys remembered as too large to keep; forgotten at every bump
+    private static final int MAX_OVERSIZED_KEYS = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final long maxEntryBytes;
+    private final AtomicLong version = new AtomicLong();
+    private final Cache<List<Object>, CachedJson> responses;
+    private final Cache<List<Object>, Long> oversized = Caffeine.newBuilder()
+            .maximumSize(MAX_OVERSIZED_KEYS)
+            .build();
+
+    @Autowired
+    public DoctorResponseCache(ObjectMapper objectMapper,
+                               @Value("${doctor.response-cache.max-bytes:67108864}") long maxBytes,
+                               @Value("${doctor.response-cache.max-entry-bytes:8388608}") long maxEntryBytes) {
+        this.objectMapper = objectMapper;
+        this.maxEntryBytes = maxEntryBytes;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((List<Object> key, CachedJson json) -> json.weight())
+                .recordStats()
+                .build();
+    }
+
+    // The cached response for `key` in the current version, or `body` serialized and cached
+    public CachedJson get(List<Object> key, Supplier<Object> body) {
+        return getBytes(key, () -> {
+            try {
+                return objectMapper.writeValueAsBytes(body.get());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Like get(), for callers that encode the JSON themselves. Bodies larger than the entry limit
+    // are returned but not kept.
+    public CachedJson getBytes(List<Object> key, Supplier<byte[]> encoder) {
+        List<Object> versionedKey = List.of(version.get(), key);
+        CachedJson cached = responses.getIfPresent(versionedKey);
+        if (cached != null) {
+            return cached;
+        }
+        CachedJson json = CachedJson.of(encoder.get());
+        if (json.identity.length <= maxEntryBytes) {
+            responses.put(versionedKey, json);
+        } else {
+            oversized.put(key, (Long) versionedKey.get(0));
+        }
+        return json;
+    }
+
+    // True if the response for `key` was too large to keep in the current version; callers then
+    // stream it instead of encoding it into memory
+    public boolean isOversized(List<Object> key) {
+        Long seenAt = oversized.getIfPresent(key);
+        return seenAt != null && seenAt == version.get();
+    }
+
+    // Called after a doctor change is committed; every cached response becomes unreachable
+    public void bump() {
+        version.incrementAndGet();
+        oversized.invalidateAll();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = responses.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("version", version.get());
+        result.put("size", responses.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    // One encoded response: identity bytes, optional gzip bytes and the strong ETag of the identity bytes
+    public static final class CachedJson {
+
+        final byte[] identity;
+        final byte[] gzip;
+        final String etag;
+
+        private CachedJson(byte[] identity, byte[] gzip, String etag) {
+            this.identity = identity;
+            this.gzip = gzip;
+            this.etag = etag;
+        }
+
+        static CachedJson of(byte[] json) {
+            byte[] gzip = null;
+            if (json.length >= GZIP_MIN_BYTES) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+                try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+                    zip.write(json);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                gzip = out.toByteArray();
+            }
+            return new CachedJson(json, gzip, "\"" + digest(json) + "\"");
+        }
+
+        // 304 if the client already holds the representation it would get, else the gzip or identity bytes
+        // as the client accepts. The gzip representation has its own strong ETag ("...-gzip"), so a tag only
+        // revalidates the encoding it was issued for.
+        public ResponseEntity<byte[]> toResponse(String ifNoneMatch, String acceptEncoding) {
+            boolean useGzip = gzip != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+            String tag = useGzip ? etag.substring(0, etag.length() - 1) + "-gzip\"" : etag;
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(tag);
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+            headers.setCacheControl("no-cache");
+            if (ifNoneMatch != null && matches(ifNoneMatch, tag)) {
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            }
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            if (useGzip) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return new ResponseEntity<>(useGzip ? gzip : identity, headers, HttpStatus.OK);
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        // If-None-Match uses the weak comparison (RFC 9110, 13.1.2): a W/ prefix on either side is ignored
+        static boolean matches(String ifNoneMatch, String tag) {
+            String opaque = tag.startsWith("W/") ? tag.substring(2) : tag;
+            for (String candidate : ifNoneMatch.split(",")) {
+                String value = candidate.trim();
+                if (value.startsWith("W/")) {
+                    value = value.substring(2);
+                }
+                if (value.equals("*") || value.equals(opaque)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int weight() {
+            long bytes = identity.length + (gzip != null ? gzip.length : 0) + 64L;
+            return (int) Math.min(bytes, Integer.MAX_VALUE);
+        }
+
+        private static String digest(byte[] bytes) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+                return HexFormat.of().formatHex(hash, 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
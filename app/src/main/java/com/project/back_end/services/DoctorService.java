@@ -1,24 +1,39 @@
 package com.project.back_end.services;
 
+import com.project.back_end.DTO.DoctorSchedule;
 import com.project.back_end.DTO.Login;
-import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Doctor;
+import com.project.back_end.models.ScheduleOverride;
+import com.project.back_end.models.ScheduleRule;
 import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
 import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.DoctorSpecifications;
+import com.project.back_end.repo.ScheduleOverrideRepository;
+import com.project.back_end.repo.ScheduleRuleRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.context.annotation.Lazy;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 // 1. Add @Service Annotation
 @Service
@@ -26,55 +41,109 @@ public class DoctorService {
 
     private final DoctorRepository doctorRepository;
     private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
     private final TokenService tokenService;
     private final com.project.back_end.services.Service service;
+    private final AvailabilityIndex availabilityIndex;
+    private final ScheduleRuleRepository scheduleRuleRepository;
+    private final ScheduleOverrideRepository scheduleOverrideRepository;
+    private final DoctorDirectory doctorDirectory;
+    private final DoctorResponseCache responseCache;
+    private final DoctorDeletionJob deletionJob;
+    private final EntityManager entityManager;
+
+    // Doctors with more appointments are retired and deleted in the background (see deleteDoctor)
+    @Value("${doctor.delete.inline-max-appointments:1000}")
+    private long inlineDeleteMaxAppointments = 1000;
 
     // 2. Constructor Injection
     @Lazy
     public DoctorService(DoctorRepository doctorRepository, 
                          AppointmentRepository appointmentRepository, 
                          TokenService tokenService,
-                         com.project.back_end.services.Service service) {
+                         com.project.back_end.services.Service service,
+                         AvailabilityIndex availabilityIndex,
+                         ScheduleRuleRepository scheduleRuleRepository,
+                         ScheduleOverrideRepository scheduleOverrideRepository,
+                         DoctorDirectory doctorDirectory,
+                         DoctorResponseCache responseCache,
+                         DoctorDeletionJob deletionJob,
+                         ArchivedAppointmentRepository archivedAppointmentRepository,
+                         EntityManager entityManager) {
         this.doctorRepository = doctorRepository;
         this.appointmentRepository = appointmentRepository;
         this.tokenService = tokenService;
         this.service = service;
+        this.availabilityIndex = availabilityIndex;
+        this.scheduleRuleRepository = scheduleRuleRepository;
+        this.scheduleOverrideRepository = scheduleOverrideRepository;
+        this.doctorDirectory = doctorDirectory;
+        this.responseCache = responseCache;
+        this.deletionJob = deletionJob;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.entityManager = entityManager;
     }
 
     // 4. getDoctorAvailability
-    @Transactional(readOnly = true) 
+    // Answered from the in-memory slot bitmaps; the database is only read on a cache miss.
     public List<String> getDoctorAvailability(Long doctorId, String date) {
-        Optional<Doctor> doctorOpt = doctorRepository.findById(doctorId);
-        if (doctorOpt.isEmpty()) return new ArrayList<>();
-
-        Doctor doctor = doctorOpt.get();
-        List<String> allSlots = doctor.getAvailableTimes();
-        
-        LocalDate localDate = LocalDate.parse(date);
-        LocalDateTime startOfDay = localDate.atStartOfDay();
-        LocalDateTime endOfDay = localDate.atTime(LocalTime.MAX);
+        return availabilityIndex.freeSlots(doctorId, LocalDate.parse(date));
+    }
 
-        List<Appointment> bookedAppointments = appointmentRepository
-                .findByDoctorIdAndAppointmentTimeBetween(doctorId, startOfDay, endOfDay);
+    // getAvailabilityMatrix
+    // Free slots of several doctors (given by id, or every doctor of a specialty) for each day of a range,
+    // keyed by doctor id and then by date. Booked slots of all of them come from a single range query.
+    // Returns null if the specialty has more than maxDoctors doctors; the caller caps a list of ids itself.
+    public Map<String, Map<String, List<String>>> getAvailabilityMatrix(List<Long> doctorIds, String specialty,
+                                                                        LocalDate from, LocalDate to, int maxDoctors) {
+        List<Long> ids = (doctorIds != null && !doctorIds.isEmpty())
+                ? doctorIds
+                : doctorRepository.findIdsBySpecialty(specialty, Limit.of(maxDoctors + 1));
+        if (ids.size() > maxDoctors) {
+            return null;
+        }
 
-        List<String> bookedTimes = bookedAppointments.stream()
-                .map(appt -> appt.getAppointmentTime().toLocalTime().toString()) 
-                .collect(Collectors.toList());
+        Map<String, Map<String, List<String>>> matrix = new LinkedHashMap<>();
+        availabilityIndex.freeSlots(ids, from, to).forEach((doctorId, days) -> {
+            Map<String, List<String>> byDate = new LinkedHashMap<>();
+            days.forEach((date, slots) -> byDate.put(date.toString(), slots));
+            matrix.put(doctorId.toString(), byDate);
+        });
+        return matrix;
+    }
 
-        return allSlots.stream()
-                .filter(slot -> !bookedTimes.contains(slot))
-                .collect(Collectors.toList());
+    // hashPassword
+    // Replaces the doctor's new password, if any, with its BCrypt hash on the hashing pool; completes with the
+    // doctor, ready for saveDoctor or updateDoctor. Fails with RejectedExecutionException when the pool is
+    // saturated. Hashing first keeps the request thread and the transaction from waiting on BCrypt.
+    public CompletableFuture<Doctor> hashPassword(Doctor doctor) {
+        if (doctor.getPassword() == null || doctor.getPassword().isEmpty()) {
+            return CompletableFuture.completedFuture(doctor);
+        }
+        return service.hashPassword(doctor.getPassword()).thenApply(hash -> {
+            doctor.setPassword(hash);
+            return doctor;
+        });
     }
 
     // 5. saveDoctor
+    // Expects the password already hashed (see hashPassword). Returns -1 if a doctor has this email, -2 if
+    // that doctor is retired and still being deleted: the email stays taken until DoctorDeletionJob
+    // removes the row.
     @Transactional
     public int saveDoctor(Doctor doctor) {
         try {
-            if (doctorRepository.findByEmail(doctor.getEmail()) != null) {
-                return -1; 
+            Doctor existing = doctorRepository.findByEmail(doctor.getEmail());
+            if (existing != null) {
+                return existing.isRetired() ? -2 : -1;
             }
-            doctor.setPassword(service.hashPassword(doctor.getPassword()));
-            doctorRepository.save(doctor);
+            Doctor saved = doctorRepository.save(doctor);
+            // A lookup for this id may have been cached as "no such doctor"
+            AfterCommit.run(() -> {
+                availabilityIndex.invalidateDoctor(saved.getId());
+                doctorDirectory.refresh(saved.getId());
+                responseCache.bump();
+            });
             return 1;
         } catch (Exception e) {
             e.printStackTrace();
@@ -83,6 +152,7 @@ public class DoctorService {
     }
 
     // 6. updateDoctor
+    // A new password must already be hashed (see hashPassword); an empty one keeps the current password.
     @Transactional
     public int updateDoctor(Doctor doctor) {
         try {
@@ -90,6 +160,9 @@ public class DoctorService {
                 return -1;
             }
             Doctor existing = doctorRepository.findById(doctor.getId()).get();
+            if (existing.isRetired()) {
+                return -1; // being deleted
+            }
             
             existing.setName(doctor.getName());
             existing.setPhone(doctor.getPhone());
@@ -97,10 +170,15 @@ public class DoctorService {
             existing.setAvailableTimes(doctor.getAvailableTimes());
             
             if (doctor.getPassword() != null && !doctor.getPassword().isEmpty()) {
-                existing.setPassword(service.hashPassword(doctor.getPassword()));
+                existing.setPassword(doctor.getPassword());
             }
 
             doctorRepository.save(existing);
+            AfterCommit.run(() -> {
+                availabilityIndex.invalidateDoctor(existing.getId());
+                doctorDirectory.refresh(existing.getId());
+                responseCache.bump();
+            });
             return 1;
         } catch (Exception e) {
             return 0;
@@ -110,103 +188,238 @@ public class DoctorService {
     // 7. getDoctors
     @Transactional(readOnly = true)
     public List<Doctor> getDoctors() {
-        return doctorRepository.findAll();
+        return doctorRepository.findAllWithAvailableTimes();
+    }
+
+    // streamDoctors
+    // Hands every doctor, with their time slots, to `sink` while the result set is being read, and detaches
+    // it afterwards, so heap use stays flat however many doctors there are.
+    @Transactional(readOnly = true)
+    public void streamDoctors(Consumer<Doctor> sink) {
+        try (Stream<Doctor> doctors = doctorRepository.streamAllWithAvailableTimes()) {
+            doctors.forEach(doctor -> {
+                sink.accept(doctor);
+                entityManager.detach(doctor);
+            });
+        }
+    }
+
+    // getDoctorPage
+    // Keyset pagination ordered by "id" or by "name" (ties broken by id). The opaque cursor carries the
+    // last key returned, so each page is one index range scan plus one fetch of that page's doctors.
+    // nextCursor is null on the last page. Throws IllegalArgumentException for an unknown sort or a bad cursor.
+    @Transactional(readOnly = true)
+    public Map<String, Object> getDoctorPage(String cursor, int size, String sort) {
+        boolean byName = "name".equalsIgnoreCase(sort);
+        if (!byName && !"id".equalsIgnoreCase(sort)) {
+            throw new IllegalArgumentException("sort must be 'id' or 'name'");
+        }
+
+        long afterId = 0;
+        String afterName = "";
+        if (cursor != null && !cursor.isBlank()) {
+            String[] key = decodeCursor(cursor, byName);
+            afterId = Long.parseLong(key[0]);
+            afterName = byName ? key[1] : "";
+        }
+
+        // One extra id tells whether another page follows
+        List<Long> ids = byName
+                ? doctorRepository.findIdsAfterName(afterName, afterId, Limit.of(size + 1))
+                : doctorRepository.findIdsAfter(afterId, Limit.of(size + 1));
+        boolean hasMore = ids.size() > size;
+        List<Long> pageIds = hasMore ? ids.subList(0, size) : ids;
+
+        Map<Long, Doctor> byId = new HashMap<>();
+        for (Doctor doctor : pageIds.isEmpty() ? List.<Doctor>of() : doctorRepository.findAllWithAvailableTimes(pageIds)) {
+            byId.put(doctor.getId(), doctor);
+        }
+        List<Doctor> doctors = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            Doctor doctor = byId.get(id);
+            if (doctor != null) {
+                doctors.add(doctor);
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("doctors", doctors);
+        response.put("nextCursor", hasMore && !doctors.isEmpty()
+                ? encodeCursor(doctors.get(doctors.size() - 1), byName) : null);
+        return response;
     }
 
     // 8. deleteDoctor
+    // A doctor with up to doctor.delete.inline-max-appointments appointments is deleted at once, appointments
+    // included, with set-based deletes. A longer history is left to DoctorDeletionJob: the doctor is retired
+    // (hidden, cannot log in or be booked) in this transaction and the appointments are deleted in chunks
+    // in the background.
+    // Returns 1 if deleted, 2 if the deletion continues in the background, -1 if not found, 0 on error.
     @Transactional
     public int deleteDoctor(Long id) {
         try {
-            if (!doctorRepository.existsById(id)) {
+            Optional<Doctor> doctorOpt = doctorRepository.findById(id);
+            if (doctorOpt.isEmpty()) {
                 return -1;
             }
-            appointmentRepository.deleteAllByDoctorId(id);
-            doctorRepository.deleteById(id);
-            return 1;
+            if (doctorOpt.get().isRetired()) {
+                deletionJob.start(id); // no-op while it runs; restarts a failed deletion
+                return 2;
+            }
+            String email = doctorOpt.get().getEmail();
+            boolean inline = appointmentRepository.countByDoctorId(id)
+                    + archivedAppointmentRepository.countByDoctorId(id) <= inlineDeleteMaxAppointments;
+            if (inline) {
+                appointmentRepository.deleteAllByDoctorId(id);
+                archivedAppointmentRepository.deleteAllByDoctorId(id);
+                scheduleRuleRepository.deleteByDoctorId(id);
+                scheduleOverrideRepository.deleteByDoctorId(id);
+                doctorRepository.deleteById(id);
+            } else {
+                doctorRepository.retire(id);
+            }
+            // Outstanding tokens of the deleted doctor must be rejected from now on
+            tokenService.revokePrincipal("doctor", id);
+            AfterCommit.run(() -> {
+                tokenService.evictIdentifier(email);
+                availabilityIndex.invalidateDoctor(id);
+                doctorDirectory.remove(id);
+                responseCache.bump();
+                if (!inline) {
+                    deletionJob.start(id);
+                }
+            });
+            return inline ? 1 : 2;
         } catch (Exception e) {
             return 0;
         }
     }
 
-    // 9. validateDoctor
-    public String validateDoctor(Login login) {
-        Doctor doctor = doctorRepository.findByEmail(login.getEmail());
-        if (doctor != null && service.checkPassword(login.getPassword(), doctor.getPassword())) {
-            // Uses generateToken, which was NOT affected by the parser error
-            return tokenService.generateToken(doctor.getEmail());
-        }
-        return "Invalid Credentials";
+    // getDeletionProgress
+    // Progress of a background doctor deletion, or null if none is known.
+    public Map<String, Object> getDeletionProgress(Long id) {
+        return deletionJob.getProgress(id);
     }
 
-    // --------------------------------------------------------------------------------
-    // Helpers
-    // --------------------------------------------------------------------------------
-    
-    private List<Doctor> filterDoctorByTime(List<Doctor> doctors, String amOrPm) {
-        return doctors.stream()
-                .filter(doc -> doc.getAvailableTimes().stream()
-                        .anyMatch(time -> {
-                            int hour = Integer.parseInt(time.split(":")[0]);
-                            if ("AM".equalsIgnoreCase(amOrPm)) return hour < 12;
-                            if ("PM".equalsIgnoreCase(amOrPm)) return hour >= 12;
-                            return false;
-                        }))
-                .collect(Collectors.toList());
-    }
-
-    private Map<String, Object> wrapDoctors(List<Doctor> doctors) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("doctors", doctors);
-        return response;
+    // getSchedule
+    // Weekly rules and upcoming date exceptions of a doctor, or null if the doctor does not exist.
+    @Transactional(readOnly = true)
+    public DoctorSchedule getSchedule(Long doctorId) {
+        if (!doctorRepository.existsById(doctorId)) {
+            return null;
+        }
+        return new DoctorSchedule(
+                scheduleRuleRepository.findByDoctorIdOrderByDayOfWeekAscStartTimeAsc(doctorId),
+                scheduleOverrideRepository.findByDoctorIdAndDateGreaterThanEqualOrderByDate(doctorId, LocalDate.now()));
     }
 
-    // --------------------------------------------------------------------------------
-    // Filtering Methods
-    // --------------------------------------------------------------------------------
+    // updateSchedule
+    // Replaces a doctor's weekly rules and date exceptions. The compiled schedule is dropped after commit
+    // and rebuilt on next use. Returns 1 on success, -1 if the doctor does not exist,
+    // -2 if a rule or exception is invalid, 0 on any other error.
+    @Transactional
+    public int updateSchedule(Long doctorId, DoctorSchedule schedule) {
+        try {
+            if (!doctorRepository.existsById(doctorId)) {
+                return -1;
+            }
+            List<ScheduleRule> rules = schedule.getRules() != null ? schedule.getRules() : List.of();
+            List<ScheduleOverride> overrides = schedule.getOverrides() != null ? schedule.getOverrides() : List.of();
+            for (ScheduleRule rule : rules) {
+                if (rule.getDayOfWeek() == null
+                        || !WeeklySchedule.isValid(rule.getStartTime(), rule.getEndTime(), rule.getSlotMinutes())) {
+                    return -2;
+                }
+                rule.setId(null);
+                rule.setDoctorId(doctorId);
+            }
+            for (ScheduleOverride override : overrides) {
+                boolean wholeDay = override.getStartTime() == null && override.getEndTime() == null;
+                boolean validTimes = WeeklySchedule.isValid(
+                        override.getStartTime(), override.getEndTime(), override.getSlotMinutes());
+                if (override.getDate() == null || override.getType() == null
+                        || !WeeklySchedule.isValidSlotLength(override.getSlotMinutes())
+                        || (override.getType() == ScheduleOverride.Type.EXTRA && !validTimes)
+                        || (override.getType() == ScheduleOverride.Type.CLOSED && !wholeDay && !validTimes)) {
+                    return -2;
+                }
+                override.setId(null);
+                override.setDoctorId(doctorId);
+            }
 
-    // 10. findDoctorByName
-    @Transactional(readOnly = true)
-    public Map<String, Object> findDoctorByName(String name) {
-        return wrapDoctors(doctorRepository.findByNameLike(name));
+            scheduleRuleRepository.deleteByDoctorId(doctorId);
+            scheduleOverrideRepository.deleteByDoctorId(doctorId);
+            scheduleRuleRepository.saveAll(rules);
+            scheduleOverrideRepository.saveAll(overrides);
+            AfterCommit.run(() -> {
+                availabilityIndex.invalidateDoctor(doctorId);
+                // AM/PM membership follows the weekly rules
+                doctorDirectory.refresh(doctorId);
+                responseCache.bump();
+            });
+            return 1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
     }
 
-    // 11. filterDoctorsByNameSpecilityandTime
-    @Transactional(readOnly = true)
-    public Map<String, Object> filterDoctorsByNameSpecilityandTime(String name, String specialty, String amOrPm) {
-        List<Doctor> doctors = doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(name, specialty);
-        return wrapDoctors(filterDoctorByTime(doctors, amOrPm));
+    // 9. validateDoctor
+    // Completes with the token, or "Invalid Credentials". The password check runs on the hashing pool.
+    public CompletableFuture<String> validateDoctor(Login login) {
+        Doctor doctor = doctorRepository.findByEmail(login.getEmail());
+        if (doctor == null || doctor.isRetired()) {
+            // Costs as much as a real check, so unknown accounts do not answer faster
+            return service.authenticateUnknown(login.getPassword()).thenApply(valid -> "Invalid Credentials");
+        }
+        return service.authenticateLogin(login.getPassword(), doctor.getPassword(),
+                        hash -> doctorRepository.updatePassword(doctor.getId(), hash))
+                // Role and id travel in the token, so later requests validate without a lookup
+                .thenApply(valid -> valid
+                        ? tokenService.generateToken(doctor.getEmail(), "doctor", doctor.getId())
+                        : "Invalid Credentials");
     }
 
-    // 17. filterDoctorsByTime
-    @Transactional(readOnly = true)
-    public Map<String, Object> filterDoctorsByTime(String amOrPm) {
-        List<Doctor> allDoctors = doctorRepository.findAll();
-        return wrapDoctors(filterDoctorByTime(allDoctors, amOrPm));
-    }
+    // --------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------
 
-    // 13. filterDoctorByNameAndTime
-    @Transactional(readOnly = true)
-    public Map<String, Object> filterDoctorByNameAndTime(String name, String amOrPm) {
-        List<Doctor> doctors = doctorRepository.findByNameLike(name);
-        return wrapDoctors(filterDoctorByTime(doctors, amOrPm));
+    // "i:<id>" or "n:<id>:<name>", base64url-encoded so it can travel in a query string
+    private static String encodeCursor(Doctor last, boolean byName) {
+        String key = byName ? "n:" + last.getId() + ":" + last.getName() : "i:" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
     }
 
-    // 14. filterDoctorByNameAndSpecility
-    @Transactional(readOnly = true)
-    public Map<String, Object> filterDoctorByNameAndSpecility(String name, String specialty) {
-        return wrapDoctors(doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(name, specialty));
+    private static String[] decodeCursor(String cursor, boolean byName) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split(":", 3);
+            if (byName && parts.length == 3 && parts[0].equals("n")) {
+                Long.parseLong(parts[1]);
+                return new String[]{parts[1], parts[2]};
+            }
+            if (!byName && parts.length == 2 && parts[0].equals("i")) {
+                Long.parseLong(parts[1]);
+                return new String[]{parts[1]};
+            }
+        } catch (IllegalArgumentException e) {
+            // Not base64, or not a number; reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor for this sort order");
     }
 
-    // 15. filterDoctorByTimeAndSpecility
-    @Transactional(readOnly = true)
-    public Map<String, Object> filterDoctorByTimeAndSpecility(String time, String specialty) {
-        List<Doctor> doctors = doctorRepository.findBySpecialtyIgnoreCase(specialty);
-        return wrapDoctors(filterDoctorByTime(doctors, time));
-    }
+    // --------------------------------------------------------------------------------
+    // Filtering Methods
+    // --------------------------------------------------------------------------------
 
-    // 16. filterDoctorBySpecility
+    // 10. searchDoctors
+    // One dynamic query for every combination of name, specialty and AM/PM; criteria that are null are
+    // left out. Filtering and paging both happen in MySQL, so only the requested page is transferred.
+    // The page's time slots are loaded before returning, in batches (see Doctor.availableTimes).
     @Transactional(readOnly = true)
-    public Map<String, Object> filterDoctorBySpecility(String specialty) {
-        return wrapDoctors(doctorRepository.findBySpecialtyIgnoreCase(specialty));
+    public Page<Doctor> searchDoctors(String name, String specialty, String amOrPm, Pageable pageable) {
+        Page<Doctor> page = doctorRepository.findAll(DoctorSpecifications.matching(name, specialty, amOrPm), pageable);
+        page.forEach(doctor -> Hibernate.initialize(doctor.getAvailableTimes()));
+        return page;
     }
-}
\ No newline at end of file
+}
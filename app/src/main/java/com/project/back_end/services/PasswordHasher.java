@@ -0,0 +1,140 @@
+package com.project.back_end.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Runs BCrypt hashing and verification on a dedicated, bounded worker pool.
+// Each verification costs tens of milliseconds of CPU; keeping it off the request threads means a
+// login burst queues here (up to queue-capacity) and is rejected fast beyond that, instead of
+// tying up every Tomcat thread.
+@Component
+public class PasswordHasher {
+
+    public enum Verification { MATCH, MATCH_NEEDS_REHASH, MISMATCH }
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]\\$(0[4-9]|[12][0-9]|3[01])\\$[./A-Za-z0-9]{53}$");
+
+    @Value("${security.password.bcrypt-strength:10}")
+    private int strength;
+
+    // 0 means one worker per CPU core
+    @Value("${security.password.pool-size:0}")
+    private int poolSize;
+
+    @Value("${security.password.queue-capacity:256}")
+    private int queueCapacity;
+
+    private BCryptPasswordEncoder encoder;
+    private String unknownUserHash; // compared against for logins of users that do not exist
+    private ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PasswordHasher() {}
+
+    // Used outside Spring (benchmarks)
+    public PasswordHasher(int strength, int poolSize, int queueCapacity) {
+        this.strength = strength;
+        this.poolSize = poolSize;
+        this.queueCapacity = queueCapacity;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.unknownUserHash = encoder.encode(UUID.randomUUID().toString());
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    // Hashes a password with the current cost. Fails with RejectedExecutionException when saturated.
+    public CompletableFuture<String> hash(String raw) {
+        return submit(() -> encoder.encode(raw));
+    }
+
+    // Checks a password against its stored form. Stored values that are not BCrypt hashes
+    // (accounts created before hashing was introduced) are compared directly and flagged for rehash,
+    // as are hashes made with a lower cost than the current one.
+    public CompletableFuture<Verification> verify(String raw, String stored) {
+        if (raw == null || stored == null) {
+            return CompletableFuture.completedFuture(Verification.MISMATCH);
+        }
+        if (!isBcrypt(stored)) {
+            boolean equal = MessageDigest.isEqual(raw.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+            return CompletableFuture.completedFuture(equal ? Verification.MATCH_NEEDS_REHASH : Verification.MISMATCH);
+        }
+        return submit(() -> {
+            if (!encoder.matches(raw, stored)) {
+                return Verification.MISMATCH;
+            }
+            return encoder.upgradeEncoding(stored) ? Verification.MATCH_NEEDS_REHASH : Verification.MATCH;
+        });
+    }
+
+    // Does the work of verify() for a login whose user does not exist and always completes with MISMATCH,
+    // so the response time does not tell which accounts exist
+    public CompletableFuture<Verification> verifyUnknown(String raw) {
+        String attempt = raw != null ? raw : "";
+        return submit(() -> {
+            encoder.matches(attempt, unknownUserHash);
+            return Verification.MISMATCH;
+        });
+    }
+
+    // True for a well-formed BCrypt hash ($2a$/$2b$/$2y$, two-digit cost, 53 characters of salt and hash),
+    // e.g. a password hashed by the system an account is imported from
+    public static boolean isBcryptHash(String value) {
+        return value != null && BCRYPT_HASH.matcher(value).matches();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static boolean isBcrypt(String stored) {
+        return stored.startsWith("$2a$") || stored.startsWith("$2b$") || stored.startsWith("$2y$");
+    }
+}
@@ -1,9 +1,9 @@
 package com.project.back_end.services;
 
 import com.project.back_end.DTO.AppointmentDTO;
-import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
 import com.project.back_end.repo.PatientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -12,10 +12,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 // 1. Add @Service Annotation
 @Service
@@ -24,49 +25,54 @@ public class PatientService {
     private final PatientRepository patientRepository;
     private final AppointmentRepository appointmentRepository;
     private final TokenService tokenService;
+    private final PasswordHasher passwordHasher;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
 
     // 2. Constructor Injection for Dependencies
     @Autowired
     public PatientService(PatientRepository patientRepository, 
                           AppointmentRepository appointmentRepository, 
-                          TokenService tokenService) {
+                          TokenService tokenService,
+                          PasswordHasher passwordHasher,
+                          ArchivedAppointmentRepository archivedAppointmentRepository) {
         this.patientRepository = patientRepository;
         this.appointmentRepository = appointmentRepository;
         this.tokenService = tokenService;
+        this.passwordHasher = passwordHasher;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
     }
 
     // 3. createPatient Method
-    // Returns 1 on success, 0 on failure.
-    public int createPatient(Patient patient) {
-        try {
-            patientRepository.save(patient);
-            return 1;
-        } catch (Exception e) {
-            System.err.println("Error creating patient: " + e.getMessage());
-            return 0;
-        }
+    // Hashes the password on the hashing pool, then saves the patient; the request thread does not wait.
+    // Completes with 1 on success, 0 on failure; fails with RejectedExecutionException when the pool is saturated.
+    public CompletableFuture<Integer> createPatient(Patient patient) {
+        return passwordHasher.hash(patient.getPassword()).thenApply(hash -> {
+            try {
+                patient.setPassword(hash);
+                patientRepository.save(patient);
+                return 1;
+            } catch (Exception e) {
+                System.err.println("Error creating patient: " + e.getMessage());
+                return 0;
+            }
+        });
     }
 
     // 4. getPatientAppointment Method
-    // Validates token against ID and returns appointments as DTOs.
+    // Checks the authenticated patient against the requested ID and returns appointments as DTOs.
     @Transactional(readOnly = true)
-    public ResponseEntity<Map<String, Object>> getPatientAppointment(Long id, String token) {
+    public ResponseEntity<Map<String, Object>> getPatientAppointment(Long id, Long patientId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            // Validate Token: Extract email and check against requested ID
-            String email = tokenService.getEmailFromToken(token);
-            Patient patient = patientRepository.findByEmail(email);
-
-            if (patient == null || !patient.getId().equals(id)) {
+            // The caller was resolved from the token; it may only read its own appointments
+            if (patientId == null || !patientId.equals(id)) {
                 response.put("message", "Unauthorized access.");
                 return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
             }
 
-            // Fetch appointments
-            List<Appointment> appointments = appointmentRepository.findByPatientId(id);
-
-            // Convert to DTOs
-            List<AppointmentDTO> dtos = convertToDTOs(appointments);
+            // Fetch appointments, selected straight into DTOs, from both hot and archived storage
+            List<AppointmentDTO> dtos = merge(archivedAppointmentRepository.findDtosByPatientId(id),
+                    appointmentRepository.findDtosByPatientId(id));
 
             response.put("appointments", dtos);
             return new ResponseEntity<>(response, HttpStatus.OK);
@@ -93,10 +99,14 @@ public class PatientService {
                 return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
             }
 
-            List<Appointment> appointments = appointmentRepository
-                    .findByPatientIdAndStatusOrderByAppointmentTimeAsc(id, status);
+            // Upcoming appointments are never archived; past ones may be in either table
+            List<AppointmentDTO> appointments = appointmentRepository.findDtosByPatientIdAndStatus(id, status);
+            if (status != 0) {
+                appointments = merge(archivedAppointmentRepository.findDtosByPatientIdAndStatus(id, status),
+                        appointments);
+            }
 
-            response.put("appointments", convertToDTOs(appointments));
+            response.put("appointments", appointments);
             return new ResponseEntity<>(response, HttpStatus.OK);
 
         } catch (Exception e) {
@@ -111,10 +121,11 @@ public class PatientService {
     public ResponseEntity<Map<String, Object>> filterByDoctor(String name, Long patientId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Appointment> appointments = appointmentRepository
-                    .filterByDoctorNameAndPatientId(name, patientId);
+            List<AppointmentDTO> appointments = merge(
+                    archivedAppointmentRepository.filterDtosByDoctorNameAndPatientId(name, patientId),
+                    appointmentRepository.filterDtosByDoctorNameAndPatientId(name, patientId));
 
-            response.put("appointments", convertToDTOs(appointments));
+            response.put("appointments", appointments);
             return new ResponseEntity<>(response, HttpStatus.OK);
 
         } catch (Exception e) {
@@ -139,10 +150,14 @@ public class PatientService {
                 return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
             }
 
-            List<Appointment> appointments = appointmentRepository
-                    .filterByDoctorNameAndPatientIdAndStatus(name, patientId, status);
+            List<AppointmentDTO> appointments = appointmentRepository
+                    .filterDtosByDoctorNameAndPatientIdAndStatus(name, patientId, status);
+            if (status != 0) {
+                appointments = merge(archivedAppointmentRepository
+                        .filterDtosByDoctorNameAndPatientIdAndStatus(name, patientId, status), appointments);
+            }
 
-            response.put("appointments", convertToDTOs(appointments));
+            response.put("appointments", appointments);
             return new ResponseEntity<>(response, HttpStatus.OK);
 
         } catch (Exception e) {
@@ -152,12 +167,11 @@ public class PatientService {
     }
 
     // 8. getPatientDetails Method
-    // Fetches patient details based on token.
-    public ResponseEntity<Map<String, Object>> getPatientDetails(String token) {
+    // Fetches details of the authenticated patient.
+    public ResponseEntity<Map<String, Object>> getPatientDetails(Long patientId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            String email = tokenService.getEmailFromToken(token);
-            Patient patient = patientRepository.findByEmail(email);
+            Patient patient = patientRepository.findById(patientId).orElse(null);
 
             if (patient != null) {
                 response.put("patient", patient);
@@ -172,21 +186,15 @@ public class PatientService {
         }
     }
 
-    // Helper Method: Convert Entity List to DTO List
-    private List<AppointmentDTO> convertToDTOs(List<Appointment> appointments) {
-        if (appointments == null) return new ArrayList<>();
-        
-        return appointments.stream().map(a -> new AppointmentDTO(
-                a.getId(),
-                a.getDoctor().getId(),
-                a.getDoctor().getName(),
-                a.getPatient().getId(),
-                a.getPatient().getName(),
-                a.getPatient().getEmail(),
-                a.getPatient().getPhone(),
-                a.getPatient().getAddress(),
-                a.getAppointmentTime(),
-                a.getStatus()
-        )).collect(Collectors.toList());
+    // Helper Method: Combine archived and hot rows of a history view, oldest first
+    private static List<AppointmentDTO> merge(List<AppointmentDTO> archived, List<AppointmentDTO> hot) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<AppointmentDTO> all = new ArrayList<>(archived.size() + hot.size());
+        all.addAll(archived);
+        all.addAll(hot);
+        all.sort(Comparator.comparing(AppointmentDTO::getAppointmentTime));
+        return all;
     }
 }
@@ -0,0 +1,124 @@
+package com.project.back_end.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.project.back_end.models.Prescription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Read-through cache of the prescriptions of an appointment, in front of PrescriptionRepository.findByAppointmentId.
+// Prescriptions never change once written, so a loaded list stays valid until a prescription is added, which
+// PrescriptionService.savePrescription and PrescriptionOutboxRelay report through invalidate().
+// "No prescription yet" is cached too, but only for negative-ttl-seconds: a prescription written by another
+// instance is not reported here, and this bounds how long it can stay hidden.
+// Bounded by max-bytes of estimated entry size; every entry weighs at least max-bytes / max-entries, so the
+// same bound also caps the entry count. Eviction is Caffeine's (W-TinyLFU).
+@Component
+public class PrescriptionCache {
+
+    // Rough per-object overheads (headers, references, boxed id) used by the weigher
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int PRESCRIPTION_OVERHEAD = 80;
+
+    private final Cache<Long, List<Prescription>> prescriptions;
+    private final int minWeight;
+    private final AtomicLong emptyResults = new AtomicLong();
+
+    @Autowired
+    public PrescriptionCache(@Value("${prescription.cache.max-entries:50000}") long maxEntries,
+                             @Value("${prescription.cache.max-bytes:33554432}") long maxBytes,
+                             @Value("${prescription.cache.ttl-minutes:60}") long ttlMinutes,
+                             @Value("${prescription.cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.minWeight = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / Math.max(1, maxEntries)));
+        this.prescriptions = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long appointmentId, List<Prescription> list) -> weight(list))
+                .expireAfter(new PrescriptionExpiry(TimeUnit.MINUTES.toNanos(ttlMinutes),
+                        TimeUnit.SECONDS.toNanos(negativeTtlSeconds)))
+                .recordStats()
+                .build();
+    }
+
+    // The prescriptions of an appointment, from the cache or else from `loader` (then cached, empty or not)
+    public List<Prescription> get(Long appointmentId, Function<Long, List<Prescription>> loader) {
+        List<Prescription> cached = prescriptions.get(appointmentId, id -> List.copyOf(loader.apply(id)));
+        if (cached.isEmpty()) {
+            emptyResults.incrementAndGet();
+        }
+        return cached;
+    }
+
+    // Called once a prescription for the appointment is in Mongo
+    public void invalidate(Long appointmentId) {
+        prescriptions.invalidate(appointmentId);
+    }
+
+    public void invalidateAll(Collection<Long> appointmentIds) {
+        prescriptions.invalidateAll(appointmentIds);
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = prescriptions.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", prescriptions.estimatedSize());
+        result.put("weightedBytes", prescriptions.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("emptyResults", emptyResults.get());
+        return result;
+    }
+
+    private int weight(List<Prescription> list) {
+        long bytes = ENTRY_OVERHEAD;
+        for (Prescription prescription : list) {
+            bytes += PRESCRIPTION_OVERHEAD + chars(prescription.getId()) + chars(prescription.getPatientName())
+                    + chars(prescription.getMedication()) + chars(prescription.getDosage())
+                    + chars(prescription.getDoctorNotes());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(bytes, minWeight));
+    }
+
+    private static long chars(String value) {
+        return value == null ? 0 : 40L + value.length();
+    }
+
+    // Found lists live for ttl-minutes, empty ones for negative-ttl-seconds; reads do not extend either
+    private static final class PrescriptionExpiry implements Expiry<Long, List<Prescription>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        PrescriptionExpiry(long ttlNanos, long negativeTtlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.negativeTtlNanos = negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(Long key, List<Prescription> value, long currentTime) {
+            return value.isEmpty() ? negativeTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long key, List<Prescription> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long key, List<Prescription> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.models.PrescriptionOutbox;
+import com.project.back_end.repo.PrescriptionOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Transactional outbox between MySQL and Mongo for prescriptions.
+// submit() writes the prescription into `prescription_outbox` and marks the appointment completed in one
+// MySQL transaction, so a request only waits for MySQL and the two can never disagree.
+// relay() copies pending rows to Mongo in batches, each batch one transaction: lock up to batch-size due rows
+// (SKIP LOCKED, so several instances can relay side by side), insert them with one unordered bulk write, then
+// close the rows that made it and push back the rest with exponential backoff.
+// Every row is written with the document id "outbox-<row id>", so a batch replayed after a crash between the
+// Mongo write and the MySQL commit finds its own documents already there and simply closes the rows.
+@Component
+public class PrescriptionOutboxRelay {
+
+    static final String ID_PREFIX = "outbox-";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final PrescriptionOutboxRepository outboxRepository;
+    private final AppointmentService appointmentService;
+    private final MongoTemplate mongoTemplate;
+    private final PrescriptionCache prescriptionCache;
+    private final PrescriptionService prescriptionService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long retryMaxMillis;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong relayed = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Autowired
+    public PrescriptionOutboxRelay(PrescriptionOutboxRepository outboxRepository,
+                                   AppointmentService appointmentService,
+                                   MongoTemplate mongoTemplate,
+                                   PrescriptionCache prescriptionCache,
+                                   PrescriptionService prescriptionService,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${prescription.outbox.batch-size:100}") int batchSize,
+                                   @Value("${prescription.outbox.max-batches-per-run:50}") int maxBatchesPerRun,
+                                   @Value("${prescription.outbox.retry-max-ms:300000}") long retryMaxMillis) {
+        this.outboxRepository = outboxRepository;
+        this.appointmentService = appointmentService;
+        this.mongoTemplate = mongoTemplate;
+        this.prescriptionCache = prescriptionCache;
+        this.prescriptionService = prescriptionService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.retryMaxMillis = retryMaxMillis;
+    }
+
+    // **submit**
+    // Records the prescription, stamped with the appointment's patient, and completes its appointment atomically.
+    // Returns 1 if accepted, 0 if the appointment already has a prescription, -1 if there is no such
+    // appointment (nothing is recorded), -2 on error.
+    public int submit(Prescription prescription) {
+        try {
+            prescription.setId(null);
+            Boolean found = transactionTemplate.execute(status -> {
+                if (appointmentService.changeStatus(1, prescription.getAppointmentId()) == 0) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                prescription.setPatientId(appointmentService.findPatientId(prescription.getAppointmentId()));
+                outboxRepository.saveAndFlush(new PrescriptionOutbox(prescription.getAppointmentId(),
+                        toJson(prescription), LocalDateTime.now()));
+                return true;
+            });
+            if (!Boolean.TRUE.equals(found)) {
+                return -1;
+            }
+            submitted.incrementAndGet();
+            return 1;
+        } catch (DataIntegrityViolationException e) {
+            return 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -2;
+        }
+    }
+
+    // Relays due rows, at most max-batches-per-run batches per call. Returns the number of rows closed.
+    // Rows wait while the unique index on appointmentId is missing: a conflicting prescription would
+    // otherwise be written next to the existing one instead of being rejected.
+    @Scheduled(fixedDelayString = "${prescription.outbox.interval-ms:1000}",
+               initialDelayString = "${prescription.outbox.initial-delay-ms:10000}")
+    public int relay() {
+        if (!prescriptionService.isUniqueIndexReady()) {
+            return 0;
+        }
+        int closed = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int[] result;
+            try {
+                result = transactionTemplate.execute(status -> relayBatch(LocalDateTime.now()));
+            } catch (Exception e) {
+                System.err.println("Prescription outbox relay failed: " + e.getMessage());
+                break;
+            }
+            if (result == null) {
+                break;
+            }
+            closed += result[1];
+            // Stop on a short batch, or when nothing went through (Mongo is most likely down)
+            if (result[0] < batchSize || result[1] == 0) {
+                break;
+            }
+        }
+        return closed;
+    }
+
+    // Returns {rows loaded, rows closed}
+    private int[] relayBatch(LocalDateTime now) {
+        List<PrescriptionOutbox> rows = outboxRepository.findDue(now, Limit.of(batchSize));
+        if (rows.isEmpty()) {
+            return new int[] {0, 0};
+        }
+
+        List<PrescriptionOutbox> pending = new ArrayList<>(rows.size());
+        List<Prescription> documents = new ArrayList<>(rows.size());
+        for (PrescriptionOutbox row : rows) {
+            try {
+                Prescription prescription = objectMapper.readValue(row.getPayload(), Prescription.class);
+                prescription.setId(ID_PREFIX + row.getId());
+                pending.add(row);
+                documents.add(prescription);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                // Retrying cannot help; keep the payload for inspection and stop polling the row
+                row.setNextAttemptAt(null);
+                row.setLastError(truncate("Unreadable payload: " + e.getMessage()));
+                failed.incrementAndGet();
+            }
+        }
+
+        List<Long> done = new ArrayList<>(pending.size());
+        List<Long> present = new ArrayList<>(pending.size()); // appointments that now have a prescription in Mongo
+        Map<Integer, BulkWriteError> errors = new HashMap<>();
+        if (!documents.isEmpty()) {
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Prescription.class).insert(documents).execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    errors.put(error.getIndex(), error);
+                }
+            } catch (Exception e) {
+                // Nothing is known to have been written: the whole batch goes round again
+                for (PrescriptionOutbox row : pending) {
+                    retryLater(row, now, e.getMessage());
+                }
+                return new int[] {rows.size(), 0};
+            }
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            PrescriptionOutbox row = pending.get(i);
+            BulkWriteError error = errors.get(i);
+            if (error == null) {
+                done.add(row.getId());
+                present.add(row.getAppointmentId());
+                relayed.incrementAndGet();
+            } else if (error.getCode() == DUPLICATE_KEY) {
+                done.add(row.getId());
+                present.add(row.getAppointmentId());
+                if (mongoTemplate.findById(ID_PREFIX + row.getId(), Prescription.class) != null) {
+                    // Written by an earlier attempt whose MySQL commit was lost
+                    relayed.incrementAndGet();
+                } else {
+                    // Another prescription for the appointment reached Mongo first; it stays authoritative
+                    row.setLastError("A prescription already existed for this appointment");
+                    conflicts.incrementAndGet();
+                }
+            } else {
+                retryLater(row, now, error.getMessage());
+            }
+        }
+
+        // The documents are readable in Mongo from here on, whatever happens to this transaction
+        prescriptionCache.invalidateAll(present);
+
+        if (!done.isEmpty()) {
+            // Flushes the error notes set above before the bulk UPDATE closes the rows
+            outboxRepository.flush();
+            outboxRepository.markRelayed(done, now);
+        }
+        return new int[] {rows.size(), done.size()};
+    }
+
+    private String toJson(Prescription prescription) {
+        try {
+            return objectMapper.writeValueAsString(prescription);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    // Exponential backoff from one second, capped at retry-max-ms
+    private void retryLater(PrescriptionOutbox row, LocalDateTime now, String message) {
+        int attempts = row.getAttempts() + 1;
+        long delay = Math.min(retryMaxMillis, 1000L << Math.min(attempts - 1, 30));
+        row.setAttempts(attempts);
+        row.setNextAttemptAt(now.plusNanos(delay * 1_000_000L));
+        row.setLastError(truncate(message));
+        retries.incrementAndGet();
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    // Counters for monitoring
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("submitted", submitted.get());
+        stats.put("relayed", relayed.get());
+        stats.put("conflicts", conflicts.get());
+        stats.put("retries", retries.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+}
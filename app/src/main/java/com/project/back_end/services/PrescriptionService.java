@@ -1,50 +1,132 @@
 package com.project.back_end.services;
 
 import com.project.back_end.models.Prescription;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.PrescriptionOutboxRepository;
 import com.project.back_end.repo.PrescriptionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 // 1. Add @Service Annotation
 @Service
 public class PrescriptionService {
 
     private final PrescriptionRepository prescriptionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final AppointmentRepository appointmentRepository;
+    private final PrescriptionOutboxRepository outboxRepository;
+    private final PrescriptionCache prescriptionCache;
+    private final int historyChunkSize;
+    private volatile boolean uniqueIndexReady;
 
     // 2. Constructor Injection for Dependencies
     @Autowired
-    public PrescriptionService(PrescriptionRepository prescriptionRepository) {
+    public PrescriptionService(PrescriptionRepository prescriptionRepository,
+                               MongoTemplate mongoTemplate,
+                               AppointmentRepository appointmentRepository,
+                               PrescriptionOutboxRepository outboxRepository,
+                               PrescriptionCache prescriptionCache,
+                               @Value("${prescription.history.chunk-size:1000}") int historyChunkSize) {
         this.prescriptionRepository = prescriptionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.appointmentRepository = appointmentRepository;
+        this.outboxRepository = outboxRepository;
+        this.prescriptionCache = prescriptionCache;
+        this.historyChunkSize = historyChunkSize;
+    }
+
+    // ensureIndexes Method
+    // Creates the prescription indexes (a no-op when they exist) and returns whether they now exist. The
+    // unique index on appointmentId is what keeps an appointment to one prescription, so a failure is
+    // reported loudly; it fails, for instance, while Mongo is unreachable or the collection still holds
+    // duplicates. Until it succeeds, savePrescription checks for an existing prescription itself and the
+    // outbox relay holds its rows back.
+    public boolean ensureIndexes() {
+        try {
+            mongoTemplate.indexOps(Prescription.class).ensureIndex(
+                    new Index().on("appointmentId", Sort.Direction.ASC).unique().named("uk_prescription_appointment"));
+            mongoTemplate.indexOps(Prescription.class).ensureIndex(
+                    new Index().on("patientId", Sort.Direction.ASC).named("idx_prescription_patient"));
+            uniqueIndexReady = true;
+            return true;
+        } catch (Exception e) {
+            System.err.println("Could not create the prescription indexes: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Whether the unique index on appointmentId is known to exist
+    public boolean isUniqueIndexReady() {
+        return uniqueIndexReady;
+    }
+
+    // Runs ensureIndexes at startup on its own thread, so an unreachable Mongo does not hold up the
+    // application for the driver's server selection timeout, and retries it until it succeeds, backing
+    // off from five seconds to five minutes between attempts
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexesOnStartup() {
+        Thread thread = new Thread(() -> {
+            long delayMillis = 5_000;
+            while (!ensureIndexes()) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                delayMillis = Math.min(delayMillis * 2, 300_000);
+            }
+        }, "prescription-indexes");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     // 3. savePrescription Method
     // Saves a prescription if one does not already exist for the appointment.
+    // A single insert: the unique index on appointmentId rejects a second prescription for the same
+    // appointment, even when two doctors submit at the same moment. While that index is missing, an existing
+    // prescription is looked up first; this stops repeat submissions, though not two racing ones.
     // Returns ResponseEntity<Map<String, String>> as requested.
     public ResponseEntity<Map<String, String>> savePrescription(Prescription prescription) {
         Map<String, String> response = new HashMap<>();
         try {
-            // Check if a prescription already exists for the same appointment
-            List<Prescription> existing = prescriptionRepository.findByAppointmentId(prescription.getAppointmentId());
-
-            if (!existing.isEmpty()) {
-                // Return 400 Bad Request if it exists
-                response.put("message", "Prescription already exists for this appointment.");
-                return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+            prescription.setId(null);
+            if (!uniqueIndexReady && !prescriptionRepository.findByAppointmentId(prescription.getAppointmentId()).isEmpty()) {
+                throw new DuplicateKeyException("No unique index yet; appointment already has a prescription");
             }
-
-            // Save the new prescription
-            prescriptionRepository.save(prescription);
+            prescriptionRepository.insert(prescription);
+            prescriptionCache.invalidate(prescription.getAppointmentId());
 
             // Return 201 Created on success
             response.put("message", "Prescription saved");
             return new ResponseEntity<>(response, HttpStatus.CREATED);
 
+        } catch (DuplicateKeyException e) {
+            // Return 400 Bad Request if it exists (and drop a cached "none", which is evidently stale)
+            prescriptionCache.invalidate(prescription.getAppointmentId());
+            response.put("message", "Prescription already exists for this appointment.");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             // 5. Exception Handling
             response.put("message", "Error saving prescription: " + e.getMessage());
@@ -57,8 +139,8 @@ public class PrescriptionService {
     public ResponseEntity<Map<String, Object>> getPrescription(Long appointmentId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            // Retrieve prescriptions associated with the appointment ID
-            List<Prescription> prescriptions = prescriptionRepository.findByAppointmentId(appointmentId);
+            // Retrieve prescriptions associated with the appointment ID, through the cache
+            List<Prescription> prescriptions = prescriptionCache.get(appointmentId, prescriptionRepository::findByAppointmentId);
 
             // Return 200 OK with data
             response.put("prescriptions", prescriptions);
@@ -70,4 +152,78 @@ public class PrescriptionService {
             return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-}
\ No newline at end of file
+
+    // findPrescribedAppointmentIds Method
+    // Which of the given appointments have a prescription. Submissions still in the outbox count, so a
+    // prescription shows up as soon as the doctor has sent it. The rest are checked in Mongo with one $in
+    // query that returns only appointmentId, answered from the uk_prescription_appointment index alone.
+    public Set<Long> findPrescribedAppointmentIds(Collection<Long> appointmentIds) {
+        Set<Long> prescribed = new HashSet<>();
+        if (appointmentIds.isEmpty()) {
+            return prescribed;
+        }
+        prescribed.addAll(outboxRepository.findAppointmentIdsIn(appointmentIds));
+
+        List<Long> remaining = new ArrayList<>();
+        for (Long id : appointmentIds) {
+            if (!prescribed.contains(id)) {
+                remaining.add(id);
+            }
+        }
+        if (!remaining.isEmpty()) {
+            Query query = Query.query(Criteria.where("appointmentId").in(remaining));
+            query.fields().include("appointmentId").exclude("_id");
+            for (Prescription prescription : mongoTemplate.find(query, Prescription.class)) {
+                prescribed.add(prescription.getAppointmentId());
+            }
+        }
+        return prescribed;
+    }
+
+    // getMedicationHistory Method
+    // All prescriptions of a patient, newest appointment first. The completed appointments (hot and archived)
+    // come from MySQL in one query; their prescriptions from Mongo with one $in query per history-chunk-size
+    // ids, projected to the fields the history shows.
+    // Returns ResponseEntity<Map<String, Object>> with a "history" list.
+    public ResponseEntity<Map<String, Object>> getMedicationHistory(Long patientId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<Object[]> appointments = appointmentRepository.findCompletedHistory(patientId);
+            appointments.sort(Comparator.comparing((Object[] row) -> (LocalDateTime) row[1]).reversed());
+
+            Map<Long, List<Prescription>> byAppointment = new HashMap<>();
+            for (int from = 0; from < appointments.size(); from += historyChunkSize) {
+                List<Long> ids = new ArrayList<>();
+                for (Object[] row : appointments.subList(from, Math.min(from + historyChunkSize, appointments.size()))) {
+                    ids.add((Long) row[0]);
+                }
+                Query query = Query.query(Criteria.where("appointmentId").in(ids));
+                query.fields().include("appointmentId", "medication", "dosage", "doctorNotes").exclude("_id");
+                for (Prescription prescription : mongoTemplate.find(query, Prescription.class)) {
+                    byAppointment.computeIfAbsent(prescription.getAppointmentId(), id -> new ArrayList<>()).add(prescription);
+                }
+            }
+
+            List<Map<String, Object>> history = new ArrayList<>();
+            for (Object[] row : appointments) {
+                for (Prescription prescription : byAppointment.getOrDefault((Long) row[0], List.of())) {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("appointmentId", row[0]);
+                    entry.put("appointmentTime", row[1]);
+                    entry.put("doctorName", row[2]);
+                    entry.put("medication", prescription.getMedication());
+                    entry.put("dosage", prescription.getDosage());
+                    entry.put("doctorNotes", prescription.getDoctorNotes());
+                    history.add(entry);
+                }
+            }
+
+            response.put("history", history);
+            return new ResponseEntity<>(response, HttpStatus.OK);
+
+        } catch (Exception e) {
+            response.put("message", "Error fetching medication history: " + e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
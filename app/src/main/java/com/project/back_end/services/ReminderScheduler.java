@@ -0,0 +1,178 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.repo.AppointmentRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// In-process appointment reminders. Every upcoming scheduled appointment has an entry in a TimingWheel,
+// due reminder.lead-minutes before it starts. The wheel is filled from the database at startup and kept
+// current by AppointmentService after each booking, move, cancellation and status change.
+// A single "reminder-wheel" thread advances the wheel every tick, loads the due appointments in batches
+// of reminder.batch-size (skipping any no longer scheduled) and passes each batch to the ReminderSender.
+// Off by default (reminder.enabled=false): no ReminderSender ships with the application, and without one
+// nothing is scheduled, rather than reminders being counted as sent without reaching anyone.
+@Component
+public class ReminderScheduler {
+
+    private final AppointmentRepository appointmentRepository;
+    private final ReminderSender sender;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long leadMillis;
+    private final long tickMillis;
+    private final int batchSize;
+    private final TimingWheel wheel;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reminder-wheel");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public ReminderScheduler(AppointmentRepository appointmentRepository,
+                             @Nullable ReminderSender sender,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${reminder.enabled:false}") boolean enabled,
+                             @Value("${reminder.lead-minutes:60}") long leadMinutes,
+                             @Value("${reminder.tick-ms:1000}") long tickMillis,
+                             @Value("${reminder.wheel-size:4096}") int wheelSize,
+                             @Value("${reminder.batch-size:500}") int batchSize) {
+        this.appointmentRepository = appointmentRepository;
+        this.sender = sender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled && sender != null;
+        if (enabled && sender == null) {
+            System.err.println("reminder.enabled=true but no ReminderSender bean is registered; appointment reminders are off");
+        }
+        this.leadMillis = TimeUnit.MINUTES.toMillis(leadMinutes);
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.wheel = new TimingWheel(wheelSize, tickMillis, System.currentTimeMillis(), 1024);
+    }
+
+    // Loads the upcoming appointments and starts the ticker
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = appointmentRepository.streamUpcomingScheduled(LocalDateTime.now())) {
+                rows.forEach(row -> schedule((Long) row[0], (LocalDateTime) row[1]));
+            }
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    // (Re)schedules the reminder of an appointment starting at appointmentTime
+    public void schedule(Long appointmentId, LocalDateTime appointmentTime) {
+        if (!enabled || appointmentId == null || appointmentTime == null) {
+            return;
+        }
+        long startsAt = toMillis(appointmentTime);
+        synchronized (wheel) {
+            if (startsAt <= System.currentTimeMillis()) {
+                wheel.cancel(appointmentId);
+            } else {
+                wheel.schedule(appointmentId, startsAt - leadMillis);
+            }
+        }
+    }
+
+    public void cancel(Long appointmentId) {
+        if (!enabled || appointmentId == null) {
+            return;
+        }
+        synchronized (wheel) {
+            wheel.cancel(appointmentId);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (wheel) {
+            stats.put("pending", wheel.size());
+        }
+        stats.put("sent", sent.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private void tick() {
+        try {
+            dispatchDue(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // keep the ticker alive
+        }
+    }
+
+    // Sends the reminders due by nowMillis; returns how many were handed to the sender
+    int dispatchDue(long nowMillis) {
+        long[] due;
+        synchronized (wheel) {
+            due = wheel.advance(nowMillis);
+        }
+        int dispatched = 0;
+        for (int from = 0; from < due.length; from += batchSize) {
+            List<Long> ids = new ArrayList<>(Math.min(batchSize, due.length - from));
+            for (int i = from; i < Math.min(from + batchSize, due.length); i++) {
+                ids.add(due[i]);
+            }
+            List<AppointmentDTO> batch = new ArrayList<>(ids.size());
+            for (AppointmentDTO appointment : appointmentRepository.findScheduledDtosByIds(ids)) {
+                // Moved later by a writer that bypassed this instance: wait for the new time
+                if (toMillis(appointment.getAppointmentTime()) - leadMillis > nowMillis + tickMillis) {
+                    schedule(appointment.getId(), appointment.getAppointmentTime());
+                } else {
+                    batch.add(appointment);
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                sender.send(batch);
+                sent.addAndGet(batch.size());
+                dispatched += batch.size();
+            } catch (RuntimeException e) {
+                failed.addAndGet(batch.size());
+                System.err.println("Sending " + batch.size() + " reminders failed: " + e.getMessage());
+            }
+        }
+        return dispatched;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
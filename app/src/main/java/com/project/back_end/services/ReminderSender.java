@@ -0,0 +1,13 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+
+import java.util.List;
+
+// Delivers appointment reminders. ReminderScheduler hands over the reminders that fell due in one tick,
+// up to reminder.batch-size at a time. An exception fails the whole batch; it is counted, not retried.
+// No implementation ships with the application; register one and set reminder.enabled=true to send reminders.
+public interface ReminderSender {
+
+    void send(List<AppointmentDTO> reminders);
+}
@@ -0,0 +1,267 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Writes a doctor's appointments over a date range as iCalendar or CSV, straight to an output stream.
+// Archived and then hot appointments are read from forward-only cursors (see streamDoctorSchedule), one
+// table after the other, so only one result set is open on the connection at a time and memory use does
+// not depend on the length of the range. The whole export runs in one read-only transaction, which holds
+// a connection until the last row is written.
+@Component
+public class ScheduleExporter {
+
+    public enum Format {
+        ICS("text/calendar", "ics"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+
+        // Returns null for an unknown format name
+        public static Format parse(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name) || format.extension.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final DateTimeFormatter ICS_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final String CRLF = "\r\n";
+
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxDays;
+    private final long timeoutMillis;
+
+    @Autowired
+    public ScheduleExporter(AppointmentRepository appointmentRepository,
+                            ArchivedAppointmentRepository archivedAppointmentRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${schedule.export.max-days:731}") int maxDays,
+                            @Value("${schedule.export.timeout-ms:600000}") long timeoutMillis) {
+        this.appointmentRepository = appointmentRepository;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.maxDays = maxDays;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    // Longest range, in days, a single export may cover
+    public int getMaxDays() {
+        return maxDays;
+    }
+
+    // How long one export may stream before the request is timed out
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    // Writes the appointments of doctorId starting in [start, end) to out, which is left open.
+    // Returns the number of appointments written.
+    public int export(Long doctorId, LocalDateTime start, LocalDateTime end, Format format, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        Integer count;
+        try {
+            count = transactionTemplate.execute(status -> {
+                try {
+                    return write(doctorId, start, end, format, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return count != null ? count : 0;
+    }
+
+    private int write(Long doctorId, LocalDateTime start, LocalDateTime end, Format format, Writer writer)
+            throws IOException {
+        String stamp = ICS_TIME.format(LocalDateTime.now(ZoneOffset.UTC));
+        if (format == Format.ICS) {
+            writer.write("BEGIN:VCALENDAR" + CRLF + "VERSION:2.0" + CRLF
+                    + "PRODID:-//Clinic Management System//Schedule Export//EN" + CRLF
+                    + "CALSCALE:GREGORIAN" + CRLF + "METHOD:PUBLISH" + CRLF);
+        } else {
+            writer.write("id,start,end,status,patient_name,patient_email,patient_phone" + CRLF);
+        }
+
+        // 1. Archived rows that start before the first hot one go out as they are read. The archive only
+        // holds appointments older than the archiver's cutoff, so the rest (hot rows the archiver has not
+        // moved yet overlap them) are few and kept for the merge below.
+        LocalDateTime firstHot = appointmentRepository.findFirstScheduleTime(doctorId, start, end);
+        List<Object[]> archivedTail = new ArrayList<>();
+        int count = 0;
+        try (Stream<Object[]> archived = archivedAppointmentRepository.streamDoctorSchedule(doctorId, start, end)) {
+            Iterator<Object[]> rows = archived.iterator();
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                if (firstHot != null && !startOf(row).isBefore(firstHot)) {
+                    archivedTail.add(row);
+                } else {
+                    writeRow(row, format, stamp, writer);
+                    count++;
+                }
+            }
+        }
+
+        // 2. Hot rows, merged in start order with the archived tail
+        Iterator<Object[]> tail = archivedTail.iterator();
+        Object[] a = tail.hasNext() ? tail.next() : null;
+        try (Stream<Object[]> hot = appointmentRepository.streamDoctorSchedule(doctorId, start, end)) {
+            Iterator<Object[]> rows = hot.iterator();
+            while (rows.hasNext()) {
+                Object[] h = rows.next();
+                while (a != null && !startOf(a).isAfter(startOf(h))) {
+                    writeRow(a, format, stamp, writer);
+                    count++;
+                    a = tail.hasNext() ? tail.next() : null;
+                }
+                writeRow(h, format, stamp, writer);
+                count++;
+            }
+        }
+        while (a != null) {
+            writeRow(a, format, stamp, writer);
+            count++;
+            a = tail.hasNext() ? tail.next() : null;
+        }
+
+        if (format == Format.ICS) {
+            writer.write("END:VCALENDAR" + CRLF);
+        }
+        return count;
+    }
+
+    private static void writeRow(Object[] row, Format format, String stamp, Writer writer) throws IOException {
+        if (format == Format.ICS) {
+            writeEvent(row, stamp, writer);
+        } else {
+            writeCsvRow(row, writer);
+        }
+    }
+
+    // row: id, start time, status, patient name, email, phone
+
+    private static LocalDateTime startOf(Object[] row) {
+        return (LocalDateTime) row[1];
+    }
+
+    private static void writeEvent(Object[] row, String stamp, Writer writer) throws IOException {
+        LocalDateTime start = startOf(row);
+        int status = ((Number) row[2]).intValue();
+        writer.write("BEGIN:VEVENT" + CRLF);
+        writeLine(writer, "UID:appointment-" + row[0] + "@clinic");
+        writeLine(writer, "DTSTAMP:" + stamp);
+        writeLine(writer, "DTSTART:" + utc(start));
+        // Appointments last an hour, as in AppointmentDTO
+        writeLine(writer, "DTEND:" + utc(start.plusHours(1)));
+        writeLine(writer, "SUMMARY:" + escapeText("Appointment with " + row[3]));
+        writeLine(writer, "DESCRIPTION:" + escapeText("Patient: " + row[3] + "\nEmail: " + row[4] + "\nPhone: " + row[5]));
+        writeLine(writer, "STATUS:" + (status == Appointment.STATUS_CANCELLED ? "CANCELLED" : "CONFIRMED"));
+        writer.write("END:VEVENT" + CRLF);
+    }
+
+    private static void writeCsvRow(Object[] row, Writer writer) throws IOException {
+        LocalDateTime start = startOf(row);
+        writer.write(row[0] + "," + CSV_TIME.format(start) + "," + CSV_TIME.format(start.plusHours(1)) + ","
+                + statusName(((Number) row[2]).intValue()) + "," + csvField(row[3]) + "," + csvField(row[4]) + ","
+                + csvField(row[5]) + CRLF);
+    }
+
+    private static String utc(LocalDateTime time) {
+        return ICS_TIME.format(time.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC));
+    }
+
+    private static String statusName(int status) {
+        return switch (status) {
+            case Appointment.STATUS_SCHEDULED -> "Scheduled";
+            case Appointment.STATUS_COMPLETED -> "Completed";
+            case Appointment.STATUS_CANCELLED -> "Cancelled";
+            default -> String.valueOf(status);
+        };
+    }
+
+    // RFC 5545 TEXT escaping
+    static String escapeText(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\', ';', ',' -> escaped.append('\\').append(c);
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> { }
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    // Writes a content line, folded so that no physical line exceeds 75 octets (RFC 5545, 3.1)
+    static void writeLine(Writer writer, String line) throws IOException {
+        int octets = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            int size = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : Character.isLowSurrogate(c) ? 0 : 3;
+            if (octets + size > 75) {
+                writer.write(CRLF + " ");
+                octets = 1;
+            }
+            writer.write(c);
+            octets += size;
+        }
+        writer.write(CRLF);
+    }
+
+    // RFC 4180 quoting. A cell starting with =, +, - or @ (or a tab or carriage return) would be read as a
+    // formula by spreadsheet applications, so it is prefixed with a single quote.
+    static String csvField(Object value) {
+        String text = value == null ? "" : value.toString();
+        if (!text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
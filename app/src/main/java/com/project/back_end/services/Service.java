@@ -9,6 +9,13 @@ import com.project.back_end.repo.AdminRepository;
 import com.project.back_end.repo.DoctorRepository;
 import com.project.back_end.repo.PatientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -16,11 +23,18 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 // 1. @Service Annotation
 @org.springframework.stereotype.Service
 public class Service {
 
+    // Seconds a client turned away by the saturated hashing pool is asked to wait
+    private static final int BUSY_RETRY_AFTER_SECONDS = 1;
+
     // Declare necessary services and repositories
     private final TokenService tokenService;
     private final AdminRepository adminRepository;
@@ -28,6 +42,13 @@ public class Service {
     private final PatientRepository patientRepository;
     private final DoctorService doctorService;
     private final PatientService patientService;
+    private final PasswordHasher passwordHasher;
+    private final AvailabilityIndex availabilityIndex;
+    private final DoctorDirectory doctorDirectory;
+    private final DoctorResponseCache doctorResponseCache;
+    private final ReminderScheduler reminderScheduler;
+    private final PrescriptionCache prescriptionCache;
+    private final boolean doctorDirectoryEnabled;
 
     // 2. Constructor Injection for Dependencies
     @Autowired
@@ -36,13 +57,27 @@ public class Service {
                    DoctorRepository doctorRepository,
                    PatientRepository patientRepository,
                    DoctorService doctorService,
-                   PatientService patientService) {
+                   PatientService patientService,
+                   PasswordHasher passwordHasher,
+                   AvailabilityIndex availabilityIndex,
+                   DoctorDirectory doctorDirectory,
+                   DoctorResponseCache doctorResponseCache,
+                   ReminderScheduler reminderScheduler,
+                   PrescriptionCache prescriptionCache,
+                   @Value("${doctor.directory.enabled:true}") boolean doctorDirectoryEnabled) {
         this.tokenService = tokenService;
         this.adminRepository = adminRepository;
         this.doctorRepository = doctorRepository;
         this.patientRepository = patientRepository;
         this.doctorService = doctorService;
         this.patientService = patientService;
+        this.passwordHasher = passwordHasher;
+        this.availabilityIndex = availabilityIndex;
+        this.doctorDirectory = doctorDirectory;
+        this.doctorResponseCache = doctorResponseCache;
+        this.reminderScheduler = reminderScheduler;
+        this.prescriptionCache = prescriptionCache;
+        this.doctorDirectoryEnabled = doctorDirectoryEnabled;
     }
 
     // ----------------------------------------------------------------------
@@ -68,46 +103,100 @@ public class Service {
     }
 
     // 4. validateAdmin Method
-    // Validates admin credentials.
-    public ResponseEntity<Map<String, String>> validateAdmin(Admin receivedAdmin) {
-        Map<String, String> response = new HashMap<>();
+    // Validates admin credentials. The password check runs on the hashing pool, so the
+    // request thread is released while BCrypt works.
+    public CompletableFuture<ResponseEntity<Map<String, String>>> validateAdmin(Admin receivedAdmin) {
+        Admin admin;
         try {
-            Admin admin = adminRepository.findByUsername(receivedAdmin.getUsername());
-            if (admin != null && admin.getPassword().equals(receivedAdmin.getPassword())) {
-                String token = tokenService.generateToken(admin.getUsername());
-                response.put("token", token);
-                response.put("message", "Login successful");
-                return new ResponseEntity<>(response, HttpStatus.OK);
-            } else {
-                response.put("message", "Invalid credentials");
-                return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-            }
+            admin = adminRepository.findByUsername(receivedAdmin.getUsername());
         } catch (Exception e) {
-            response.put("message", "Internal Server Error");
-            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(loginFailure(e));
         }
+        CompletableFuture<Boolean> authenticated = (admin == null)
+                ? authenticateUnknown(receivedAdmin.getPassword())
+                : authenticateLogin(receivedAdmin.getPassword(), admin.getPassword(),
+                        hash -> adminRepository.updatePassword(admin.getId(), hash));
+        return authenticated
+                .thenApply(valid -> valid
+                        ? loginSuccess(tokenService.generateToken(admin.getUsername(), "admin", admin.getId()))
+                        : invalidCredentials())
+                .exceptionally(this::loginFailure);
     }
 
     // 8. validatePatientLogin Method
     // Validates patient credentials.
-    public ResponseEntity<Map<String, String>> validatePatientLogin(Login login) {
-        Map<String, String> response = new HashMap<>();
+    public CompletableFuture<ResponseEntity<Map<String, String>>> validatePatientLogin(Login login) {
+        Patient patient;
         try {
-            Patient patient = patientRepository.findByEmail(login.getEmail());
-            // Note: In a real app, use checkPassword() hash comparison here.
-            if (patient != null && patient.getPassword().equals(login.getPassword())) {
-                String token = tokenService.generateToken(patient.getEmail());
-                response.put("token", token);
-                response.put("message", "Login successful");
-                return new ResponseEntity<>(response, HttpStatus.OK);
-            } else {
-                response.put("message", "Invalid credentials");
-                return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-            }
+            patient = patientRepository.findByEmail(login.getEmail());
         } catch (Exception e) {
-            response.put("message", "Internal Server Error");
-            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(loginFailure(e));
+        }
+        CompletableFuture<Boolean> authenticated = (patient == null)
+                ? authenticateUnknown(login.getPassword())
+                : authenticateLogin(login.getPassword(), patient.getPassword(),
+                        hash -> patientRepository.updatePassword(patient.getId(), hash));
+        return authenticated
+                .thenApply(valid -> valid
+                        ? loginSuccess(tokenService.generateToken(patient.getEmail(), "patient", patient.getId()))
+                        : invalidCredentials())
+                .exceptionally(this::loginFailure);
+    }
+
+    // authenticateLogin Method
+    // Verifies a password on the hashing pool. When the stored value is legacy plaintext or was
+    // hashed with an older cost, it is rehashed in the background and saved through passwordUpdater.
+    public CompletableFuture<Boolean> authenticateLogin(String raw, String stored, Consumer<String> passwordUpdater) {
+        return passwordHasher.verify(raw, stored).thenApply(result -> {
+            if (result == PasswordHasher.Verification.MATCH_NEEDS_REHASH) {
+                passwordHasher.hash(raw).thenAccept(passwordUpdater);
+            }
+            return result != PasswordHasher.Verification.MISMATCH;
+        });
+    }
+
+    // authenticateUnknown Method
+    // Login attempt for a user that does not exist: spends the same BCrypt time as a real check and
+    // completes with false, so unknown and known accounts cannot be told apart by response time.
+    public CompletableFuture<Boolean> authenticateUnknown(String raw) {
+        return passwordHasher.verifyUnknown(raw).thenApply(result -> false);
+    }
+
+    // True if a request failed because the hashing pool was saturated
+    public static boolean isBusy(Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        return cause instanceof RejectedExecutionException;
+    }
+
+    // 503 for a request turned away by the saturated hashing pool, with a Retry-After hint
+    public static <T> ResponseEntity<T> busy(T body) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(BUSY_RETRY_AFTER_SECONDS))
+                .body(body);
+    }
+
+    private ResponseEntity<Map<String, String>> loginSuccess(String token) {
+        Map<String, String> response = new HashMap<>();
+        response.put("token", token);
+        response.put("message", "Login successful");
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    private ResponseEntity<Map<String, String>> invalidCredentials() {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Invalid credentials");
+        return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
+    }
+
+    private ResponseEntity<Map<String, String>> loginFailure(Throwable error) {
+        Map<String, String> response = new HashMap<>();
+        if (isBusy(error)) {
+            // Fast rejection: the client should retry instead of waiting on a full queue
+            response.put("message", "Too many login attempts, please retry shortly");
+            return busy(response);
         }
+        response.put("message", "Internal Server Error");
+        return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     // ----------------------------------------------------------------------
@@ -115,51 +204,53 @@ public class Service {
     // ----------------------------------------------------------------------
 
     // 5. filterDoctor Method
-    // Filters doctors based on criteria.
-    public Map<String, Object> filterDoctor(String name, String specialty, String time) {
-        if (name != null && specialty != null && time != null) {
-            return doctorService.filterDoctorsByNameSpecilityandTime(name, specialty, time);
-        } else if (name != null && time != null) {
-            return doctorService.filterDoctorByNameAndTime(name, time);
-        } else if (name != null && specialty != null) {
-            return doctorService.filterDoctorByNameAndSpecility(name, specialty);
-        } else if (time != null && specialty != null) {
-            return doctorService.filterDoctorByTimeAndSpecility(time, specialty);
-        } else if (name != null) {
-            return doctorService.findDoctorByName(name);
-        } else if (specialty != null) {
-            return doctorService.filterDoctorBySpecility(specialty);
-        } else if (time != null) {
-            return doctorService.filterDoctorsByTime(time);
+    // Filters doctors based on criteria and returns one page of them, ordered by id.
+    // Answered from the in-memory doctor directory without SQL; with the directory disabled
+    // (doctor.directory.enabled=false) a single paged query filters in MySQL instead.
+    // "null", "empty" and blank path values mean "no filter".
+    public Map<String, Object> filterDoctor(String name, String specialty, String time, int page, int size) {
+        String byName = criterion(name);
+        String bySpecialty = criterion(specialty);
+        String byTime = criterion(time);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+
+        Page<Doctor> doctors;
+        if (doctorDirectoryEnabled) {
+            List<Doctor> matches = doctorDirectory.search(byName, bySpecialty, byTime);
+            int from = (int) Math.min(pageable.getOffset(), matches.size());
+            int to = Math.min(from + size, matches.size());
+            doctors = new PageImpl<>(matches.subList(from, to), pageable, matches.size());
         } else {
-            // Return all doctors if no filter
-            Map<String, Object> response = new HashMap<>();
-            response.put("doctors", doctorService.getDoctors());
-            return response;
+            doctors = doctorService.searchDoctors(byName, bySpecialty, byTime, pageable);
         }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("doctors", doctors.getContent());
+        response.put("page", doctors.getNumber());
+        response.put("size", doctors.getSize());
+        response.put("totalElements", doctors.getTotalElements());
+        response.put("totalPages", doctors.getTotalPages());
+        return response;
+    }
+
+    private static String criterion(String value) {
+        if (value == null || value.isBlank() || value.equalsIgnoreCase("null") || value.equalsIgnoreCase("empty")) {
+            return null;
+        }
+        return value.trim();
     }
 
     // 6. validateAppointment Method
     // Validates if appointment time is available.
     // Returns: 1 (valid), 0 (unavailable), -1 (doctor not found)
     public int validateAppointment(Appointment appointment) {
-        Optional<Doctor> doctorOpt = doctorRepository.findById(appointment.getDoctor().getId());
-        
-        if (doctorOpt.isEmpty()) {
+        // Checked against the in-memory slot bitmap of that doctor and day
+        Boolean isAvailable = availabilityIndex.isSlotFree(
+                appointment.getDoctor().getId(), appointment.getAppointmentTime());
+
+        if (isAvailable == null) {
             return -1; // Doctor doesn't exist
         }
-
-        // Get available slots for the specific date
-        List<String> availableSlots = doctorService.getDoctorAvailability(
-                appointment.getDoctor().getId(), 
-                appointment.getAppointmentDate().toString()
-        );
-
-        // Check if requested time is in available slots
-        String requestedTime = appointment.getAppointmentTimeOnly().toString();
-        // Handle simpler HH:mm format matching if necessary
-        boolean isAvailable = availableSlots.stream().anyMatch(slot -> slot.startsWith(requestedTime));
-
         return isAvailable ? 1 : 0;
     }
 
@@ -170,15 +261,14 @@ public class Service {
     // 7. validatePatient Method
     // Checks if patient exists (returns false if exists, true if valid/new).
     public boolean validatePatient(Patient patient) {
-        Patient existing = patientRepository.findByEmailOrPhone(patient.getEmail(), patient.getPhone());
-        return existing == null; // Return true if patient does NOT exist (valid for registration)
+        // Return true if no patient has this email or phone (valid for registration)
+        return !patientRepository.existsByEmail(patient.getEmail())
+                && !patientRepository.existsByPhone(patient.getPhone());
     }
 
     // 9. filterPatient Method
-    // Filters patient appointments.
-    public ResponseEntity<Map<String, Object>> filterPatient(String condition, String name, String token) {
-        Long patientId = tokenService.getPatientIdFromToken(token);
-        
+    // Filters patient appointments for the already authenticated patient.
+    public ResponseEntity<Map<String, Object>> filterPatient(String condition, String name, Long patientId) {
         if (condition != null && name != null) {
             return patientService.filterByDoctorAndCondition(condition, name, patientId);
         } else if (condition != null) {
@@ -186,23 +276,39 @@ public class Service {
         } else if (name != null) {
             return patientService.filterByDoctor(name, patientId);
         } else {
-            return patientService.getPatientAppointment(patientId, token);
+            return patientService.getPatientAppointment(patientId, patientId);
         }
     }
 
+    // logout Method
+    // Revokes the given token so it can no longer be used, even before it expires.
+    public void logout(String token) {
+        tokenService.revokeToken(token);
+    }
+
+    // getCacheStats Method
+    // Reports hit/miss counters of the in-memory caches for monitoring.
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tokenCache", tokenService.getCacheStats());
+        stats.put("availabilityIndex", availabilityIndex.getStats());
+        stats.put("doctorResponses", doctorResponseCache.getStats());
+        stats.put("reminders", reminderScheduler.getStats());
+        stats.put("prescriptions", prescriptionCache.getStats());
+        return stats;
+    }
+
     // ----------------------------------------------------------------------
     // Utility Methods (Required by other services)
     // ----------------------------------------------------------------------
     
-    // Hashes a password (placeholder or simple hash)
-    public String hashPassword(String password) {
-        // In a real application, use BCrypt: return BCrypt.hashpw(password, BCrypt.gensalt());
-        return password; 
+    // Hashes a password with BCrypt on the hashing pool. Fails with RejectedExecutionException when saturated.
+    public CompletableFuture<String> hashPassword(String password) {
+        return passwordHasher.hash(password);
     }
 
-    // Checks a password
-    public boolean checkPassword(String raw, String hashed) {
-        // In a real application, use BCrypt: return BCrypt.checkpw(raw, hashed);
-        return raw.equals(hashed);
+    // Checks a password against its BCrypt hash (or legacy plaintext value) on the hashing pool
+    public CompletableFuture<Boolean> checkPassword(String raw, String hashed) {
+        return passwordHasher.verify(raw, hashed).thenApply(result -> result != PasswordHasher.Verification.MISMATCH);
     }
 }
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.project.back_end.services;
+
+import java.util.Arrays;
+
+// Hashed timing wheel of (id, deadline) entries, stored in primitive arrays.
+// Time is cut into ticks of tickMillis; an entry due at tick t sits in bucket t mod wheelSize, in a
+// doubly linked list threaded through int arrays, so schedule() and cancel() are O(1) and an entry costs
+// 50-100 bytes depending on how far the arrays have grown (no object per entry). Entries due a revolution or more ahead share buckets with
+// nearer ones and are skipped until their tick comes round.
+// Not thread-safe: callers synchronize (see ReminderScheduler).
+public class TimingWheel {
+
+    private static final int NONE = -1;
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final int mask;
+    private final int[] heads;
+
+    // Entry storage; free slots are chained through next[]
+    private long[] ids;
+    private long[] deadlines; // in ticks
+    private int[] next;
+    private int[] prev;
+    private int free = NONE;
+    private int used;
+
+    private final LongIntMap index;
+    private int size;
+    private long currentTick;
+
+    public TimingWheel(int wheelSize, long tickMillis, long startMillis, int initialCapacity) {
+        if (Integer.bitCount(wheelSize) != 1 || tickMillis <= 0) {
+            throw new IllegalArgumentException("wheelSize must be a power of two and tickMillis positive");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.mask = wheelSize - 1;
+        this.heads = new int[wheelSize];
+        Arrays.fill(heads, NONE);
+        int capacity = Math.max(16, initialCapacity);
+        this.ids = new long[capacity];
+        this.deadlines = new long[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.index = new LongIntMap(capacity);
+        this.currentTick = tickOf(startMillis);
+    }
+
+    // Schedules id to expire at deadlineMillis, replacing an earlier schedule of the same id.
+    // Deadlines are rounded up to a tick, so an entry never expires early.
+    // A deadline already passed expires on the next advance().
+    public void schedule(long id, long deadlineMillis) {
+        cancel(id);
+        long tick = Math.max(-Math.floorDiv(startMillis - deadlineMillis, tickMillis), currentTick + 1);
+        int slot = allocate();
+        ids[slot] = id;
+        deadlines[slot] = tick;
+        int bucket = (int) (tick & mask);
+        prev[slot] = NONE;
+        next[slot] = heads[bucket];
+        if (heads[bucket] != NONE) {
+            prev[heads[bucket]] = slot;
+        }
+        heads[bucket] = slot;
+        index.put(id, slot);
+        size++;
+    }
+
+    // Removes id; returns false if it was not scheduled
+    public boolean cancel(long id) {
+        int slot = index.remove(id);
+        if (slot == NONE) {
+            return false;
+        }
+        unlink(slot);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Moves the wheel to nowMillis and removes the entries due by then, returned oldest tick first
+    // (in no particular order within a tick). After a pause longer than a revolution every bucket
+    // is swept once.
+    public long[] advance(long nowMillis) {
+        long nowTick = tickOf(nowMillis);
+        if (nowTick <= currentTick) {
+            return new long[0];
+        }
+        long[] due = new long[16];
+        int count = 0;
+        long last = Math.min(nowTick, currentTick + mask + 1);
+        for (long tick = currentTick + 1; tick <= last; tick++) {
+            int slot = heads[(int) (tick & mask)];
+            while (slot != NONE) {
+                int following = next[slot];
+                if (deadlines[slot] <= nowTick) {
+                    if (count == due.length) {
+                        due = Arrays.copyOf(due, count * 2);
+                    }
+                    due[count++] = ids[slot];
+                    index.remove(ids[slot]);
+                    unlink(slot);
+                }
+                slot = following;
+            }
+        }
+        currentTick = nowTick;
+        return Arrays.copyOf(due, count);
+    }
+
+    private long tickOf(long millis) {
+        return Math.floorDiv(millis - startMillis, tickMillis);
+    }
+
+    private int allocate() {
+        if (free != NONE) {
+            int slot = free;
+            free = next[slot];
+            return slot;
+        }
+        if (used == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        return used++;
+    }
+
+    private void unlink(int slot) {
+        int bucket = (int) (deadlines[slot] & mask);
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            heads[bucket] = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        }
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    // Open-addressing long -> int map (linear probing, backward-shift deletion), values >= 0
+    private static final class LongIntMap {
+
+        private long[] keys;
+        private int[] values;
+        private int count;
+
+        LongIntMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, NONE);
+        }
+
+        void put(long key, int value) {
+            if ((count + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != NONE) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            count++;
+        }
+
+        int remove(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != NONE && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            int removed = values[i];
+            if (removed == NONE) {
+                return NONE;
+            }
+            // Shift later entries of the probe run back into the gap
+            int gap = i;
+            for (int j = (gap + 1) & mask; values[j] != NONE; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            values[gap] = NONE;
+            count--;
+            return removed;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            Arrays.fill(values, NONE);
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != NONE) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.project.back_end.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.project.back_end.repo.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Keeps the revocation list (logged-out tokens, deleted users) in a Bloom filter so that
+// the common case - a token that was never revoked - is answered without touching MySQL.
+// Only filter hits are confirmed against the revoked_token table.
+@Service
+public class TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Object filterLock = new Object();
+
+    @Value("${jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    private volatile BloomFilter filter;
+
+    // Keys that hit the filter but are not in the table; avoids a DB check per request for them
+    private final Cache<String, Boolean> falsePositives = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+
+    @Autowired
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository) {
+        this.revokedTokenRepository = revokedTokenRepository;
+    }
+
+    @PostConstruct
+    void init() {
+        reload();
+    }
+
+    // Rebuilds the filter from the table, dropping expired revocations.
+    // Runs periodically so revocations made by other instances are picked up.
+    @Scheduled(fixedDelayString = "${jwt.revocation.reload-ms:60000}",
+               initialDelayString = "${jwt.revocation.reload-ms:60000}")
+    @Transactional
+    public void reload() {
+        synchronized (filterLock) {
+            LocalDateTime now = LocalDateTime.now();
+            revokedTokenRepository.deleteExpired(now);
+            List<String> keys = revokedTokenRepository.findActiveKeys(now);
+            BloomFilter next = new BloomFilter(Math.max(expectedEntries, keys.size() * 2), FALSE_POSITIVE_RATE);
+            keys.forEach(next::add);
+            filter = next;
+            falsePositives.invalidateAll();
+        }
+    }
+
+    // Returns true if any of the keys has been revoked.
+    public boolean isRevoked(String... keys) {
+        BloomFilter current = filter;
+        for (String key : keys) {
+            if (key == null || !current.mightContain(key) || falsePositives.getIfPresent(key) != null) {
+                continue;
+            }
+            if (revokedTokenRepository.existsByRevocationKey(key)) {
+                return true;
+            }
+            falsePositives.put(key, Boolean.TRUE);
+        }
+        return false;
+    }
+
+    // Persists a revocation; revoking a key that is already revoked is a no-op, also when another
+    // instance inserts it concurrently. The filter is updated once the row is committed,
+    // so a concurrent reload cannot drop it.
+    @Transactional
+    public void revoke(String key, LocalDateTime expiresAt) {
+        revokedTokenRepository.insertIgnore(key, expiresAt);
+        AfterCommit.run(() -> {
+            synchronized (filterLock) {
+                filter.add(key);
+                falsePositives.invalidate(key);
+            }
+        });
+    }
+
+    public int filterSizeInBytes() {
+        return filter.sizeInBytes();
+    }
+}
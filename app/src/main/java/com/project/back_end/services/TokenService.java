@@ -1,18 +1,39 @@
 package com.project.back_end.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.project.back_end.DTO.AuthenticatedUser;
+import com.project.back_end.models.Admin;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AdminRepository;
 import com.project.back_end.repo.DoctorRepository;
 import com.project.back_end.repo.PatientRepository;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 // 1. @Component Annotation
 @Component
@@ -21,49 +42,98 @@ public class TokenService {
     private final AdminRepository adminRepository;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
+    private final TokenRevocationService revocationService;
+
+    // Tokens are valid for 7 days
+    private static final long TOKEN_TTL_MILLIS = 1000L * 60 * 60 * 24 * 7;
+
+    // Claims that make a token self-describing, so validation needs no database lookup
+    private static final String ROLE_CLAIM = "role";
+    private static final String ID_CLAIM = "uid";
 
     // Inject secret from application.properties
     @Value("${jwt.secret}")
     private String secret;
 
+    // Upper bound on the number of verified (token, role) pairs kept in memory
+    @Value("${jwt.cache.max-entries:10000}")
+    private long cacheMaxEntries;
+
+    // Key and parser are immutable and thread-safe, so they are built once instead of per request
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Verified-token cache: SHA-256(token) + role -> principal, dropped at the token's own expiry
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    // Number of signature verifications actually performed (cache misses that reached the parser)
+    private final AtomicLong parsedTokens = new AtomicLong();
+
     // 2. Constructor Injection for Dependencies
     @Autowired
     public TokenService(AdminRepository adminRepository, 
                         DoctorRepository doctorRepository, 
-                        PatientRepository patientRepository) {
+                        PatientRepository patientRepository,
+                        TokenRevocationService revocationService) {
         this.adminRepository = adminRepository;
         this.doctorRepository = doctorRepository;
         this.patientRepository = patientRepository;
+        this.revocationService = revocationService;
+    }
+
+    @PostConstruct
+    void init() {
+        // Uses Keys.hmacShaKeyFor() to convert the secret into a valid Key
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
     }
 
     // 3. getSigningKey Method
     // Retrieves the signing key used for JWT token signing.
     private SecretKey getSigningKey() {
-        // Uses Keys.hmacShaKeyFor() to convert the secret into a valid Key
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
     }
 
     // 4. generateToken Method
     // Generates a JWT token for a given user's identifier.
+    // Tokens without role/id claims are still accepted but need a repository lookup to validate.
     public String generateToken(String identifier) {
         return Jwts.builder()
                 .setSubject(identifier) // Sets the identifier (username/email) as subject
                 .setIssuedAt(new Date()) // Current date
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24 * 7)) // 7 days expiration
+                .setExpiration(new Date(System.currentTimeMillis() + TOKEN_TTL_MILLIS)) // 7 days expiration
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256) // Sign with key
                 .compact();
     }
 
+    // Generates a stateless token carrying the user's role and id, plus a unique token id (jti)
+    // so that a single token can be revoked on logout.
+    public String generateToken(String identifier, String role, Long id) {
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(identifier)
+                .claim(ROLE_CLAIM, role.toLowerCase())
+                .claim(ID_CLAIM, id)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TOKEN_TTL_MILLIS))
+                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
     // 5. extractIdentifier Method
     // Extracts the identifier (subject) from a JWT token.
     public String extractIdentifier(String token) {
-        // ERROR FIX: Using Jwts.parser() instead of parserBuilder() to match common 0.9.x versions and your hints
-        return Jwts.parser()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
+    }
+
+    private Claims parseClaims(String token) {
+        parsedTokens.incrementAndGet();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     // Alias for getEmailFromToken if other services rely on that naming
@@ -73,42 +143,194 @@ public class TokenService {
 
     // 6. validateToken Method
     // Validates the JWT token for a given user type.
+    // Repeat calls with the same token are answered from the verified-token cache without
+    // re-checking the signature or querying the user's repository.
     public boolean validateToken(String token, String userType) {
+        return verify(token, userType) != null;
+    }
+
+    // authenticate Method
+    // Resolves the token to its role, identifier and user id in a single verification.
+    // Returns null if the token is not valid for the given user type.
+    public AuthenticatedUser authenticate(String token, String userType) {
+        VerifiedToken verified = verify(token, userType);
+        return (verified != null)
+                ? new AuthenticatedUser(verified.role(), verified.identifier(), verified.principalId())
+                : null;
+    }
+
+    // Returns the cached or freshly verified principal for a token, or null if the token is
+    // invalid, expired, revoked, or does not belong to an existing user of the given type.
+    VerifiedToken verify(String token, String userType) {
+        if (token == null || userType == null) {
+            return null;
+        }
+        String role = userType.toLowerCase();
+        String digest = digest(token);
+        String key = digest + ":" + role;
+        VerifiedToken cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            // Revocations made after the entry was cached (possibly on another instance)
+            if (revocationService.isRevoked(cached.revocationKeys())) {
+                verifiedTokens.invalidate(key);
+                return null;
+            }
+            return cached;
+        }
+
         try {
-            String identifier = extractIdentifier(token);
-            
+            Claims claims = parseClaims(token);
+            String identifier = claims.getSubject();
+
             if (identifier == null || identifier.isEmpty()) {
-                return false;
+                return null;
+            }
+
+            Long principalId;
+            String claimedRole = claims.get(ROLE_CLAIM, String.class);
+            if (claimedRole != null) {
+                // Stateless token: the signed claims are authoritative
+                if (!claimedRole.equals(role)) {
+                    return null;
+                }
+                Number id = claims.get(ID_CLAIM, Number.class);
+                principalId = (id != null) ? id.longValue() : null;
+            } else {
+                // Legacy token: check if the user exists in the database based on the user type
+                principalId = lookupPrincipalId(role, identifier);
+            }
+            if (principalId == null) {
+                return null;
             }
 
-            // Check if the user exists in the database based on the user type
-            switch (userType.toLowerCase()) {
-                case "admin":
-                    // For admin, the identifier is the username
-                    return adminRepository.findByUsername(identifier) != null;
-                case "doctor":
-                    // For doctor, the identifier is the email
-                    return doctorRepository.findByEmail(identifier) != null;
-                case "patient":
-                    // For patient, the identifier is the email
-                    return patientRepository.findByEmail(identifier) != null;
-                default:
-                    return false;
+            long expiresAt = claims.getExpiration() != null
+                    ? claims.getExpiration().getTime()
+                    : Long.MAX_VALUE;
+            String tokenKey = (claims.getId() != null) ? "jti:" + claims.getId() : "tok:" + digest;
+            VerifiedToken verified = new VerifiedToken(role, identifier, principalId, expiresAt, tokenKey);
+            if (revocationService.isRevoked(verified.revocationKeys())) {
+                return null;
             }
+            verifiedTokens.put(key, verified);
+            return verified;
         } catch (Exception e) {
             // Token is invalid or expired
-            return false;
+            return null;
         }
     }
-    
-    // Helper to get Patient ID explicitly if needed by PatientService/Controller
-    public Long getPatientIdFromToken(String token) {
+
+    // revokeToken Method
+    // Revokes a single token (logout). Invalid or expired tokens are ignored.
+    public void revokeToken(String token) {
+        Claims claims;
         try {
-            String email = extractIdentifier(token);
-            var patient = patientRepository.findByEmail(email);
-            return (patient != null) ? patient.getId() : null;
+            claims = parseClaims(token);
         } catch (Exception e) {
-            return null;
+            return;
         }
+        String digest = digest(token);
+        String tokenKey = (claims.getId() != null) ? "jti:" + claims.getId() : "tok:" + digest;
+        LocalDateTime expiresAt = (claims.getExpiration() != null)
+                ? LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault())
+                : LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(TOKEN_TTL_MILLIS));
+        revocationService.revoke(tokenKey, expiresAt);
+        verifiedTokens.asMap().keySet().removeIf(k -> k.startsWith(digest + ":"));
+    }
+
+    // revokePrincipal Method
+    // Revokes every token issued to a user, e.g. a deleted doctor. Tokens issued before now
+    // expire within the token lifetime, so the revocation can be purged after that.
+    public void revokePrincipal(String role, Long id) {
+        String principalKey = role.toLowerCase() + ":" + id;
+        revocationService.revoke(principalKey,
+                LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(TOKEN_TTL_MILLIS)));
+        verifiedTokens.asMap().values().removeIf(v -> principalKey.equals(v.principalKey()));
+    }
+
+    private Long lookupPrincipalId(String role, String identifier) {
+        switch (role) {
+            case "admin":
+                // For admin, the identifier is the username
+                Admin admin = adminRepository.findByUsername(identifier);
+                return admin != null ? admin.getId() : null;
+            case "doctor":
+                // For doctor, the identifier is the email
+                Doctor doctor = doctorRepository.findByEmail(identifier);
+                return doctor != null ? doctor.getId() : null;
+            case "patient":
+                // For patient, the identifier is the email
+                Patient patient = patientRepository.findByEmail(identifier);
+                return patient != null ? patient.getId() : null;
+            default:
+                return null;
+        }
+    }
+
+    // Drops every cached verification for a user, e.g. after the account was deleted.
+    public void evictIdentifier(String identifier) {
+        if (identifier != null) {
+            verifiedTokens.asMap().values().removeIf(v -> identifier.equals(v.identifier()));
+        }
+    }
+
+    // Hit/miss counters for the verified-token cache
+    public Map<String, Object> getCacheStats() {
+        CacheStats stats = verifiedTokens.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", verifiedTokens.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("parses", parsedTokens.get());
+        return result;
+    }
+
+    // The raw token is never kept in memory as a key; only its digest is.
+    private static String digest(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // A token whose signature, expiry and owner have already been checked
+    record VerifiedToken(String role, String identifier, Long principalId, long expiresAtMillis, String tokenKey) {
+
+        String principalKey() {
+            return role + ":" + principalId;
+        }
+
+        String[] revocationKeys() {
+            return new String[] { tokenKey, principalKey() };
+        }
+    }
+
+    // Expires each cache entry exactly when the underlying token expires
+    private static final class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(remainingMillis, Long.MAX_VALUE / 1_000_000)));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+    
+    // Helper to get Patient ID explicitly if needed by PatientService/Controller
+    public Long getPatientIdFromToken(String token) {
+        VerifiedToken verified = verify(token, "patient");
+        return (verified != null) ? verified.principalId() : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,283 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.ScheduleOverride;
+import com.project.back_end.models.ScheduleRule;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compiled form of a doctor's schedule. The weekly template is held as minute-of-day arrays per
+// weekday, and every date exception is resolved up front into its own day, so looking up the slots
+// of any date is an array or hash lookup and never parses a string.
+public final class WeeklySchedule {
+
+    private static final int NOON = 12 * 60;
+    private static final int DEFAULT_SLOT_MINUTES = 60;
+
+    static final WeeklySchedule EMPTY = new WeeklySchedule(emptyWeek(), Map.of());
+
+    private final Day[] weekdays; // indexed by DayOfWeek.getValue() - 1
+    private final Map<LocalDate, Day> exceptions;
+    private final boolean morningSlots;
+    private final boolean afternoonSlots;
+
+    private WeeklySchedule(Day[] weekdays, Map<LocalDate, Day> exceptions) {
+        this.weekdays = weekdays;
+        this.exceptions = exceptions;
+        boolean morning = false;
+        boolean afternoon = false;
+        for (Day day : weekdays) {
+            for (int start : day.starts) {
+                morning |= start >= 0 && start < NOON;
+                afternoon |= start >= NOON;
+            }
+        }
+        this.morningSlots = morning;
+        this.afternoonSlots = afternoon;
+    }
+
+    // Slots offered on a date, after applying that date's exceptions
+    public Day day(LocalDate date) {
+        Day exception = exceptions.get(date);
+        return exception != null ? exception : weekdays[date.getDayOfWeek().getValue() - 1];
+    }
+
+    // Start times of every bookable slot from `from` to `to` (inclusive), in chronological order
+    public List<LocalDateTime> expand(LocalDate from, LocalDate to) {
+        List<LocalDateTime> slots = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            Day day = day(date);
+            for (int start : day.starts) {
+                if (start >= 0) {
+                    slots.add(date.atStartOfDay().plusMinutes(start));
+                }
+            }
+        }
+        return slots;
+    }
+
+    // True if the weekly template has a slot starting in the morning ("AM") or from noon on ("PM")
+    public boolean hasSlotsIn(String amOrPm) {
+        if ("AM".equalsIgnoreCase(amOrPm)) return morningSlots;
+        if ("PM".equalsIgnoreCase(amOrPm)) return afternoonSlots;
+        return false;
+    }
+
+    // ----------------------------------------------------------------------
+    // Compilation
+    // ----------------------------------------------------------------------
+
+    // Weekly rules win; a doctor without rules offers the legacy availableTimes list every day.
+    // Exceptions apply either way: CLOSED ones remove slots, then EXTRA ones add slots.
+    static WeeklySchedule compile(List<String> availableTimes, List<ScheduleRule> rules,
+                                  List<ScheduleOverride> overrides) {
+        Day[] week;
+        if (rules != null && !rules.isEmpty()) {
+            List<List<int[]>> perDay = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                perDay.add(new ArrayList<>());
+            }
+            for (ScheduleRule rule : rules) {
+                if (isValid(rule.getStartTime(), rule.getEndTime(), rule.getSlotMinutes())) {
+                    cut(perDay.get(rule.getDayOfWeek().getValue() - 1),
+                            minuteOf(rule.getStartTime()), minuteOf(rule.getEndTime()), rule.getSlotMinutes());
+                }
+            }
+            week = new Day[7];
+            for (int i = 0; i < 7; i++) {
+                week[i] = Day.of(perDay.get(i));
+            }
+        } else {
+            Day legacy = Day.fromLabels(availableTimes != null ? availableTimes : List.of());
+            week = new Day[7];
+            Arrays.fill(week, legacy);
+        }
+
+        Map<LocalDate, List<ScheduleOverride>> byDate = new HashMap<>();
+        if (overrides != null) {
+            for (ScheduleOverride override : overrides) {
+                if (override.getDate() != null && override.getType() != null) {
+                    byDate.computeIfAbsent(override.getDate(), d -> new ArrayList<>()).add(override);
+                }
+            }
+        }
+        Map<LocalDate, Day> exceptions = new HashMap<>();
+        byDate.forEach((date, list) -> exceptions.put(date,
+                applyOverrides(week[date.getDayOfWeek().getValue() - 1], list)));
+        return new WeeklySchedule(week, exceptions);
+    }
+
+    // The one check for rule and override times; the slot length bounds match the entities' @Min/@Max
+    static boolean isValid(LocalTime start, LocalTime end, int slotMinutes) {
+        return start != null && end != null && isValidSlotLength(slotMinutes) && start.isBefore(end);
+    }
+
+    static boolean isValidSlotLength(int slotMinutes) {
+        return slotMinutes >= ScheduleRule.MIN_SLOT_MINUTES && slotMinutes <= ScheduleRule.MAX_SLOT_MINUTES;
+    }
+
+    private static Day applyOverrides(Day base, List<ScheduleOverride> overrides) {
+        List<int[]> slots = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < base.size(); i++) {
+            boolean closed = false;
+            for (ScheduleOverride override : overrides) {
+                if (override.getType() == ScheduleOverride.Type.CLOSED) {
+                    closed |= override.getStartTime() == null || override.getEndTime() == null
+                            || overlaps(base.starts[i], base.ends[i],
+                                        minuteOf(override.getStartTime()), minuteOf(override.getEndTime()));
+                }
+            }
+            if (!closed) {
+                slots.add(new int[]{base.starts[i], base.ends[i]});
+                labels.add(base.labels[i]);
+            }
+        }
+        List<int[]> extra = new ArrayList<>();
+        for (ScheduleOverride override : overrides) {
+            if (override.getType() == ScheduleOverride.Type.EXTRA
+                    && isValid(override.getStartTime(), override.getEndTime(), override.getSlotMinutes())) {
+                cut(extra, minuteOf(override.getStartTime()), minuteOf(override.getEndTime()),
+                        override.getSlotMinutes());
+            }
+        }
+        for (int[] slot : extra) {
+            slots.add(slot);
+            labels.add(formatSlot(slot[0], slot[1]));
+        }
+        return Day.of(slots, labels);
+    }
+
+    private static void cut(List<int[]> into, int start, int end, int slotMinutes) {
+        for (int t = start; t + slotMinutes <= end; t += slotMinutes) {
+            into.add(new int[]{t, t + slotMinutes});
+        }
+    }
+
+    private static boolean overlaps(int start, int end, int otherStart, int otherEnd) {
+        // Unparseable legacy slots (-1) never overlap anything
+        return start >= 0 && start < otherEnd && otherStart < end;
+    }
+
+    private static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static String formatSlot(int start, int end) {
+        return String.format("%02d:%02d-%02d:%02d", start / 60, start % 60, end / 60, end % 60);
+    }
+
+    private static Day[] emptyWeek() {
+        Day[] week = new Day[7];
+        Arrays.fill(week, Day.of(List.of()));
+        return week;
+    }
+
+    // The slots of one concrete day, ordered by start time. Booked-slot bitmaps are indexed by
+    // position in these arrays.
+    public static final class Day {
+
+        final String[] labels;
+        final int[] starts;
+        final int[] ends;
+
+        private Day(String[] labels, int[] starts, int[] ends) {
+            this.labels = labels;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        static Day of(List<int[]> slots) {
+            List<String> labels = new ArrayList<>(slots.size());
+            for (int[] slot : slots) {
+                labels.add(formatSlot(slot[0], slot[1]));
+            }
+            return of(slots, labels);
+        }
+
+        // Sorts by start time and drops duplicate starts (overlapping rules), keeping the first
+        private static Day of(List<int[]> slots, List<String> labels) {
+            Integer[] order = new Integer[slots.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt(i -> slots.get(i)[0]));
+            List<Integer> kept = new ArrayList<>(order.length);
+            for (int i : order) {
+                int start = slots.get(i)[0];
+                if (start < 0 || kept.isEmpty() || slots.get(kept.get(kept.size() - 1))[0] != start) {
+                    kept.add(i);
+                }
+            }
+            String[] l = new String[kept.size()];
+            int[] s = new int[kept.size()];
+            int[] e = new int[kept.size()];
+            for (int k = 0; k < kept.size(); k++) {
+                int i = kept.get(k);
+                l[k] = labels.get(i);
+                s[k] = slots.get(i)[0];
+                e[k] = slots.get(i)[1];
+            }
+            return new Day(l, s, e);
+        }
+
+        // Parses "09:00-10:00" (or a bare "09:00") labels, keeping them as given and in the given order.
+        // Entries that cannot be parsed are still listed but can never be booked.
+        static Day fromLabels(List<String> times) {
+            int n = times.size();
+            String[] labels = new String[n];
+            int[] starts = new int[n];
+            int[] ends = new int[n];
+            for (int i = 0; i < n; i++) {
+                String label = times.get(i);
+                labels[i] = label;
+                starts[i] = -1;
+                ends[i] = -1;
+                try {
+                    String[] parts = label.trim().split("-");
+                    starts[i] = minuteOf(LocalTime.parse(parts[0].trim()));
+                    ends[i] = parts.length > 1
+                            ? minuteOf(LocalTime.parse(parts[1].trim()))
+                            : starts[i] + DEFAULT_SLOT_MINUTES;
+                } catch (RuntimeException e) {
+                    // Unparseable slot label
+                }
+            }
+            return new Day(labels, starts, ends);
+        }
+
+        public int size() {
+            return labels.length;
+        }
+
+        public String label(int slot) {
+            return labels[slot];
+        }
+
+        int slotStartingAt(int minute) {
+            for (int i = 0; i < starts.length; i++) {
+                if (starts[i] == minute) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // An appointment occupies every slot whose [start, end) contains its start time
+        void markCovering(BitSet bits, int minute, boolean booked) {
+            for (int i = 0; i < starts.length; i++) {
+                if (starts[i] >= 0 && minute >= starts[i] && minute < ends[i]) {
+                    bits.set(i, booked);
+                }
+            }
+        }
+    }
+}
@@ -106,10 +106,22 @@ function attachHeaderButtonListeners(role) {
     }
 }
 
+/**
+ * Revokes the current token on the server; tokens are otherwise valid until they expire.
+ * Fire-and-forget with keepalive so the redirect does not cancel the request.
+ */
+function revokeToken() {
+    const token = localStorage.getItem("token");
+    if (token) {
+        fetch(`/logout/${token}`, { method: "POST", keepalive: true }).catch(() => {});
+    }
+}
+
 /**
  * General Logout: Clears all data and redirects to landing page.
  */
 function logout() {
+    revokeToken();
     localStorage.removeItem("token");
     localStorage.removeItem("userRole");
     window.location.href = "../index.html";
@@ -119,6 +131,7 @@ function logout() {
  * Patient Logout: Clears token but resets role to guest 'patient' to see public view.
  */
 function logoutPatient() {
+    revokeToken();
     localStorage.removeItem("token");
     localStorage.setItem("userRole", "patient");
     window.location.href = "/pages/patientDashboard.html";
@@ -64,11 +64,10 @@ export function showBookingOverlay(e, doctor, patient) {
     const time = modalApp.querySelector("#appointment-time").value;
     const token = localStorage.getItem("token");
     const startTime = time.split('-')[0];
+    // The patient is taken from the token; only the doctor and slot are sent
     const appointment = {
-      doctor: { id: doctor.id },
-      patient: { id: patient.id },
-      appointmentTime: `${date}T${startTime}:00`,
-      status: 0
+      doctorId: doctor.id,
+      appointmentTime: `${date}T${startTime}:00`
     };
 
 
@@ -29,6 +29,48 @@ export async function getDoctors() {
     }
 }
 
+/**
+ * Function: getDoctorPage
+ * Purpose: Fetch one page of doctors with keyset pagination.
+ * Pass the nextCursor of the previous page to continue; it is null after the last page.
+ * sort is "id" or "name".
+ */
+export async function getDoctorPage(cursor = null, size = 50, sort = "id") {
+    try {
+        const params = new URLSearchParams({ size, sort });
+        if (cursor) {
+            params.set("cursor", cursor);
+        }
+
+        const response = await fetch(`${DOCTOR_API}/page?${params}`);
+
+        if (response.ok) {
+            const data = await response.json();
+            return { doctors: data.doctors || [], nextCursor: data.nextCursor || null };
+        } else {
+            console.error("Failed to fetch doctors page. Status:", response.status);
+            return { doctors: [], nextCursor: null };
+        }
+    } catch (error) {
+        console.error("Error fetching doctors page:", error);
+        return { doctors: [], nextCursor: null };
+    }
+}
+
+/**
+ * Function: doctorPages
+ * Purpose: Async iterator over all doctors, one page at a time, e.g.
+ *   for await (const doctors of doctorPages(100, "name")) { renderCards(doctors); }
+ */
+export async function* doctorPages(size = 50, sort = "id") {
+    let cursor = null;
+    do {
+        const page = await getDoctorPage(cursor, size, sort);
+        yield page.doctors;
+        cursor = page.nextCursor;
+    } while (cursor);
+}
+
 /**
  * Function: deleteDoctor
  * Purpose: Delete a specific doctor using their ID and an authentication token
@@ -101,14 +143,13 @@ export async function saveDoctor(doctor, token) {
  */
 export async function filterDoctors(name, time, specialty) {
     try {
-        // Construct URL with path parameters
-        // IMPORTANT: Ensure backend accepts these specific path params in this order
-        // Use placeholders or empty strings if a filter is missing/null
-        const searchName = name || "empty";
-        const searchTime = time || "empty";
-        const searchSpecialty = specialty || "empty";
+        // Construct URL with path parameters: /doctor/filter/{name}/{time}/{speciality}
+        // "null" stands for a filter that is not set
+        const searchName = encodeURIComponent(name || "null");
+        const searchTime = encodeURIComponent(time || "null");
+        const searchSpecialty = encodeURIComponent(specialty || "null");
 
-        const url = `${DOCTOR_API}/search/${searchName}/${searchTime}/${searchSpecialty}`;
+        const url = `${DOCTOR_API}/filter/${searchName}/${searchTime}/${searchSpecialty}`;
 
         // Send GET request
         const response = await fetch(url);
@@ -125,4 +166,34 @@ export async function filterDoctors(name, time, specialty) {
         alert("An error occurred while filtering doctors.");
         return { doctors: [] };
     }
-}
\ No newline at end of file
+}
+/**
+ * Function: getAvailabilityMatrix
+ * Purpose: Fetch free slots of several doctors (an array of ids, or a specialty) for every day
+ * from `from` to `to` (yyyy-MM-dd, inclusive) in one request instead of one per doctor per day.
+ * Resolves to { doctorId: { date: [slots] } }.
+ */
+export async function getAvailabilityMatrix({ doctorIds, specialty }, from, to, user, token) {
+    try {
+        const params = new URLSearchParams();
+        if (doctorIds && doctorIds.length > 0) {
+            params.set("doctorIds", doctorIds.join(","));
+        } else if (specialty) {
+            params.set("specialty", specialty);
+        }
+
+        const url = `${DOCTOR_API}/availability/matrix/${user}/${from}/${to}/${token}?${params}`;
+        const response = await fetch(url);
+
+        if (response.ok) {
+            const data = await response.json();
+            return data.availability || {};
+        } else {
+            console.error("Failed to fetch availability. Status:", response.status);
+            return {};
+        }
+    } catch (error) {
+        console.error("Error fetching availability:", error);
+        return {};
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.back_end.benchmark;
+
+import com.project.back_end.BackEndApplication;
+import com.project.back_end.services.BulkImportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// One bulk import of 50,000 patients as NDJSON, in the application context (without the web server)
+// on H2 in MySQL mode. Every 5,000th row carries a plain password and goes through the hashing pool;
+// the rest are already BCrypt hashes, as in an export from another system. The patient table is
+// emptied before each import, so every run inserts all rows.
+//
+//   chunkSize - rows per validation/insert transaction (bulk-import.chunk-size)
+//
+// Run: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+//      java -cp target/test-classes:target/classes:$(cat cp.txt) com.project.back_end.benchmark.BulkImportBenchmark
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BulkImportBenchmark {
+
+    private static final int ROWS = 50_000;
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        @Param({"100", "1000"})
+        int chunkSize;
+
+        ConfigurableApplicationContext context;
+        BulkImportService bulkImportService;
+        JdbcTemplate jdbcTemplate;
+        byte[] upload;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = new SpringApplicationBuilder(BackEndApplication.class)
+                    .web(WebApplicationType.NONE)
+                    // As arguments, so they win over application.properties
+                    .run("--spring.datasource.url=jdbc:h2:mem:bench-import;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_ON_EXIT=FALSE",
+                            "--spring.datasource.username=sa",
+                            "--spring.datasource.password=",
+                            "--spring.jpa.hibernate.ddl-auto=create-drop",
+                            "--spring.jpa.show-sql=false",
+                            "--bulk-import.chunk-size=" + chunkSize,
+                            "--reminder.enabled=false",
+                            "--logging.level.root=WARN");
+            bulkImportService = context.getBean(BulkImportService.class);
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+            String hash = new BCryptPasswordEncoder(4).encode("imported-secret");
+            StringBuilder ndjson = new StringBuilder(ROWS * 140);
+            for (int i = 0; i < ROWS; i++) {
+                String password = i % 5000 == 0 ? "plain-secret" : hash;
+                ndjson.append("{\"name\":\"Patient ").append(i).append("\",\"email\":\"bulk").append(i)
+                        .append("@patients.example\",\"password\":\"").append(password)
+                        .append("\",\"phone\":\"").append(5_000_000_000L + i).append("\",\"address\":\"")
+                        .append(i).append(" Main Street\"}\n");
+            }
+            upload = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Setup(Level.Iteration)
+        public void emptyPatients() {
+            jdbcTemplate.update("DELETE FROM patient");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> importPatients(Database db) throws IOException {
+        Map<String, Object> report = db.bulkImportService.importRows(BulkImportService.Kind.PATIENTS,
+                BulkImportService.Format.NDJSON, new ByteArrayInputStream(db.upload));
+        if (!Integer.valueOf(ROWS).equals(report.get("imported"))) {
+            throw new IllegalStateException("Unexpected report: " + report);
+        }
+        return report;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BulkImportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,119 @@
+package com.project.back_end.benchmark;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.services.DoctorDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Doctor search as typed into the dashboard search box, at 10k and 100k doctors.
+//
+//   scan      - what LIKE LOWER(CONCAT('%', :name, '%')) does: lower-case and test every row
+//   directory - DoctorDirectory: trigram postings, specialty and AM/PM bitsets
+//
+// The scan runs in memory, so it is a lower bound for the MySQL query (no I/O, no network).
+//
+// Run: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+//      java -cp target/test-classes:target/classes:$(cat cp.txt) com.project.back_end.benchmark.DoctorSearchBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class DoctorSearchBenchmark {
+
+    private static final String[] FIRST = {"Emily", "Mark", "Sarah", "Tom", "Olivia", "James", "Ava", "Liam",
+            "Sophia", "Noah", "Mia", "Lucas", "Amelia", "Ethan", "Harper", "Mason"};
+    private static final String[] LAST = {"Adams", "Johnson", "Lee", "Brown", "Garcia", "Miller", "Davis",
+            "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Thompson", "White"};
+    private static final String[] SPECIALTIES = {"Cardiologist", "Dermatologist", "Neurologist", "Pediatrician",
+            "Orthopedic", "Gynecologist", "Psychiatrist", "Dentist", "Ophthalmologist", "ENT"};
+    private static final String[] TIMES = {"09:00-10:00", "10:00-11:00", "14:00-15:00", "16:00-17:00"};
+
+    @State(Scope.Benchmark)
+    public static class Doctors {
+        @Param({"10000", "100000"})
+        int count;
+
+        List<Doctor> all;
+        DoctorDirectory directory;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(42);
+            all = new ArrayList<>(count);
+            for (long id = 1; id <= count; id++) {
+                Doctor doctor = new Doctor();
+                doctor.setId(id);
+                // A numeric suffix keeps names distinct, like a real directory
+                doctor.setName(FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] + " " + id);
+                doctor.setSpecialty(SPECIALTIES[random.nextInt(SPECIALTIES.length)]);
+                doctor.setAvailableTimes(List.of(TIMES[random.nextInt(TIMES.length)]));
+                all.add(doctor);
+            }
+            directory = new DoctorDirectory(null, null);
+            directory.load(all, List.of());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Query {
+        @Param({"thomps", "son 77"})
+        String name;
+    }
+
+    @Benchmark
+    public List<Doctor> scanName(Doctors doctors, Query query) {
+        return scan(doctors.all, query.name, null, null);
+    }
+
+    @Benchmark
+    public List<Doctor> directoryName(Doctors doctors, Query query) {
+        return doctors.directory.search(query.name, null, null);
+    }
+
+    @Benchmark
+    public List<Doctor> scanNameSpecialtyTime(Doctors doctors, Query query) {
+        return scan(doctors.all, query.name, "neurologist", "PM");
+    }
+
+    @Benchmark
+    public List<Doctor> directoryNameSpecialtyTime(Doctors doctors, Query query) {
+        return doctors.directory.search(query.name, "neurologist", "PM");
+    }
+
+    private static List<Doctor> scan(List<Doctor> all, String name, String specialty, String time) {
+        String needle = name.toLowerCase(Locale.ROOT);
+        List<Doctor> result = new ArrayList<>();
+        for (Doctor doctor : all) {
+            if (!doctor.getName().toLowerCase(Locale.ROOT).contains(needle)) continue;
+            if (specialty != null && !doctor.getSpecialty().equalsIgnoreCase(specialty)) continue;
+            if (time != null && doctor.getAvailableTimes().stream()
+                    .noneMatch(t -> Integer.parseInt(t.split(":")[0]) >= 12)) continue;
+            result.add(doctor);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DoctorSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+package com.project.back_end.benchmark;
+
+import com.project.back_end.services.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+// Simulates the 8am login burst: 200 request threads (Tomcat's default maximum) log in at once.
+//
+//   inline        - BCrypt on the request thread (every Tomcat thread is busy hashing)
+//   pooled        - request thread waits for the bounded hashing pool
+//   pooledRelease - request thread only submits and is released, as with the async login endpoints;
+//                   measures how long a request thread is held. Rejections are counted, not retried.
+//
+// Run: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+//      java -cp target/test-classes:target/classes:$(cat cp.txt) com.project.back_end.benchmark.LoginThroughputBenchmark
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(200)
+public class LoginThroughputBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @State(Scope.Benchmark)
+    public static class Hashing {
+        BCryptPasswordEncoder encoder;
+        PasswordHasher hasher;
+        String stored;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            encoder = new BCryptPasswordEncoder(10);
+            hasher = new PasswordHasher(10, 0, 256);
+            stored = encoder.encode(PASSWORD);
+        }
+
+        @TearDown(Level.Trial)
+        public void report() {
+            System.out.println("rejected logins: " + hasher.getRejectedCount());
+        }
+    }
+
+    @Benchmark
+    public boolean inline(Hashing state) {
+        return state.encoder.matches(PASSWORD, state.stored);
+    }
+
+    @Benchmark
+    public Object pooled(Hashing state) {
+        try {
+            return state.hasher.verify(PASSWORD, state.stored).join();
+        } catch (CompletionException rejected) {
+            return rejected;
+        }
+    }
+
+    @Benchmark
+    public CompletableFuture<PasswordHasher.Verification> pooledRelease(Hashing state) {
+        return state.hasher.verify(PASSWORD, state.stored);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LoginThroughputBenchmark.class.getSimpleName()).build()).run();
+    }
+}
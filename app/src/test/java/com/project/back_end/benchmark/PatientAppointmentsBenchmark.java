@@ -0,0 +1,126 @@
+package com.project.back_end.benchmark;
+
+import com.project.back_end.BackEndApplication;
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A patient's appointment list with 500 appointments across 20 doctors, in the application context
+// (without the web server) on H2 in MySQL mode.
+//
+//   entities   - the old path: load Appointment entities with doctor and patient, copy into AppointmentDTO
+//   projection - AppointmentRepository.findDtosByPatientId: select the ten columns into AppointmentDTO
+//
+// Both run in a read-only transaction, like PatientService. Add -prof gc for allocation per call.
+//
+// Run: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+//      java -cp target/test-classes:target/classes:$(cat cp.txt) com.project.back_end.benchmark.PatientAppointmentsBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PatientAppointmentsBenchmark {
+
+    private static final int APPOINTMENTS = 500;
+    private static final int DOCTORS = 20;
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        ConfigurableApplicationContext context;
+        AppointmentRepository appointmentRepository;
+        TransactionTemplate readOnly;
+        Long patientId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = new SpringApplicationBuilder(BackEndApplication.class)
+                    .web(WebApplicationType.NONE)
+                    // As arguments, so they win over application.properties
+                    .run("--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_ON_EXIT=FALSE",
+                            "--spring.datasource.username=sa",
+                            "--spring.datasource.password=",
+                            "--spring.jpa.hibernate.ddl-auto=create-drop",
+                            "--spring.jpa.show-sql=false",
+                            "--logging.level.root=WARN");
+            appointmentRepository = context.getBean(AppointmentRepository.class);
+            PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+            readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+
+            EntityManager entityManager = context.getBean(EntityManager.class);
+            patientId = new TransactionTemplate(transactionManager).execute(status -> {
+                Patient patient = new Patient();
+                patient.setName("Bench Patient");
+                patient.setEmail("bench@example.com");
+                patient.setPassword("secret1");
+                patient.setPhone("1234567890");
+                patient.setAddress("1 Main Street");
+                entityManager.persist(patient);
+
+                Doctor[] doctors = new Doctor[DOCTORS];
+                for (int i = 0; i < DOCTORS; i++) {
+                    doctors[i] = new Doctor("Doctor " + i, "Cardiologist", "doctor" + i + "@example.com",
+                            "secret1", "1234567890", List.of("09:00-10:00", "10:00-11:00", "14:00-15:00"));
+                    entityManager.persist(doctors[i]);
+                }
+                LocalDateTime start = LocalDateTime.now().plusDays(1).withMinute(0).withSecond(0).withNano(0);
+                for (int i = 0; i < APPOINTMENTS; i++) {
+                    entityManager.persist(new Appointment(doctors[i % DOCTORS], patient, start.plusHours(i)));
+                }
+                return patient.getId();
+            });
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<AppointmentDTO> entities(Database db) {
+        return db.readOnly.execute(status -> db.appointmentRepository.findByPatientId(db.patientId).stream()
+                .map(a -> new AppointmentDTO(a.getId(), a.getDoctor().getId(), a.getDoctor().getName(),
+                        a.getPatient().getId(), a.getPatient().getName(), a.getPatient().getEmail(),
+                        a.getPatient().getPhone(), a.getPatient().getAddress(), a.getAppointmentTime(),
+                        a.getStatus()))
+                .toList());
+    }
+
+    @Benchmark
+    public List<AppointmentDTO> projection(Database db) {
+        return db.readOnly.execute(status -> db.appointmentRepository.findDtosByPatientId(db.patientId));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PatientAppointmentsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
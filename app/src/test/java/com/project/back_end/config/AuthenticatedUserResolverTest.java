@@ -0,0 +1,148 @@
+package com.project.back_end.config;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.SqlRecorder;
+import com.project.back_end.services.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Counts token parses and SQL statements per endpoint call, through the real controllers, services and
+// repositories on H2 in MySQL mode. MockMvc runs the request on the test thread, where SqlRecorder listens.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:authenticated-user;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.data.mongodb.uri=mongodb://localhost:27017/prescriptions",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.project.back_end.repo.SqlRecorder",
+        "appointment.archive.initial-delay-ms=3600000",
+        "prescription.outbox.initial-delay-ms=3600000",
+        "reminder.enabled=false"
+})
+@AutoConfigureMockMvc
+class AuthenticatedUserResolverTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(5);
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    private static int sequence;
+
+    private Doctor doctor() {
+        int n = ++sequence;
+        return doctorRepository.save(new Doctor("Resolver Doctor " + n, "Cardiologist", "resolver-doctor" + n + "@clinic.example",
+                "secret-password", String.valueOf(8_000_000_000L + n), List.of("09:00-10:00", "10:00-11:00")));
+    }
+
+    private Patient patient() {
+        int n = ++sequence;
+        return patientRepository.save(new Patient("Resolver Patient " + n, "resolver-patient" + n + "@clinic.example",
+                "secret-password", String.valueOf(9_000_000_000L + n), "1 Main Street"));
+    }
+
+    private void appointment(Doctor doctor, Patient patient, LocalDateTime time) {
+        appointmentRepository.save(new Appointment(doctor, patient, time));
+    }
+
+    // SQL statements issued while serving one GET
+    private List<String> statements(String path, ResultMatcher expected) throws Exception {
+        List<String> recorded;
+        SqlRecorder.start();
+        ResultActions result;
+        try {
+            result = mockMvc.perform(get(path));
+        } finally {
+            recorded = SqlRecorder.stop();
+        }
+        result.andExpect(expected);
+        return recorded;
+    }
+
+    private long parses() {
+        return (Long) tokenService.getCacheStats().get("parses");
+    }
+
+    private static long lookups(List<String> sql, String table) {
+        return sql.stream().filter(s -> s.contains(" from " + table + " ") && s.contains(".email=")).count();
+    }
+
+    @Test
+    void doctorScheduleParsesTheTokenOnceAndLooksUpTheDoctorOnce() throws Exception {
+        Doctor doctor = doctor();
+        Patient patient = patient();
+        appointment(doctor, patient, DAY.atTime(9, 0));
+        appointment(doctor, patient, DAY.atTime(10, 0));
+        String token = tokenService.generateToken(doctor.getEmail()); // legacy token: needs the lookup
+        String path = "/appointments/" + DAY + "/null/" + token;
+
+        long before = parses();
+        List<String> first = statements(path, status().isOk());
+        assertEquals(1, parses() - before);
+        assertEquals(1, lookups(first, "doctor"), () -> String.join("\n", first));
+        // Lookup, the day's appointments with doctor and patient, the doctor's time slots
+        assertEquals(3, first.size(), () -> String.join("\n", first));
+
+        // Same session again: answered from the verified-token cache, no parse and no lookup
+        List<String> again = statements(path, status().isOk());
+        assertEquals(1, parses() - before);
+        assertEquals(0, lookups(again, "doctor"), () -> String.join("\n", again));
+        assertEquals(first.size() - 1, again.size(), () -> String.join("\n", again));
+    }
+
+    @Test
+    void patientEndpointsWithAStatelessTokenRunOnlyTheirOwnQueries() throws Exception {
+        Doctor doctor = doctor();
+        Patient patient = patient();
+        appointment(doctor, patient, DAY.atTime(9, 0));
+        String token = tokenService.generateToken(patient.getEmail(), "patient", patient.getId());
+
+        long before = parses();
+        List<String> upcoming = statements("/patient/filter/future/null/" + token, status().isOk());
+        assertEquals(1, parses() - before);
+        assertEquals(0, lookups(upcoming, "patient"), () -> String.join("\n", upcoming));
+        // Upcoming appointments are never archived: one DTO query
+        assertEquals(1, upcoming.size(), () -> String.join("\n", upcoming));
+
+        List<String> all = statements("/patient/" + patient.getId() + "/" + token, status().isOk());
+        assertEquals(1, parses() - before);
+        // Archived and hot appointments, one DTO query each
+        assertEquals(2, all.size(), () -> String.join("\n", all));
+    }
+
+    @Test
+    void invalidOrForeignTokensAreRejectedWithoutSql() throws Exception {
+        Patient patient = patient();
+        String patientToken = tokenService.generateToken(patient.getEmail(), "patient", patient.getId());
+
+        assertEquals(List.of(), statements("/appointments/" + DAY + "/null/not-a-jwt", status().isUnauthorized()));
+        // A patient's stateless token is refused for the doctor's schedule on its role claim alone
+        assertEquals(List.of(), statements("/appointments/" + DAY + "/null/" + patientToken, status().isUnauthorized()));
+    }
+}
@@ -0,0 +1,333 @@
+package com.project.back_end.repo;
+
+import jakarta.persistence.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Index advisor for the `index-advisor` profile (H2 in MySQL mode, see IndexAdvisorTest).
+// At startup it seeds every table with a realistic volume, then calls each query method declared
+// in the JPA repositories of this package (derived and @Query alike) with sample arguments inside
+// a rolled-back transaction, records the SQL Hibernate issues and EXPLAINs it.
+// A statement is reported when its plan scans a whole table, or sorts rows that no index delivers in order.
+@Component
+@Profile("index-advisor")
+public class IndexAdvisor {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexAdvisor.class);
+
+    private final ApplicationContext context;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Statements that read a whole table (or index) by design, with the reason
+    private static final Map<String, String> FULL_SCAN_ALLOWED = Map.of(
+            "DoctorRepository.findAllWithAvailableTimes()", "loads the whole doctor directory",
+            "DoctorRepository.streamAllWithAvailableTimes()", "streams the whole doctor directory",
+            "DoctorRepository.findRetiredIds()", "runs once at startup; an index on a boolean would only mislead the planner",
+            "DoctorRepository.findByNameLike(String)", "'%name%' cannot use a B-tree index; name search runs in DoctorDirectory",
+            "DoctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase(String, String)",
+            "'%name%' cannot use a B-tree index; name search runs in DoctorDirectory");
+
+    private static final Pattern TABLE_ACCESS = Pattern.compile(
+            "\"public\"\\.\"(\\w+)\"(?:\\s+\"(\\w+)\")?\\s*/\\*\\s*public\\.([\\w.]+?)(?::(.*?))?\\s*\\*/",
+            Pattern.DOTALL);
+    private static final Pattern EQUALITY = Pattern.compile("(\\w+) = ");
+    private static final Pattern ORDER_BY = Pattern.compile("\\border by (.+?)(?:\\s+(?:limit|offset|fetch)\\b.*)?$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern LIMIT = Pattern.compile("\\b(?:limit|fetch first)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final List<String> checked = new ArrayList<>();
+    private final List<String> findings = new ArrayList<>();
+
+    @Autowired
+    public IndexAdvisor(ApplicationContext context, JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager) {
+        this.context = context;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void advise() {
+        seed();
+        Repositories repositories = new Repositories(context);
+        List<RepositoryInformation> infos = new ArrayList<>();
+        for (Class<?> domainType : repositories) {
+            if (domainType.isAnnotationPresent(Entity.class)) {
+                repositories.getRepositoryInformationFor(domainType).ifPresent(infos::add);
+            }
+        }
+        infos.sort(Comparator.comparing(info -> info.getRepositoryInterface().getSimpleName()));
+        for (RepositoryInformation info : infos) {
+            Class<?> repositoryInterface = info.getRepositoryInterface();
+            if (!repositoryInterface.getPackageName().equals(IndexAdvisor.class.getPackageName())) {
+                continue;
+            }
+            Object repository = repositories.getRepositoryFor(info.getDomainType()).orElseThrow();
+            Method[] methods = repositoryInterface.getDeclaredMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::toGenericString));
+            for (Method method : methods) {
+                if (!method.isDefault() && !Modifier.isStatic(method.getModifiers())) {
+                    check(repositoryInterface.getSimpleName() + "." + method.getName() + Arrays.stream(method.getParameterTypes())
+                            .map(Class::getSimpleName).collect(Collectors.joining(", ", "(", ")")), repository, method);
+                }
+            }
+        }
+        log.info("Index advisor checked {} statements, {} findings{}", checked.size(), findings.size(),
+                findings.isEmpty() ? "" : ":\n  " + String.join("\n  ", findings));
+    }
+
+    public List<String> getChecked() {
+        return checked;
+    }
+
+    public List<String> getFindings() {
+        return findings;
+    }
+
+    private void check(String name, Object repository, Method method) {
+        List<String> statements;
+        try {
+            Object[] args = sampleArguments(method);
+            statements = transactionTemplate.execute(status -> {
+                status.setRollbackOnly();
+                SqlRecorder.start();
+                try {
+                    if (method.invoke(repository, args) instanceof Stream<?> stream) {
+                        try (stream) {
+                            stream.forEach(row -> { });
+                        }
+                    }
+                } catch (ReflectiveOperationException e) {
+                    SqlRecorder.stop();
+                    throw new IllegalStateException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                }
+                return SqlRecorder.stop();
+            });
+        } catch (RuntimeException e) {
+            findings.add(name + ": could not run (" + e.getMessage() + ")");
+            return;
+        }
+        for (String sql : statements) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+            checked.add(name);
+            log.debug("{}\n{}\n{}", name, sql, plan);
+            String reason = FULL_SCAN_ALLOWED.get(name);
+            for (String problem : problems(sql, plan)) {
+                if (reason == null) {
+                    findings.add(name + ": " + problem + "\n    " + sql);
+                } else {
+                    log.info("{}: {} (allowed: {})", name, problem, reason);
+                }
+            }
+        }
+    }
+
+    // Full scans and sorts found in one plan
+    private List<String> problems(String sql, String plan) {
+        List<String> problems = new ArrayList<>();
+        List<Access> accesses = new ArrayList<>();
+        List<MatchResult> tables = TABLE_ACCESS.matcher(plan).results().toList();
+        for (int i = 0; i < tables.size(); i++) {
+            MatchResult t = tables.get(i);
+            // The plan text up to the next table holds this table's conditions
+            String segment = plan.substring(t.end(), i + 1 < tables.size() ? tables.get(i + 1).start() : plan.length());
+            Access access = Access.of(t.group(1), t.group(2), t.group(3), t.group(4) != null ? t.group(4) : "", segment);
+            accesses.add(access);
+            if (access.index.equals(access.table + ".tableScan")) {
+                problems.add("full scan of " + access.table);
+            } else if (access.condition.isBlank()
+                    && !(plan.contains("/* index sorted */") && LIMIT.matcher(sql).find())) {
+                // An index read without a start key is bounded only when it delivers ORDER BY order under a LIMIT
+                problems.add("full index scan of " + access.table + " (" + access.index + ")");
+            }
+        }
+        Matcher order = ORDER_BY.matcher(sql);
+        if (order.find() && !plan.contains("/* index sorted */") && !deliveredInOrder(order.group(1), accesses)) {
+            problems.add("sort (filesort) on " + order.group(1).trim());
+        }
+        return problems;
+    }
+
+    // Whether InnoDB can read the rows already ordered. The first table that is not a single-row lookup
+    // must have an index whose columns, after those bound by equality, continue with the ORDER BY columns.
+    // Any such index counts, not only the one H2 picked: MySQL weighs the sort when choosing.
+    // Secondary indexes end with the primary key, as in InnoDB.
+    private boolean deliveredInOrder(String orderBy, List<Access> accesses) {
+        Access first = null;
+        for (Access access : accesses) {
+            if (!isSingleRow(access)) {
+                first = access;
+                break;
+            }
+        }
+        if (first == null) {
+            return true;
+        }
+        List<String> ordered = new ArrayList<>();
+        for (String item : orderBy.split(",")) {
+            String[] column = item.trim().split("\\s+")[0].split("\\.");
+            if (column.length != 2 || !column[0].equals(first.alias)) {
+                return false;
+            }
+            if (!first.bound.contains(column[1])) {
+                ordered.add(column[1]);
+            }
+        }
+        for (Map.Entry<String, List<String>> index : indexColumns().entrySet()) {
+            if (!first.table.equals(indexTables.get(index.getKey()))) {
+                continue;
+            }
+            List<String> available = new ArrayList<>(index.getValue());
+            if (!available.contains("id")) {
+                available.add("id");
+            }
+            int skip = 0;
+            while (skip < available.size() && first.bound.contains(available.get(skip))) {
+                skip++;
+            }
+            List<String> rest = available.subList(skip, available.size());
+            if (rest.size() >= ordered.size() && rest.subList(0, ordered.size()).equals(ordered)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Lookup of one row through all columns of the primary key or a unique index
+    private boolean isSingleRow(Access access) {
+        List<String> columns = indexColumns().get(access.index);
+        return columns != null && uniqueIndexes().contains(access.index) && access.bound.containsAll(columns);
+    }
+
+    private Map<String, List<String>> indexColumns;
+    private final Map<String, String> indexTables = new HashMap<>();
+    private Set<String> uniqueIndexes;
+
+    private Map<String, List<String>> indexColumns() {
+        if (indexColumns == null) {
+            indexColumns = new HashMap<>();
+            jdbcTemplate.query("SELECT index_name, table_name, column_name FROM information_schema.index_columns " +
+                    "WHERE table_schema = 'public' ORDER BY index_name, ordinal_position", rs -> {
+                indexColumns.computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(rs.getString(3));
+                indexTables.put(rs.getString(1), rs.getString(2));
+            });
+        }
+        return indexColumns;
+    }
+
+    private Set<String> uniqueIndexes() {
+        if (uniqueIndexes == null) {
+            uniqueIndexes = new HashSet<>(jdbcTemplate.queryForList("SELECT index_name FROM information_schema.indexes " +
+                    "WHERE table_schema = 'public' AND index_type_name IN ('PRIMARY KEY', 'UNIQUE INDEX')", String.class));
+        }
+        return uniqueIndexes;
+    }
+
+    // One table in a plan: `"public"."table" "alias" /* public.index: condition */`, followed by the
+    // conditions H2 evaluates on it. `bound` holds its columns compared by equality, to a parameter or
+    // to a column of a table read before it.
+    private record Access(String table, String alias, String index, String condition, Set<String> bound) {
+
+        static Access of(String table, String alias, String index, String condition, String segment) {
+            Set<String> bound = new HashSet<>();
+            Matcher m = EQUALITY.matcher(condition);
+            while (m.find()) {
+                bound.add(m.group(1));
+            }
+            if (alias != null) {
+                Matcher joined = Pattern.compile("\\b" + alias + "\\.(\\w+) = |(?<![<>!])= " + alias + "\\.(\\w+)\\b")
+                        .matcher(segment);
+                while (joined.find()) {
+                    bound.add(joined.group(1) != null ? joined.group(1) : joined.group(2));
+                }
+            }
+            return new Access(table, alias, index, condition, bound);
+        }
+    }
+
+    // Arguments that reach the seeded rows; the plan, not the result, is what matters
+    private static Object[] sampleArguments(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            Class<?> type = types[i];
+            if (type == Long.class || type == long.class) {
+                args[i] = 1L;
+            } else if (type == Integer.class || type == int.class) {
+                args[i] = 1;
+            } else if (type == String.class) {
+                args[i] = "doctor1";
+            } else if (type == LocalDateTime.class) {
+                args[i] = LocalDateTime.now();
+            } else if (type == LocalDate.class) {
+                args[i] = LocalDate.now();
+            } else if (Collection.class.isAssignableFrom(type)) {
+                args[i] = List.of(1L, 2L, 3L);
+            } else if (type == Limit.class) {
+                args[i] = Limit.of(50);
+            } else {
+                throw new IllegalArgumentException("no sample value for " + type.getSimpleName());
+            }
+        }
+        return args;
+    }
+
+    // Volumes in the proportions of a busy clinic: many patients and appointments per doctor
+    private void seed() {
+        jdbcTemplate.execute("INSERT INTO doctor (id, name, specialty, email, password, phone, retired) " +
+                "SELECT x, 'doctor' || x, 'specialty' || MOD(x, 20), 'doctor' || x || '@example.com', 'x', '0123456789', FALSE " +
+                "FROM SYSTEM_RANGE(1, 500) r (x)");
+        jdbcTemplate.execute("INSERT INTO doctor_available_times (doctor_id, available_times) " +
+                "SELECT MOD(x, 500) + 1, '09:00-10:00' FROM SYSTEM_RANGE(1, 2000) r (x)");
+        jdbcTemplate.execute("INSERT INTO patient (id, name, email, password, phone, address) " +
+                "SELECT x, 'patient' || x, 'patient' || x || '@example.com', 'x', LPAD(x, 10, '0'), 'street ' || x " +
+                "FROM SYSTEM_RANGE(1, 20000) r (x)");
+        jdbcTemplate.execute("INSERT INTO appointment (id, doctor_id, patient_id, appointment_time, status) " +
+                "SELECT x, MOD(x, 500) + 1, MOD(x * 7, 20000) + 1, DATEADD(HOUR, x, TIMESTAMP '2024-01-01 09:00:00'), MOD(x, 3) " +
+                "FROM SYSTEM_RANGE(1, 100000) r (x)");
+        jdbcTemplate.execute("INSERT INTO appointment_archive (id, doctor_id, patient_id, appointment_time, status, archived_at) " +
+                "SELECT x, MOD(x, 500) + 1, MOD(x * 7, 20000) + 1, DATEADD(HOUR, x - 200000, TIMESTAMP '2024-01-01 09:00:00'), " +
+                "MOD(x, 3), CURRENT_TIMESTAMP FROM SYSTEM_RANGE(100001, 200000) r (x)");
+        jdbcTemplate.execute("INSERT INTO doctor_schedule_rule (id, doctor_id, day_of_week, start_time, end_time, slot_minutes) " +
+                "SELECT x, MOD(x, 500) + 1, 'MONDAY', TIME '09:00:00', TIME '17:00:00', 30 FROM SYSTEM_RANGE(1, 2500) r (x)");
+        jdbcTemplate.execute("INSERT INTO doctor_schedule_override (id, doctor_id, override_date, type, slot_minutes) " +
+                "SELECT x, MOD(x, 500) + 1, DATEADD(DAY, x / 500, CURRENT_DATE), 'CLOSED', 30 FROM SYSTEM_RANGE(1, 5000) r (x)");
+        jdbcTemplate.execute("INSERT INTO admin (id, username, password) SELECT x, 'admin' || x, 'x' FROM SYSTEM_RANGE(1, 5) r (x)");
+        jdbcTemplate.execute("INSERT INTO revoked_token (id, revocation_key, expires_at) " +
+                "SELECT x, 'key' || x, DATEADD(MINUTE, x - 5000, CURRENT_TIMESTAMP) FROM SYSTEM_RANGE(1, 10000) r (x)");
+        jdbcTemplate.execute("ANALYZE");
+    }
+}
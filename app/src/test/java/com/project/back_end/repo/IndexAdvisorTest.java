@@ -0,0 +1,31 @@
+package com.project.back_end.repo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:index-advisor;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.data.mongodb.uri=mongodb://localhost:27017/prescriptions",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.project.back_end.repo.SqlRecorder",
+        "appointment.archive.initial-delay-ms=3600000"
+})
+@ActiveProfiles("index-advisor")
+class IndexAdvisorTest {
+
+    @Autowired
+    private IndexAdvisor indexAdvisor;
+
+    @Test
+    void everyRepositoryQueryUsesAnIndex() {
+        assertFalse(indexAdvisor.getChecked().isEmpty());
+        assertTrue(indexAdvisor.getFindings().isEmpty(), () -> String.join("\n", indexAdvisor.getFindings()));
+    }
+}
@@ -0,0 +1,100 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.ArchivedAppointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the real INSERT ... SELECT and DELETE against H2 in MySQL mode
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:appointment-archive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.data.mongodb.uri=mongodb://localhost:27017/prescriptions",
+        "spring.jpa.show-sql=false",
+        "appointment.archive.initial-delay-ms=3600000",
+        "prescription.outbox.initial-delay-ms=3600000",
+        "reminder.enabled=false"
+})
+class AppointmentArchiverTest {
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    // Saved in the future (the entity insists), then moved to `time` behind Hibernate's back
+    private long appointment(Doctor doctor, Patient patient, LocalDateTime time, int status) {
+        Appointment appointment = new Appointment(doctor, patient, LocalDateTime.now().plusYears(1).plusMinutes(time.getMinute()));
+        long id = appointmentRepository.save(appointment).getId();
+        jdbcTemplate.update("UPDATE appointment SET appointment_time = ?, status = ? WHERE id = ?", time, status, id);
+        return id;
+    }
+
+    @Test
+    void movesEveryAppointmentOlderThanTheHotWindowKeepingIdsAndStatus() {
+        Doctor doctor = doctorRepository.save(new Doctor("Archive Doctor", "Cardiologist", "archive-doctor@clinic.example",
+                "secret-password", "4000000001", List.of("09:00-10:00")));
+        Patient patient = patientRepository.save(new Patient("Archive Patient", "archive-patient@clinic.example",
+                "secret-password", "4000000002", "1 Main Street"));
+        LocalDateTime old = LocalDate.now().minusDays(90).atTime(9, 0);
+
+        long completed = appointment(doctor, patient, old, Appointment.STATUS_COMPLETED);
+        long cancelled = appointment(doctor, patient, old.plusMinutes(1), Appointment.STATUS_CANCELLED);
+        long completedToo = appointment(doctor, patient, old.plusMinutes(2), Appointment.STATUS_COMPLETED);
+        long neverCompleted = appointment(doctor, patient, old.plusMinutes(3), Appointment.STATUS_SCHEDULED);
+        long recent = appointment(doctor, patient, LocalDate.now().minusDays(2).atTime(9, 4), Appointment.STATUS_COMPLETED);
+
+        // Two rows per batch, so the four old appointments take two batches
+        AppointmentArchiver archiver = new AppointmentArchiver(appointmentRepository, archivedAppointmentRepository,
+                transactionManager, 30, 2, 10);
+        assertEquals(4, archiver.archivePastAppointments());
+
+        assertEquals(List.of(completed, cancelled, completedToo, neverCompleted), archivedAppointmentRepository.findAll().stream()
+                .map(ArchivedAppointment::getId).sorted().toList());
+        ArchivedAppointment archivedCancelled = archivedAppointmentRepository.findById(cancelled).orElseThrow();
+        assertEquals(Appointment.STATUS_CANCELLED, archivedCancelled.getStatus());
+        assertEquals(old.plusMinutes(1), archivedCancelled.getAppointmentTime());
+        assertEquals(doctor.getId(), archivedCancelled.getDoctorId());
+        assertEquals(patient.getId(), archivedCancelled.getPatientId());
+        assertEquals(Appointment.STATUS_COMPLETED, archivedAppointmentRepository.findById(completed).orElseThrow().getStatus());
+
+        assertEquals(Appointment.STATUS_SCHEDULED, archivedAppointmentRepository.findById(neverCompleted).orElseThrow().getStatus());
+        assertEquals(List.of(recent), appointmentRepository.findAll().stream()
+                .map(Appointment::getId).sorted().toList());
+        assertEquals(0, archiver.archivePastAppointments());
+    }
+
+    @Test
+    void scheduledJobsDoNotShareASingleThread() {
+        // A long archive run must not hold up the outbox relay or the revocation reload
+        assertTrue(taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize() > 1);
+    }
+}
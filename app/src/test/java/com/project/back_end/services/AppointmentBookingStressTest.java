@@ -0,0 +1,238 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.BookingRequest;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.ScheduleOverrideRepository;
+import com.project.back_end.repo.ScheduleRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Many patients race for the same slot; exactly one booking per (doctor, slot) may succeed.
+class AppointmentBookingStressTest {
+
+    private static final int THREADS = 64;
+    private static final int ATTEMPTS = 400;
+    private static final LocalDateTime SLOT = LocalDate.now().plusDays(3).atTime(9, 0);
+
+    private final Map<String, Appointment> table = new ConcurrentHashMap<>();
+    private final AtomicInteger inserts = new AtomicInteger();
+    private AppointmentRepository appointmentRepository;
+    private AvailabilityIndex availabilityIndex;
+    private AppointmentService appointmentService;
+    private volatile boolean enforceUniqueKey;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        DoctorRepository doctorRepository = mock(DoctorRepository.class);
+        PatientRepository patientRepository = mock(PatientRepository.class);
+
+        when(doctorRepository.findAllWithAvailableTimes(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.stream().map(AppointmentBookingStressTest::doctor).toList();
+        });
+        when(doctorRepository.getReferenceById(anyLong())).thenAnswer(inv -> doctor(inv.getArgument(0)));
+        when(patientRepository.getReferenceById(anyLong())).thenAnswer(inv -> {
+            Patient patient = new Patient();
+            patient.setId(inv.getArgument(0));
+            return patient;
+        });
+        when(appointmentRepository.findBookedTimes(anyLong(), any(), any())).thenAnswer(inv -> {
+            Long doctorId = inv.getArgument(0);
+            LocalDateTime from = inv.getArgument(1);
+            LocalDateTime to = inv.getArgument(2);
+            List<LocalDateTime> times = new ArrayList<>();
+            table.values().stream()
+                    .filter(a -> a.getDoctor().getId().equals(doctorId))
+                    .filter(a -> !a.getAppointmentTime().isBefore(from) && !a.getAppointmentTime().isAfter(to))
+                    .forEach(a -> times.add(a.getAppointmentTime()));
+            return times;
+        });
+        // Deliberately slow, racy insert: only the service's locking keeps it consistent,
+        // unless the unique key is switched on to stand in for another instance's booking.
+        when(appointmentRepository.saveAndFlush(any(Appointment.class))).thenAnswer(inv -> {
+            Appointment appointment = inv.getArgument(0);
+            String key = appointment.getDoctor().getId() + "@" + appointment.getAppointmentTime();
+            if (enforceUniqueKey && table.containsKey(key)) {
+                throw new DataIntegrityViolationException("uk_appointment_doctor_time");
+            }
+            Thread.sleep(1);
+            int n = inserts.incrementAndGet();
+            if (appointment.getId() == null) {
+                appointment.setId((long) n);
+                table.put(key + "#" + n, appointment);
+            }
+            return appointment;
+        });
+        when(appointmentRepository.findById(anyLong())).thenAnswer(inv -> table.values().stream()
+                .filter(a -> inv.getArgument(0).equals(a.getId())).findFirst());
+        when(appointmentRepository.findDoctorIdById(anyLong())).thenAnswer(inv -> table.values().stream()
+                .filter(a -> inv.getArgument(0).equals(a.getId())).findFirst()
+                .map(a -> a.getDoctor().getId()).orElse(null));
+
+        availabilityIndex = new AvailabilityIndex(doctorRepository, appointmentRepository,
+                mock(ScheduleRuleRepository.class), mock(ScheduleOverrideRepository.class), 100, 1000, 60_000);
+        appointmentService = new AppointmentService(appointmentRepository, null, null,
+                patientRepository, doctorRepository, availabilityIndex, new NoOpTransactionManager(), null, null,
+                mock(ReminderScheduler.class), null);
+    }
+
+    @Test
+    void sameSlotIsBookedExactlyOnceUnderContention() throws Exception {
+        List<Integer> results = race(i -> new BookingRequest(1L, SLOT));
+
+        assertEquals(1, results.stream().filter(r -> r == 1).count());
+        assertEquals(ATTEMPTS - 1, results.stream().filter(r -> r == 0).count());
+        assertEquals(1, inserts.get());
+    }
+
+    @Test
+    void eachDoctorSlotIsBookedOnceWhenManyDoctorsContend() throws Exception {
+        int doctors = 8;
+        List<Integer> results = race(i -> new BookingRequest((long) (i % doctors) + 1, SLOT));
+
+        assertEquals(doctors, results.stream().filter(r -> r == 1).count());
+        assertEquals(doctors, inserts.get());
+    }
+
+    @Test
+    void uniqueKeyViolationFromAnotherInstanceIsReportedAsUnavailable() {
+        enforceUniqueKey = true;
+        // Warm the bitmap, then let "another instance" take the slot behind its back
+        assertEquals(Boolean.TRUE, availabilityIndex.isSlotFree(1L, SLOT));
+        Appointment elsewhere = new Appointment(doctor(1L), new Patient(), SLOT);
+        table.put("1@" + SLOT, elsewhere);
+
+        assertEquals(0, appointmentService.bookAppointment(new BookingRequest(1L, SLOT), 99L));
+        assertEquals(Boolean.FALSE, availabilityIndex.isSlotFree(1L, SLOT));
+    }
+
+    @Test
+    void movesAreCheckedAgainstSlotsAndBookingsLikeNewBookings() throws Exception {
+        LocalDateTime nextDay = SLOT.plusDays(1);
+        assertEquals(1, appointmentService.bookAppointment(new BookingRequest(1L, SLOT), 1L));
+        assertEquals(1, appointmentService.bookAppointment(new BookingRequest(1L, SLOT.plusHours(1)), 2L));
+        Long first = idAt(SLOT);
+        Long second = idAt(SLOT.plusHours(1));
+
+        assertEquals("Doctor is not available at the selected time.", move(second, SLOT, 2L));
+        assertEquals("Doctor is not available at the selected time.", move(second, SLOT.plusMinutes(30), 2L));
+        assertEquals("Unauthorized: You can only update your own appointments.", move(first, nextDay, 2L));
+        assertEquals("Appointment updated successfully.", move(first, nextDay, 1L));
+        assertEquals(Boolean.TRUE, availabilityIndex.isSlotFree(1L, SLOT));
+        assertEquals(Boolean.FALSE, availabilityIndex.isSlotFree(1L, nextDay));
+
+        // Both patients race for the freed 9:00 slot; one move wins
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<String> a = pool.submit(() -> { start.await(); return move(first, SLOT, 1L); });
+        Future<String> b = pool.submit(() -> { start.await(); return move(second, SLOT, 2L); });
+        start.countDown();
+        List<String> results = List.of(a.get(30, TimeUnit.SECONDS), b.get(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(1, results.stream().filter("Appointment updated successfully."::equals).count());
+        assertEquals(1, table.values().stream().filter(x -> x.getAppointmentTime().equals(SLOT)).count());
+    }
+
+    @Test
+    void moveOntoASlotTakenByAnotherInstanceIsReportedAsUnavailable() {
+        enforceUniqueKey = true;
+        assertEquals(1, appointmentService.bookAppointment(new BookingRequest(1L, SLOT), 1L));
+        LocalDateTime target = SLOT.plusHours(1);
+        assertEquals(Boolean.TRUE, availabilityIndex.isSlotFree(1L, target));
+        table.put("1@" + target, new Appointment(doctor(1L), new Patient(), target));
+
+        assertEquals("Doctor is not available at the selected time.", move(idAt(SLOT), target, 1L));
+        assertEquals(Boolean.FALSE, availabilityIndex.isSlotFree(1L, target));
+    }
+
+    private String move(Long id, LocalDateTime time, Long patientId) {
+        Appointment details = new Appointment();
+        details.setId(id);
+        details.setAppointmentTime(time);
+        return appointmentService.updateAppointment(id, details, patientId);
+    }
+
+    private Long idAt(LocalDateTime time) {
+        return table.values().stream().filter(a -> time.equals(a.getAppointmentTime()))
+                .findFirst().orElseThrow().getId();
+    }
+
+    private List<Integer> race(java.util.function.IntFunction<BookingRequest> requestFor) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            BookingRequest request = requestFor.apply(i);
+            long patientId = 1000L + i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                return appointmentService.bookAppointment(request, patientId);
+            }));
+        }
+        start.countDown();
+        List<Integer> results = new ArrayList<>();
+        for (Future<Integer> future : futures) {
+            results.add(future.get(30, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        return results;
+    }
+
+    private static Doctor doctor(Long id) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        doctor.setAvailableTimes(List.of("09:00-10:00", "10:00-11:00"));
+        return doctor;
+    }
+
+    // Commits immediately; enough for TransactionTemplate and after-commit callbacks
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.ScheduleOverrideRepository;
+import com.project.back_end.repo.ScheduleRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// A week view over a whole specialty must cost one doctor query and one appointment query, not one per cell.
+class AvailabilityMatrixTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 7);
+    private static final LocalDate SUNDAY = MONDAY.plusDays(6);
+
+    private DoctorRepository doctorRepository;
+    private AppointmentRepository appointmentRepository;
+    private AvailabilityIndex availabilityIndex;
+    private final List<Long> doctorIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        doctorRepository = mock(DoctorRepository.class);
+        appointmentRepository = mock(AppointmentRepository.class);
+
+        List<Doctor> doctors = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            Doctor doctor = new Doctor();
+            doctor.setId(id);
+            doctor.setAvailableTimes(List.of("09:00-10:00", "10:00-11:00"));
+            doctors.add(doctor);
+            doctorIds.add(id);
+        }
+        when(doctorRepository.findAllWithAvailableTimes(anyCollection())).thenReturn(doctors);
+        List<Object[]> booked = new ArrayList<>();
+        booked.add(new Object[]{3L, MONDAY.plusDays(2).atTime(10, 0)});
+        when(appointmentRepository.findBookedTimesByDoctorIds(anyCollection(), any(), any())).thenReturn(booked);
+
+        availabilityIndex = new AvailabilityIndex(doctorRepository, appointmentRepository,
+                mock(ScheduleRuleRepository.class), mock(ScheduleOverrideRepository.class), 1000, 10000, 60_000);
+    }
+
+    @Test
+    void weekForFiftyDoctorsUsesOneQueryPerTable() {
+        Map<Long, Map<LocalDate, List<String>>> matrix = availabilityIndex.freeSlots(doctorIds, MONDAY, SUNDAY);
+
+        assertEquals(50, matrix.size());
+        assertEquals(7, matrix.get(1L).size());
+        assertEquals(List.of("09:00-10:00"), matrix.get(3L).get(MONDAY.plusDays(2)));
+        assertEquals(List.of("09:00-10:00", "10:00-11:00"), matrix.get(3L).get(MONDAY));
+        verify(doctorRepository, times(1)).findAllWithAvailableTimes(anyCollection());
+        verify(appointmentRepository, times(1)).findBookedTimesByDoctorIds(anyCollection(), any(), any());
+        verify(doctorRepository, never()).findById(anyLong());
+        verify(appointmentRepository, never()).findBookedTimes(anyLong(), any(), any());
+    }
+
+    @Test
+    void warmMatrixAndSingleDayReadsNeedNoQueries() {
+        availabilityIndex.freeSlots(doctorIds, MONDAY, SUNDAY);
+
+        availabilityIndex.freeSlots(doctorIds, MONDAY, SUNDAY);
+        assertEquals(List.of("09:00-10:00"), availabilityIndex.freeSlots(3L, MONDAY.plusDays(2)));
+        assertFalse(availabilityIndex.isSlotFree(3L, MONDAY.plusDays(2).atTime(10, 0)));
+
+        verify(doctorRepository, times(1)).findAllWithAvailableTimes(anyCollection());
+        verify(appointmentRepository, times(1)).findBookedTimesByDoctorIds(anyCollection(), any(), any());
+        verify(appointmentRepository, never()).findBookedTimes(anyLong(), any(), any());
+    }
+
+    @Test
+    void unknownDoctorsAreLeftOut() {
+        List<Long> ids = new ArrayList<>(doctorIds);
+        ids.add(999L);
+
+        assertEquals(50, availabilityIndex.freeSlots(ids, MONDAY, MONDAY).size());
+    }
+
+    @Test
+    void bookingCommittedDuringTheRangeQueryIsNotLost() throws Exception {
+        // The booking lands after the query read its rows but before the loaded bitmaps are cached
+        Thread[] booking = new Thread[1];
+        when(appointmentRepository.findBookedTimesByDoctorIds(anyCollection(), any(), any())).thenAnswer(inv -> {
+            booking[0] = new Thread(() -> availabilityIndex.markBooked(3L, MONDAY.atTime(9, 0)));
+            booking[0].start();
+            Thread.sleep(100);
+            return List.of();
+        });
+
+        availabilityIndex.freeSlots(doctorIds, MONDAY, SUNDAY);
+        booking[0].join();
+
+        assertEquals(List.of("10:00-11:00"), availabilityIndex.freeSlots(3L, MONDAY));
+    }
+
+    @Test
+    void bitmapsAreReloadedAfterTheTtlEvenWhileUpdatedLocally() throws InterruptedException {
+        AvailabilityIndex shortLived = new AvailabilityIndex(doctorRepository, appointmentRepository,
+                mock(ScheduleRuleRepository.class), mock(ScheduleOverrideRepository.class), 1000, 10000, 200);
+        LocalDate day = MONDAY.plusDays(2);
+        when(appointmentRepository.findBookedTimes(anyLong(), any(), any())).thenReturn(List.of(day.atTime(10, 0)));
+        assertFalse(shortLived.isSlotFree(3L, day.atTime(10, 0)));
+
+        // The 10:00 booking is cancelled on another instance; local bookings keep touching the bitmap
+        when(appointmentRepository.findBookedTimes(anyLong(), any(), any())).thenReturn(List.of());
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(100);
+            shortLived.markBooked(3L, day.atTime(9, 0));
+        }
+        assertTrue(shortLived.isSlotFree(3L, day.atTime(10, 0)));
+    }
+}
@@ -0,0 +1,131 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+// Runs against H2 in MySQL mode; chunks commit for real, so each test uses its own emails and phones
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk-import;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.data.mongodb.uri=mongodb://localhost:27017/prescriptions",
+        "spring.jpa.show-sql=false",
+        "appointment.archive.initial-delay-ms=3600000",
+        "reminder.enabled=false"
+})
+class BulkImportServiceTest {
+
+    private static final String HASH = new BCryptPasswordEncoder(4).encode("imported-secret");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private BulkImportService importer(int chunkSize) {
+        return new BulkImportService(jdbcTemplate, doctorRepository, patientRepository, new PasswordHasher(4, 2, 4),
+                Validation.buildDefaultValidatorFactory().getValidator(), objectMapper, transactionManager,
+                mock(DoctorDirectory.class), mock(AvailabilityIndex.class), mock(DoctorResponseCache.class),
+                chunkSize, 100);
+    }
+
+    private static ByteArrayInputStream upload(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importsDoctorsFromCsvAndReportsBadRowsByLine() throws IOException {
+        doctorRepository.save(new Doctor("Existing Doctor", "Cardiologist", "taken@clinic.example",
+                HASH, "1234567890", List.of()));
+
+        String csv = String.join("\n",
+                "name,specialty,email,password,phone,available_times",
+                "Ann Adams,Cardiologist,ann@clinic.example,plain-secret,1234567890,09:00-10:00|10:00-11:00",
+                "Bob Brown,Dermatologist,bob@clinic.example," + HASH + ",1234567891,",
+                "Cy Cole,Neurologist,cy@clinic.example,plain-secret,12345,",            // line 4: bad phone
+                "\"Adams, Ann\",Cardiologist,ANN@clinic.example,plain-secret,1234567892,", // line 5: repeated in file
+                "Dee Dunn,Cardiologist,Taken@clinic.example,plain-secret,1234567893,",   // line 6: already stored
+                "Eve \"unterminated,Cardiologist,eve@clinic.example,plain-secret,1234567894,"); // line 7
+
+        Map<String, Object> report = importer(2).importRows(BulkImportService.Kind.DOCTORS,
+                BulkImportService.Format.CSV, upload(csv));
+
+        assertEquals(2, report.get("imported"));
+        assertEquals(2, report.get("duplicates"));
+        assertEquals(2, report.get("failed"));
+        List<?> lines = ((List<?>) report.get("errors")).stream().map(e -> ((Map<?, ?>) e).get("line")).sorted().toList();
+        assertEquals(List.of(4, 5, 6, 7), lines);
+
+        Doctor ann = doctorRepository.findByEmail("ann@clinic.example");
+        Doctor withTimes = doctorRepository.findAllWithAvailableTimes(List.of(ann.getId())).get(0);
+        assertEquals(List.of("09:00-10:00", "10:00-11:00"), withTimes.getAvailableTimes());
+        assertTrue(new BCryptPasswordEncoder().matches("plain-secret", ann.getPassword()));
+        assertEquals(HASH, doctorRepository.findByEmail("bob@clinic.example").getPassword());
+    }
+
+    // Throughput of large imports is measured by benchmark.BulkImportBenchmark
+    @Test
+    void importsPatientsFromNdjsonInChunksAndSkipsDuplicates() throws IOException {
+        patientRepository.save(new Patient("Existing Patient", "stored@patients.example", HASH,
+                "4999999999", "1 Main Street"));
+
+        int rows = 5_000;
+        StringBuilder ndjson = new StringBuilder(rows * 140);
+        for (int i = 0; i < rows; i++) {
+            // A few plain passwords go through the (deliberately tiny) hashing pool
+            String password = i % 1000 == 0 ? "plain-secret" : HASH;
+            ndjson.append(patientLine("Patient " + i, "bulk" + i + "@patients.example", password, 5_000_000_000L + i));
+        }
+        ndjson.append(patientLine("Again", "BULK7@patients.example", HASH, 5_100_000_000L));    // repeated in file
+        ndjson.append(patientLine("Stored", "Stored@patients.example", HASH, 5_100_000_001L));  // already stored
+        ndjson.append("{not json}\n");
+
+        Map<String, Object> report = importer(400).importRows(BulkImportService.Kind.PATIENTS,
+                BulkImportService.Format.NDJSON, upload(ndjson.toString()));
+
+        assertEquals(rows, report.get("imported"), () -> report.toString());
+        assertEquals(2, report.get("duplicates"));
+        assertEquals(1, report.get("failed"));
+        List<?> lines = ((List<?>) report.get("errors")).stream().map(e -> ((Map<?, ?>) e).get("line")).sorted().toList();
+        assertEquals(List.of(rows + 1, rows + 2, rows + 3), lines);
+        assertEquals(rows + 1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM patient WHERE email LIKE '%@patients.example'", Integer.class));
+        assertEquals("Patient 7", patientRepository.findByEmail("bulk7@patients.example").getName());
+        assertEquals("Existing Patient", patientRepository.findByEmail("stored@patients.example").getName());
+
+        Patient first = patientRepository.findByEmail("bulk0@patients.example");
+        assertTrue(new BCryptPasswordEncoder().matches("plain-secret", first.getPassword()));
+        assertEquals(HASH, patientRepository.findByEmail("bulk1@patients.example").getPassword());
+    }
+
+    private static String patientLine(String name, String email, String password, long phone) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + email + "\",\"password\":\"" + password
+                + "\",\"phone\":\"" + phone + "\",\"address\":\"1 Main Street\"}\n";
+    }
+}
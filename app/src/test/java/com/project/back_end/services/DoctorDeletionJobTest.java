@@ -0,0 +1,101 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.ScheduleOverrideRepository;
+import com.project.back_end.repo.ScheduleRuleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DoctorDeletionJobTest {
+
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final ArchivedAppointmentRepository archivedAppointmentRepository = mock(ArchivedAppointmentRepository.class);
+    private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+    private final ScheduleRuleRepository scheduleRuleRepository = mock(ScheduleRuleRepository.class);
+    private final ScheduleOverrideRepository scheduleOverrideRepository = mock(ScheduleOverrideRepository.class);
+
+    private DoctorDeletionJob job(int chunkSize) {
+        return new DoctorDeletionJob(appointmentRepository, archivedAppointmentRepository, doctorRepository, scheduleRuleRepository,
+                scheduleOverrideRepository, mock(PlatformTransactionManager.class), chunkSize);
+    }
+
+    @Test
+    void deletesAppointmentsInChunksThenTheDoctor() throws InterruptedException {
+        List<Long> remaining = new ArrayList<>(LongStream.rangeClosed(1, 1200).boxed().toList());
+        when(appointmentRepository.countByDoctorId(7L)).thenReturn(1200L);
+        when(archivedAppointmentRepository.countByDoctorId(7L)).thenReturn(30L);
+        when(archivedAppointmentRepository.findIdsByDoctorId(eq(7L), any(Limit.class)))
+                .thenReturn(LongStream.rangeClosed(5001, 5030).boxed().toList(), List.of());
+        when(archivedAppointmentRepository.deleteAllByIdIn(anyCollection())).thenReturn(30);
+        when(appointmentRepository.findIdsByDoctorId(eq(7L), any(Limit.class))).thenAnswer(inv -> {
+            Limit limit = inv.getArgument(1);
+            return List.copyOf(remaining.subList(0, Math.min(limit.max(), remaining.size())));
+        });
+        when(appointmentRepository.deleteAllByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            remaining.removeAll(ids);
+            return ids.size();
+        });
+
+        DoctorDeletionJob job = job(500);
+        job.start(7L);
+        Map<String, Object> progress = awaitFinished(job, 7L);
+
+        assertEquals("done", progress.get("state"));
+        assertEquals(1230L, progress.get("appointmentsTotal"));
+        assertEquals(1230L, progress.get("appointmentsDeleted"));
+        // 500 + 500 + 200, then an empty chunk ends the loop
+        verify(appointmentRepository, times(3)).deleteAllByIdIn(anyCollection());
+        verify(archivedAppointmentRepository).deleteAllByIdIn(anyCollection());
+        verify(scheduleRuleRepository).deleteByDoctorId(7L);
+        verify(scheduleOverrideRepository).deleteByDoctorId(7L);
+        verify(doctorRepository).deleteById(7L);
+    }
+
+    @Test
+    void reportsFailureAndKeepsTheDoctorRow() throws InterruptedException {
+        when(appointmentRepository.countByDoctorId(8L)).thenReturn(10L);
+        when(appointmentRepository.findIdsByDoctorId(eq(8L), any(Limit.class)))
+                .thenThrow(new IllegalStateException("lock wait timeout"));
+
+        DoctorDeletionJob job = job(500);
+        assertNull(job.getProgress(8L));
+        job.start(8L);
+        Map<String, Object> progress = awaitFinished(job, 8L);
+
+        assertEquals("failed", progress.get("state"));
+        assertEquals("lock wait timeout", progress.get("error"));
+        verify(doctorRepository, never()).deleteById(8L);
+    }
+
+    private static Map<String, Object> awaitFinished(DoctorDeletionJob job, Long doctorId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            Map<String, Object> progress = job.getProgress(doctorId);
+            if (progress != null && progress.get("finishedAt") != null) {
+                return progress;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("deletion did not finish");
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.ScheduleRule;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.ScheduleRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DoctorDirectoryTest {
+
+    private DoctorRepository doctorRepository;
+    private ScheduleRuleRepository scheduleRuleRepository;
+    private DoctorDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        doctorRepository = mock(DoctorRepository.class);
+        scheduleRuleRepository = mock(ScheduleRuleRepository.class);
+        when(doctorRepository.findAllWithAvailableTimes()).thenReturn(List.of(
+                doctor(1L, "Emily Adams", "Cardiologist", "09:00-10:00"),
+                doctor(2L, "Mark Johnson", "Neurologist", "14:00-15:00"),
+                doctor(3L, "Sarah Lee", "cardiologist", "10:00-11:00", "15:00-16:00"),
+                doctor(4L, "Tom Adamson", "Dermatologist", "11:00-12:00")));
+        ScheduleRule afternoonOnly = new ScheduleRule(DayOfWeek.MONDAY, LocalTime.of(13, 0), LocalTime.of(17, 0), 60);
+        afternoonOnly.setDoctorId(4L);
+        when(scheduleRuleRepository.findAll()).thenReturn(List.of(afternoonOnly));
+        directory = new DoctorDirectory(doctorRepository, scheduleRuleRepository);
+    }
+
+    @Test
+    void searchesByNameSpecialtyAndTime() {
+        assertEquals(List.of(1L, 4L), ids(directory.search("adam", null, null)));
+        assertEquals(List.of(1L, 4L), ids(directory.search("AdA", null, null)));
+        assertEquals(List.of(4L), ids(directory.search("adamson", null, null)));
+        assertEquals(List.of(2L, 4L), ids(directory.search("o", null, null)));
+        assertEquals(List.of(), ids(directory.search("zzz", null, null)));
+
+        assertEquals(List.of(1L, 3L), ids(directory.search(null, "CARDIOLOGIST", null)));
+        assertEquals(List.of(1L, 3L), ids(directory.search(null, null, "am")));
+        // Weekly rules win over availableTimes
+        assertEquals(List.of(2L, 3L, 4L), ids(directory.search(null, null, "PM")));
+        assertEquals(List.of(), ids(directory.search(null, null, "evening")));
+
+        assertEquals(List.of(3L), ids(directory.search("lee", "Cardiologist", "PM")));
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(directory.search(null, null, null)));
+
+        verify(doctorRepository, times(1)).findAllWithAvailableTimes();
+    }
+
+    @Test
+    void refreshAndRemoveKeepTheIndexInStep() {
+        directory.search(null, null, null);
+        when(doctorRepository.findAllWithAvailableTimes(anyCollection()))
+                .thenReturn(List.of(doctor(2L, "Mark Adler", "Cardiologist", "09:00-10:00")));
+
+        directory.refresh(2L);
+        directory.remove(1L);
+
+        assertEquals(List.of(2L, 4L), ids(directory.search("ad", null, null)));
+        assertEquals(List.of(), ids(directory.search("johnson", null, null)));
+        assertEquals(List.of(2L, 3L), ids(directory.search(null, "cardiologist", null)));
+        assertEquals(List.of(2L, 3L), ids(directory.search(null, null, "AM")));
+        assertEquals(3, directory.size());
+    }
+
+    @Test
+    void manyEditsCompactWithoutLosingDoctors() {
+        List<Doctor> doctors = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            doctors.add(doctor(id, "Doctor " + id, "Surgeon", "09:00-10:00"));
+        }
+        directory.load(doctors, List.of());
+
+        for (int round = 0; round < 30; round++) {
+            for (long id = 1; id <= 100; id++) {
+                Doctor edited = doctor(id, "Doctor " + id + " v" + round, "Surgeon", "14:00-15:00");
+                when(doctorRepository.findAllWithAvailableTimes(List.of(id))).thenReturn(List.of(edited));
+                directory.refresh(id);
+            }
+        }
+
+        assertEquals(100, directory.size());
+        assertEquals(100, directory.search("v29", "surgeon", "PM").size());
+        assertEquals(List.of(42L), ids(directory.search("doctor 42 v29", null, null)));
+        assertEquals(List.of(), ids(directory.search("v28", null, null)));
+    }
+
+    private static Doctor doctor(Long id, String name, String specialty, String... times) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        doctor.setName(name);
+        doctor.setSpecialty(specialty);
+        doctor.setAvailableTimes(List.of(times));
+        return doctor;
+    }
+
+    private static List<Long> ids(List<Doctor> doctors) {
+        return doctors.stream().map(Doctor::getId).toList();
+    }
+}
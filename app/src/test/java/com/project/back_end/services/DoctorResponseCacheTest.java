@@ -0,0 +1,100 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DoctorResponseCacheTest {
+
+    private DoctorResponseCache cache;
+    private final AtomicInteger encodings = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new DoctorResponseCache(new ObjectMapper(), 1 << 20, 64 * 1024);
+    }
+
+    @Test
+    void servesCachedBytesUntilVersionIsBumped() {
+        DoctorResponseCache.CachedJson first = cache.get(List.of("filter", "a"), this::body);
+        DoctorResponseCache.CachedJson again = cache.get(List.of("filter", "a"), this::body);
+        assertEquals(1, encodings.get());
+        assertEquals(first.getEtag(), again.getEtag());
+
+        cache.bump();
+        cache.get(List.of("filter", "a"), this::body);
+        assertEquals(2, encodings.get());
+    }
+
+    @Test
+    void answersNotModifiedForMatchingEtag() {
+        DoctorResponseCache.CachedJson json = cache.get(List.of("all"), this::body);
+
+        ResponseEntity<byte[]> revalidated = json.toResponse("W/\"x\", " + json.getEtag(), null);
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+        assertNull(revalidated.getBody());
+        assertEquals(json.getEtag(), revalidated.getHeaders().getETag());
+
+        // Weak comparison: a W/ form of the tag revalidates too
+        assertEquals(HttpStatus.NOT_MODIFIED, json.toResponse("W/" + json.getEtag(), null).getStatusCode());
+
+        ResponseEntity<byte[]> changed = json.toResponse("\"something-else\"", null);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+    }
+
+    @Test
+    void gzipVariantHasItsOwnEtagAndRevalidates() throws IOException {
+        DoctorResponseCache.CachedJson json = cache.get(List.of("all"), this::body);
+
+        ResponseEntity<byte[]> plain = json.toResponse(null, null);
+        ResponseEntity<byte[]> zipped = json.toResponse(null, "gzip, deflate, br");
+        assertEquals("gzip", zipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertFalse(plain.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+        assertNotEquals(plain.getHeaders().getETag(), zipped.getHeaders().getETag());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(zipped.getBody()))) {
+            assertArrayEquals(plain.getBody(), in.readAllBytes());
+        }
+
+        ResponseEntity<byte[]> revalidated = json.toResponse(zipped.getHeaders().getETag(), "gzip");
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, json.toResponse("W/" + zipped.getHeaders().getETag(), "gzip").getStatusCode());
+
+        // A tag only revalidates the encoding it was issued for
+        assertEquals(HttpStatus.OK, json.toResponse(plain.getHeaders().getETag(), "gzip").getStatusCode());
+        assertEquals(HttpStatus.OK, json.toResponse(zipped.getHeaders().getETag(), null).getStatusCode());
+    }
+
+    @Test
+    void oversizedBodiesAreNotKept() {
+        DoctorResponseCache small = new DoctorResponseCache(new ObjectMapper(), 1 << 20, 100);
+        small.get(List.of("all"), this::body);
+        assertTrue(small.isOversized(List.of("all")));
+        small.get(List.of("all"), this::body);
+        assertEquals(2, encodings.get());
+
+        small.bump();
+        assertFalse(small.isOversized(List.of("all")));
+    }
+
+    private Object body() {
+        encodings.incrementAndGet();
+        return Map.of("doctors", List.of(Map.of("name", "Dr. Emily Adams ".repeat(100))));
+    }
+}
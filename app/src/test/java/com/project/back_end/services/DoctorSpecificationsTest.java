@@ -0,0 +1,107 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.ScheduleOverride;
+import com.project.back_end.models.ScheduleRule;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.DoctorSpecifications;
+import com.project.back_end.repo.ScheduleOverrideRepository;
+import com.project.back_end.repo.ScheduleRuleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The SQL search (doctor.directory.enabled=false) must find the same doctors as the in-memory directory
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:doctor-specifications;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.data.mongodb.uri=mongodb://localhost:27017/prescriptions",
+        "spring.jpa.show-sql=false",
+        "appointment.archive.initial-delay-ms=3600000",
+        "prescription.outbox.initial-delay-ms=3600000",
+        "reminder.enabled=false"
+})
+class DoctorSpecificationsTest {
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private ScheduleRuleRepository scheduleRuleRepository;
+    @Autowired
+    private ScheduleOverrideRepository scheduleOverrideRepository;
+
+    private static int sequence;
+
+    private Long doctor(List<String> availableTimes, ScheduleRule... rules) {
+        int n = ++sequence;
+        Long id = doctorRepository.save(new Doctor("Specification Doctor " + n, "Cardiologist",
+                "specification-doctor" + n + "@clinic.example", "secret-password",
+                String.valueOf(5_000_000_000L + n), availableTimes)).getId();
+        for (ScheduleRule rule : rules) {
+            rule.setDoctorId(id);
+            scheduleRuleRepository.save(rule);
+        }
+        return id;
+    }
+
+    private static ScheduleRule rule(int startHour, int startMinute, int endHour, int endMinute, int slotMinutes) {
+        return new ScheduleRule(DayOfWeek.MONDAY, LocalTime.of(startHour, startMinute), LocalTime.of(endHour, endMinute),
+                slotMinutes);
+    }
+
+    private List<Long> sql(String amOrPm) {
+        return doctorRepository.findAll(DoctorSpecifications.matching(null, null, amOrPm)).stream()
+                .map(Doctor::getId).sorted().toList();
+    }
+
+    private List<Long> directory(DoctorDirectory directory, String amOrPm) {
+        return directory.search(null, null, amOrPm).stream().map(Doctor::getId).sorted().toList();
+    }
+
+    @Test
+    void amAndPmFollowSlotStartsLikeTheDirectory() {
+        Long lateMorning = doctor(List.of(), rule(11, 0, 13, 0, 120));             // one slot, at 11:00
+        Long afternoon = doctor(List.of(), rule(13, 0, 17, 0, 60));
+        Long aroundNoon = doctor(List.of(), rule(11, 30, 12, 30, 30));             // 11:30 and 12:00
+        Long tooShort = doctor(List.of("14:00-15:00"), rule(11, 0, 11, 20, 30));  // rules win, and cut nothing
+        Long unpadded = doctor(List.of("9:00-10:00"));                               // unbookable, as in WeeklySchedule
+        Long legacyBoth = doctor(List.of("09:00-10:00", " 14:00-15:00"));
+        Long legacyMorning = doctor(List.of("11:00"));
+        Long withExtra = doctor(List.of(), rule(9, 0, 10, 0, 60));
+        ScheduleOverride extra = new ScheduleOverride(LocalDate.now().plusDays(3), ScheduleOverride.Type.EXTRA,
+                LocalTime.of(15, 0), LocalTime.of(16, 0), 60);
+        extra.setDoctorId(withExtra);
+        scheduleOverrideRepository.save(extra); // date overrides do not change the weekly AM/PM
+
+        assertEquals(List.of(lateMorning, aroundNoon, legacyBoth, legacyMorning, withExtra), sql("AM"));
+        assertEquals(List.of(afternoon, aroundNoon, legacyBoth), sql("pm"));
+        assertEquals(List.of(), sql("evening"));
+
+        DoctorDirectory directory = new DoctorDirectory(doctorRepository, scheduleRuleRepository);
+        assertEquals(directory(directory, "AM"), sql("AM"));
+        assertEquals(directory(directory, "PM"), sql("PM"));
+        assertEquals(List.of(), List.of(tooShort, unpadded).stream().filter(sql("AM")::contains).toList());
+    }
+
+    @Test
+    void specialtyMatchesIgnoringCaseLikeTheDirectory() {
+        Long neurologist = doctor(List.of("09:00-10:00"));
+        Doctor doctor = doctorRepository.findById(neurologist).orElseThrow();
+        doctor.setSpecialty("Neurologist");
+        doctorRepository.save(doctor);
+
+        List<Long> sql = doctorRepository.findAll(DoctorSpecifications.matching(null, " nEUROLOGIST ", null)).stream()
+                .map(Doctor::getId).sorted().toList();
+        assertEquals(List.of(neurologist), sql);
+        DoctorDirectory directory = new DoctorDirectory(doctorRepository, scheduleRuleRepository);
+        assertEquals(directory.search(null, " nEUROLOGIST ", null).stream().map(Doctor::getId).sorted().toList(), sql);
+    }
+}
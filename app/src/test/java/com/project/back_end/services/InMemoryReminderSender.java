@@ -0,0 +1,21 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// ReminderSender for tests: keeps every batch it is given
+class InMemoryReminderSender implements ReminderSender {
+
+    final List<List<AppointmentDTO>> batches = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(List<AppointmentDTO> reminders) {
+        batches.add(List.copyOf(reminders));
+    }
+
+    int sentCount() {
+        return batches.stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,128 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.ArchivedAppointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the real UNION ALL of hot and archived appointments against H2 in MySQL mode
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:medication-history;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.data.mongodb.uri=mongodb://localhost:27017/prescriptions",
+        "spring.jpa.show-sql=false",
+        "appointment.archive.initial-delay-ms=3600000",
+        "prescription.outbox.initial-delay-ms=3600000",
+        "reminder.enabled=false"
+})
+class MedicationHistoryTest {
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static int sequence;
+
+    private Doctor doctor(String name) {
+        int n = ++sequence;
+        return doctorRepository.save(new Doctor(name, "Cardiologist", "history-doctor" + n + "@clinic.example",
+                "secret-password", String.valueOf(6_000_000_000L + n), List.of("09:00-10:00")));
+    }
+
+    private Patient patient() {
+        int n = ++sequence;
+        return patientRepository.save(new Patient("History Patient " + n, "history-patient" + n + "@clinic.example",
+                "secret-password", String.valueOf(7_000_000_000L + n), "1 Main Street"));
+    }
+
+    // Saved in the future (the entity insists), then moved to `time` behind Hibernate's back
+    private long appointment(Doctor doctor, Patient patient, LocalDateTime time, int status) {
+        long id = appointmentRepository.save(new Appointment(doctor, patient,
+                LocalDateTime.now().plusYears(1).plusMinutes(++sequence))).getId();
+        jdbcTemplate.update("UPDATE appointment SET appointment_time = ?, status = ? WHERE id = ?", time, status, id);
+        return id;
+    }
+
+    private long archived(long id, Doctor doctor, Patient patient, LocalDateTime time, int status) {
+        ArchivedAppointment archived = new ArchivedAppointment();
+        archived.setId(id);
+        archived.setDoctorId(doctor.getId());
+        archived.setPatientId(patient.getId());
+        archived.setAppointmentTime(time);
+        archived.setStatus(status);
+        archived.setArchivedAt(LocalDateTime.now());
+        return archivedAppointmentRepository.save(archived).getId();
+    }
+
+    @Test
+    void historyCombinesHotAndArchivedCompletedAppointments() {
+        Doctor recentDoctor = doctor("Dr. Recent");
+        Doctor formerDoctor = doctor("Dr. Former");
+        Patient patient = patient();
+        Patient someoneElse = patient();
+        LocalDateTime lastWeek = LocalDate.now().minusDays(7).atTime(9, 0);
+        LocalDateTime lastYear = LocalDate.now().minusYears(1).atTime(10, 0);
+
+        long hotCompleted = appointment(recentDoctor, patient, lastWeek, Appointment.STATUS_COMPLETED);
+        appointment(recentDoctor, patient, lastWeek.plusHours(1), Appointment.STATUS_SCHEDULED);
+        appointment(recentDoctor, someoneElse, lastWeek.plusHours(2), Appointment.STATUS_COMPLETED);
+        long archivedCompleted = archived(900_001L, formerDoctor, patient, lastYear, Appointment.STATUS_COMPLETED);
+        archived(900_002L, formerDoctor, patient, lastYear.plusHours(1), Appointment.STATUS_CANCELLED);
+
+        List<Object[]> history = appointmentRepository.findCompletedHistory(patient.getId());
+        history.sort(Comparator.comparing(row -> (Long) row[0]));
+
+        assertEquals(2, history.size());
+        assertEquals(hotCompleted, history.get(0)[0]);
+        assertEquals(lastWeek, history.get(0)[1]);
+        assertEquals("Dr. Recent", history.get(0)[2]);
+        assertEquals(archivedCompleted, history.get(1)[0]);
+        assertEquals(lastYear, history.get(1)[1]);
+        assertEquals("Dr. Former", history.get(1)[2]);
+    }
+
+    @Test
+    void onlyDoctorsWithANonCancelledAppointmentSeeThePatient() {
+        Doctor upcoming = doctor("Dr. Upcoming");
+        Doctor archivedOnly = doctor("Dr. Archived");
+        Doctor cancelledOnly = doctor("Dr. Cancelled");
+        Doctor stranger = doctor("Dr. Stranger");
+        Patient patient = patient();
+
+        appointment(upcoming, patient, LocalDateTime.now().plusDays(3), Appointment.STATUS_SCHEDULED);
+        archived(900_101L, archivedOnly, patient, LocalDateTime.now().minusYears(1), Appointment.STATUS_COMPLETED);
+        appointment(cancelledOnly, patient, LocalDateTime.now().plusDays(4), Appointment.STATUS_CANCELLED);
+
+        assertTrue(appointmentService.isPatientOf(upcoming.getId(), patient.getId()));
+        assertTrue(appointmentService.isPatientOf(archivedOnly.getId(), patient.getId()));
+        assertFalse(appointmentService.isPatientOf(cancelledOnly.getId(), patient.getId()));
+        assertFalse(appointmentService.isPatientOf(stranger.getId(), patient.getId()));
+    }
+}
@@ -0,0 +1,61 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Prescription;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrescriptionCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private List<Prescription> load(Long appointmentId) {
+        loads.incrementAndGet();
+        if (appointmentId % 2 == 0) {
+            return List.of();
+        }
+        return List.of(new Prescription("Jane Patient", appointmentId, "Aspirin", "1 tablet daily", null));
+    }
+
+    @Test
+    void servesFoundAndMissingPrescriptionsFromMemoryUntilInvalidated() {
+        PrescriptionCache cache = new PrescriptionCache(100, 1 << 20, 60, 30);
+
+        assertEquals("Aspirin", cache.get(1L, this::load).get(0).getMedication());
+        cache.get(1L, this::load);
+        assertTrue(cache.get(2L, this::load).isEmpty());
+        assertTrue(cache.get(2L, this::load).isEmpty());
+        assertEquals(2, loads.get());
+
+        cache.invalidate(2L);
+        cache.get(2L, this::load);
+        assertEquals(3, loads.get());
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(3L, stats.get("misses"));
+    }
+
+    @Test
+    void entryCountIsBoundedThroughTheMinimumWeight() throws InterruptedException {
+        // 64 KiB over 10 entries: every entry weighs at least 6.4 KiB, far above a real prescription
+        PrescriptionCache cache = new PrescriptionCache(10, 64 * 1024, 60, 30);
+        for (long id = 1; id <= 200; id++) {
+            cache.get(id, this::load);
+        }
+
+        // Eviction runs asynchronously
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((long) cache.getStats().get("size") > 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Map<String, Object> stats = cache.getStats();
+        assertTrue((long) stats.get("size") <= 10, stats::toString);
+        assertTrue((long) stats.get("evictions") >= 190, stats::toString);
+    }
+}
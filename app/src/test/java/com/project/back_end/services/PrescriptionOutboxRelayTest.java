@@ -0,0 +1,268 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.models.PrescriptionOutbox;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.PrescriptionOutboxRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// H2 in MySQL mode for the outbox, an in-memory Mongo server for the relay target. The scheduled relay is
+// kept out of the way; each test calls relay() itself.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:prescription-outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "appointment.archive.initial-delay-ms=3600000",
+        "prescription.outbox.initial-delay-ms=3600000",
+        "reminder.enabled=false"
+})
+class PrescriptionOutboxRelayTest {
+
+    private static final MongoServer MONGO = new MongoServer(new MemoryBackend());
+    private static final String MONGO_URI = MONGO.bindAndGetConnectionString();
+
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> MONGO_URI + "/prescriptions");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        MONGO.shutdown();
+    }
+
+    @Autowired
+    private PrescriptionOutboxRelay relay;
+    @Autowired
+    private PrescriptionOutboxRepository outboxRepository;
+    @Autowired
+    private PrescriptionRepository prescriptionRepository;
+    @Autowired
+    private PrescriptionService prescriptionService;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private PrescriptionCache prescriptionCache;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static int sequence;
+    private Long doctorId; // doctor of the last appointments() call
+
+    @BeforeEach
+    void setUp() {
+        prescriptionService.ensureIndexes();
+    }
+
+    // Appointments of a fresh doctor and patient, an hour apart; returns their ids
+    private List<Long> appointments(int count) {
+        int n = ++sequence;
+        Doctor doctor = doctorRepository.save(new Doctor("Doctor " + n, "Cardiologist", "outbox-doctor" + n + "@clinic.example",
+                "secret-password", String.valueOf(2_000_000_000L + n), List.of("09:00-10:00")));
+        doctorId = doctor.getId();
+        Patient patient = patientRepository.save(new Patient("Patient " + n, "outbox-patient" + n + "@clinic.example",
+                "secret-password", String.valueOf(3_000_000_000L + n), "1 Main Street"));
+        LocalDateTime start = LocalDate.now().plusDays(n).atTime(9, 0);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(appointmentRepository.save(new Appointment(doctor, patient, start.plusHours(i))).getId());
+        }
+        return ids;
+    }
+
+    private long appointment() {
+        return appointments(1).get(0);
+    }
+
+    private static Prescription prescription(long appointmentId, String medication) {
+        return new Prescription("Jane Patient", appointmentId, medication, "1 tablet daily", null);
+    }
+
+    @Test
+    void submitCompletesTheAppointmentAndTheRelayWritesThePrescriptionOnce() {
+        long appointmentId = appointment();
+
+        assertEquals(1, relay.submit(prescription(appointmentId, "Aspirin")));
+        assertEquals(0, relay.submit(prescription(appointmentId, "Ibuprofen")));
+        assertEquals(1, appointmentRepository.findById(appointmentId).get().getStatus());
+        assertTrue(prescriptionRepository.findByAppointmentId(appointmentId).isEmpty());
+        assertEquals(List.of(), prescriptionService.getPrescription(appointmentId).getBody().get("prescriptions"));
+
+        assertTrue(relay.relay() >= 1);
+        // The relay drops the cached "none yet"
+        assertEquals(1, ((List<?>) prescriptionService.getPrescription(appointmentId).getBody().get("prescriptions")).size());
+        List<Prescription> stored = prescriptionRepository.findByAppointmentId(appointmentId);
+        assertEquals(1, stored.size());
+        assertEquals("Aspirin", stored.get(0).getMedication());
+
+        PrescriptionOutbox row = outboxRepository.findAll().stream()
+                .filter(o -> o.getAppointmentId() == appointmentId).findFirst().orElseThrow();
+        assertEquals(PrescriptionOutboxRelay.ID_PREFIX + row.getId(), stored.get(0).getId());
+        assertEquals(appointmentRepository.findPatientIdById(appointmentId), stored.get(0).getPatientId());
+        assertNull(row.getNextAttemptAt());
+        assertNull(row.getPayload());
+        assertNotNull(row.getRelayedAt());
+    }
+
+    @Test
+    void replayedAndConflictingRowsAreClosedWithoutASecondDocument() {
+        long replayed = appointment();
+        long conflicting = appointment();
+        relay.submit(prescription(replayed, "Aspirin"));
+        relay.submit(prescription(conflicting, "Aspirin"));
+
+        // The first row's document made it to Mongo before a crash; the second appointment got a
+        // prescription directly
+        PrescriptionOutbox replayedRow = outboxRepository.findAll().stream()
+                .filter(o -> o.getAppointmentId() == replayed).findFirst().orElseThrow();
+        Prescription earlier = prescription(replayed, "Aspirin");
+        earlier.setId(PrescriptionOutboxRelay.ID_PREFIX + replayedRow.getId());
+        prescriptionRepository.insert(earlier);
+        prescriptionService.savePrescription(prescription(conflicting, "Naproxen"));
+
+        relay.relay();
+
+        assertEquals(1, prescriptionRepository.findByAppointmentId(replayed).size());
+        List<Prescription> conflict = prescriptionRepository.findByAppointmentId(conflicting);
+        assertEquals(1, conflict.size());
+        assertEquals("Naproxen", conflict.get(0).getMedication());
+        for (PrescriptionOutbox row : outboxRepository.findAll()) {
+            if (row.getAppointmentId() == replayed) {
+                assertNull(row.getNextAttemptAt());
+                assertNull(row.getLastError());
+            } else if (row.getAppointmentId() == conflicting) {
+                assertNull(row.getNextAttemptAt());
+                assertEquals("A prescription already existed for this appointment", row.getLastError());
+            }
+        }
+    }
+
+    @Test
+    void dailyScheduleFlagsPrescribedAppointmentsWhetherRelayedOrNot() {
+        List<Long> ids = appointments(4);
+        long pending = ids.get(0);
+        long legacy = ids.get(1);
+        long completedOnly = ids.get(2);
+        long scheduled = ids.get(3);
+
+        relay.submit(prescription(pending, "Aspirin"));                 // still in the outbox
+        prescriptionRepository.insert(prescription(legacy, "Aspirin")); // written straight to Mongo
+        appointmentService.changeStatus(1, legacy);
+        appointmentService.changeStatus(1, completedOnly);
+
+        Appointment first = appointmentRepository.findById(pending).get();
+        List<?> rows = (List<?>) appointmentService.getAppointments(doctorId,
+                first.getAppointmentTime().toLocalDate().toString(), null).get("appointments");
+        Map<Long, Boolean> flags = new HashMap<>();
+        for (Object row : rows) {
+            Appointment appointment = (Appointment) row;
+            flags.put(appointment.getId(), appointment.getHasPrescription());
+        }
+        assertEquals(Map.of(pending, true, legacy, true, completedOnly, false, scheduled, false), flags);
+    }
+
+    @Test
+    void unknownAppointmentsAreRejectedAndArchivedOnesCompletedInTheArchive() {
+        long before = outboxRepository.count();
+        assertEquals(-1, relay.submit(prescription(987_654L, "Aspirin")));
+        assertEquals(before, outboxRepository.count());
+
+        // Moved to the archive as cancelled, the way AppointmentArchiver would
+        long archived = appointment();
+        jdbcTemplate.update("INSERT INTO appointment_archive (id, doctor_id, patient_id, appointment_time, status, archived_at) " +
+                "SELECT id, doctor_id, patient_id, appointment_time, 2, CURRENT_TIMESTAMP FROM appointment WHERE id = ?", archived);
+        jdbcTemplate.update("DELETE FROM appointment WHERE id = ?", archived);
+
+        assertEquals(1, relay.submit(prescription(archived, "Aspirin")));
+        assertEquals(Appointment.STATUS_COMPLETED, archivedAppointmentRepository.findById(archived).orElseThrow().getStatus());
+        assertEquals(before + 1, outboxRepository.count());
+        // Stamped with the patient from the archive row
+        relay.relay();
+        assertEquals(archivedAppointmentRepository.findById(archived).orElseThrow().getPatientId(),
+                prescriptionRepository.findByAppointmentId(archived).get(0).getPatientId());
+    }
+
+    @Test
+    void aPastScheduledAppointmentIsArchivedAndCanStillBeCompleted() {
+        long past = appointment();
+        LocalDateTime time = LocalDate.now().minusDays(90).atTime(9, 0).plusMinutes(sequence);
+        jdbcTemplate.update("UPDATE appointment SET appointment_time = ? WHERE id = ?", time, past);
+
+        AppointmentArchiver archiver = new AppointmentArchiver(appointmentRepository, archivedAppointmentRepository,
+                transactionManager, 30, 500, 10);
+        assertTrue(archiver.archivePastAppointments() >= 1);
+        assertTrue(appointmentRepository.findById(past).isEmpty());
+        assertEquals(Appointment.STATUS_SCHEDULED, archivedAppointmentRepository.findById(past).orElseThrow().getStatus());
+
+        assertEquals(1, relay.submit(prescription(past, "Aspirin")));
+        assertEquals(Appointment.STATUS_COMPLETED, archivedAppointmentRepository.findById(past).orElseThrow().getStatus());
+        relay.relay();
+        assertEquals(1, prescriptionRepository.findByAppointmentId(past).size());
+    }
+
+    @Test
+    void rowsAreRetriedWithBackoffWhileMongoIsUnreachable() {
+        long appointmentId = appointment();
+        relay.submit(prescription(appointmentId, "Aspirin"));
+
+        try (MongoClient unreachable = MongoClients.create("mongodb://localhost:1/?serverSelectionTimeoutMS=200")) {
+            PrescriptionOutboxRelay offline = new PrescriptionOutboxRelay(outboxRepository, appointmentService,
+                    new MongoTemplate(unreachable, "prescriptions"), prescriptionCache, prescriptionService, objectMapper, transactionManager, 100, 5, 300_000);
+            assertEquals(0, offline.relay());
+        }
+
+        PrescriptionOutbox row = outboxRepository.findAll().stream()
+                .filter(o -> o.getAppointmentId() == appointmentId).findFirst().orElseThrow();
+        assertEquals(1, row.getAttempts());
+        assertTrue(row.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertNotNull(row.getLastError());
+        assertNotNull(row.getPayload());
+        assertTrue(prescriptionRepository.findByAppointmentId(appointmentId).isEmpty());
+    }
+}
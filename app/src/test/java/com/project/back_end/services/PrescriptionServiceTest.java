@@ -0,0 +1,146 @@
+package com.project.back_end.services;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.PrescriptionOutboxRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Against an in-memory Mongo server speaking the wire protocol, so the unique index is enforced for real
+class PrescriptionServiceTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private PrescriptionRepository prescriptionRepository;
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private PrescriptionService prescriptionService;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        MongoTemplate mongoTemplate = new MongoTemplate(client, "prescriptions");
+        prescriptionRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(PrescriptionRepository.class);
+        prescriptionService = new PrescriptionService(prescriptionRepository, mongoTemplate, appointmentRepository,
+                mock(PrescriptionOutboxRepository.class), new PrescriptionCache(100, 1 << 20, 60, 30), 2);
+        prescriptionService.ensureIndexes();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+
+    private static Prescription prescription(long appointmentId, String medication) {
+        return new Prescription("Jane Patient", appointmentId, medication, "1 tablet daily", null);
+    }
+
+    @Test
+    void secondPrescriptionForAnAppointmentIsRejected() {
+        assertEquals(HttpStatus.CREATED, prescriptionService.savePrescription(prescription(7L, "Aspirin")).getStatusCode());
+
+        ResponseEntity<Map<String, String>> again = prescriptionService.savePrescription(prescription(7L, "Ibuprofen"));
+        assertEquals(HttpStatus.BAD_REQUEST, again.getStatusCode());
+        assertEquals("Prescription already exists for this appointment.", again.getBody().get("message"));
+        assertEquals("Aspirin", prescriptionRepository.findByAppointmentId(7L).get(0).getMedication());
+    }
+
+    @Test
+    void withoutTheUniqueIndexARepeatSubmissionIsStillRejected() {
+        MongoTemplate unindexed = new MongoTemplate(client, "prescriptions-unindexed");
+        PrescriptionService service = new PrescriptionService(
+                new MongoRepositoryFactory(unindexed).getRepository(PrescriptionRepository.class), unindexed,
+                appointmentRepository, mock(PrescriptionOutboxRepository.class), new PrescriptionCache(100, 1 << 20, 60, 30), 2);
+
+        assertFalse(service.isUniqueIndexReady());
+        assertEquals(HttpStatus.CREATED, service.savePrescription(prescription(7L, "Aspirin")).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, service.savePrescription(prescription(7L, "Ibuprofen")).getStatusCode());
+        assertTrue(service.ensureIndexes());
+        assertTrue(service.isUniqueIndexReady());
+    }
+
+    @Test
+    void concurrentSavesForOneAppointmentCreateExactlyOnePrescription() throws Exception {
+        int doctors = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(doctors);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<HttpStatus>> results = new ArrayList<>();
+            for (int i = 0; i < doctors; i++) {
+                String medication = "Medication " + i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return (HttpStatus) prescriptionService.savePrescription(prescription(42L, medication)).getStatusCode();
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            int rejected = 0;
+            for (Future<HttpStatus> result : results) {
+                HttpStatus status = result.get();
+                if (status == HttpStatus.CREATED) {
+                    created++;
+                } else if (status == HttpStatus.BAD_REQUEST) {
+                    rejected++;
+                }
+            }
+            assertEquals(1, created);
+            assertEquals(doctors - 1, rejected);
+            assertEquals(1, prescriptionRepository.findByAppointmentId(42L).size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void medicationHistoryJoinsAppointmentsAndPrescriptionsAcrossChunks() {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 9, 0);
+        List<Object[]> appointments = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            appointments.add(new Object[]{id, start.plusDays(id), "Dr. " + id});
+            if (id != 3) {
+                prescriptionRepository.insert(prescription(id, "Medication " + id));
+            }
+        }
+        prescriptionRepository.insert(prescription(99L, "Someone else's"));
+        when(appointmentRepository.findCompletedHistory(8L)).thenReturn(appointments);
+
+        ResponseEntity<Map<String, Object>> response = prescriptionService.getMedicationHistory(8L);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<?> history = (List<?>) response.getBody().get("history");
+        List<?> ids = history.stream().map(entry -> ((Map<?, ?>) entry).get("appointmentId")).toList();
+        assertEquals(List.of(5L, 4L, 2L, 1L), ids);
+        Map<?, ?> newest = (Map<?, ?>) history.get(0);
+        assertEquals("Medication 5", newest.get("medication"));
+        assertEquals("Dr. 5", newest.get("doctorName"));
+        assertEquals(start.plusDays(5), newest.get("appointmentTime"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.repo.AppointmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReminderSchedulerTest {
+
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final InMemoryReminderSender sender = new InMemoryReminderSender();
+    private final ReminderScheduler scheduler = new ReminderScheduler(appointmentRepository, sender,
+            mock(PlatformTransactionManager.class), true, 60, 1000, 1024, 500);
+
+    @Test
+    void sendsDueRemindersInBatchesAndSkipsCancelledOnes() {
+        LocalDateTime start = LocalDateTime.now().plusHours(2);
+        for (long id = 1; id <= 1200; id++) {
+            scheduler.schedule(id, start);
+        }
+        scheduler.cancel(5L);
+        // 7 was cancelled in the database by another path; the lookup no longer returns it
+        when(appointmentRepository.findScheduledDtosByIds(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.stream().filter(id -> id != 7L).map(id -> dto(id, start)).toList();
+        });
+
+        long now = System.currentTimeMillis();
+        assertEquals(0, scheduler.dispatchDue(now + 30 * 60_000));
+        assertEquals(1198, scheduler.dispatchDue(now + 61 * 60_000));
+
+        assertEquals(3, sender.batches.size());
+        assertEquals(1198, sender.sentCount());
+        assertTrue(sender.batches.stream().allMatch(batch -> batch.size() <= 500));
+        assertEquals(1198L, scheduler.getStats().get("sent"));
+        assertEquals(0, scheduler.getStats().get("pending"));
+    }
+
+    @Test
+    void reschedulesWhenTheAppointmentMovesAndDropsPastOnes() {
+        LocalDateTime first = LocalDateTime.now().plusHours(2);
+        LocalDateTime moved = first.plusDays(1);
+        scheduler.schedule(1L, first);
+        scheduler.schedule(1L, moved);
+        scheduler.schedule(2L, LocalDateTime.now().minusMinutes(1));
+        when(appointmentRepository.findScheduledDtosByIds(anyCollection())).thenReturn(List.of(dto(1L, moved)));
+
+        long now = System.currentTimeMillis();
+        assertEquals(0, scheduler.dispatchDue(now + 2 * 3_600_000));
+        assertEquals(1, scheduler.getStats().get("pending"));
+        assertEquals(1, scheduler.dispatchDue(toMillis(moved)));
+        assertEquals(1, sender.sentCount());
+    }
+
+    @Test
+    void staysOffWithoutASender() {
+        ReminderScheduler unsent = new ReminderScheduler(appointmentRepository, null,
+                mock(PlatformTransactionManager.class), true, 60, 1000, 1024, 500);
+        unsent.schedule(1L, LocalDateTime.now().plusHours(2));
+
+        assertEquals(0, unsent.dispatchDue(System.currentTimeMillis() + 2 * 3_600_000));
+        assertEquals(false, unsent.getStats().get("enabled"));
+        assertEquals(0, unsent.getStats().get("pending"));
+    }
+
+    private static AppointmentDTO dto(Long id, LocalDateTime time) {
+        return new AppointmentDTO(id, 1L, "Dr Who", 2L, "Alice", "alice@example.com", "0123456789", "Street 1", time, 0);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,136 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ScheduleExporterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2027, 1, 1, 0, 0);
+
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final ArchivedAppointmentRepository archivedAppointmentRepository = mock(ArchivedAppointmentRepository.class);
+    private final ScheduleExporter exporter = new ScheduleExporter(appointmentRepository, archivedAppointmentRepository,
+            mock(PlatformTransactionManager.class), 731, 600_000);
+
+    private static Object[] row(long id, LocalDateTime time, int status, String name) {
+        return new Object[]{id, time, status, name, "p" + id + "@example.com", "1234567890"};
+    }
+
+    @Test
+    void mergesArchivedAndHotRowsInStartOrderAsCsv() throws IOException {
+        when(archivedAppointmentRepository.streamDoctorSchedule(eq(3L), any(), any())).thenReturn(Stream.of(
+                row(1, START.plusHours(9), 1, "Ann"),
+                row(4, START.plusHours(12), 2, "Bob \"B\", Jr.")));
+        when(appointmentRepository.streamDoctorSchedule(eq(3L), any(), any())).thenReturn(Stream.of(
+                row(2, START.plusHours(10), 0, "Cy"),
+                row(5, START.plusHours(14), 0, "Di")));
+        when(appointmentRepository.findFirstScheduleTime(eq(3L), any(), any())).thenReturn(START.plusHours(10));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(4, exporter.export(3L, START, END, ScheduleExporter.Format.CSV, out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals("id,start,end,status,patient_name,patient_email,patient_phone", lines[0]);
+        assertEquals("1,2026-01-01T09:00:00,2026-01-01T10:00:00,Completed,Ann,p1@example.com,1234567890", lines[1]);
+        assertTrue(lines[2].startsWith("2,"));
+        assertEquals("4,2026-01-01T12:00:00,2026-01-01T13:00:00,Cancelled,\"Bob \"\"B\"\", Jr.\",p4@example.com,1234567890", lines[3]);
+        assertTrue(lines[4].startsWith("5,"));
+        assertEquals(5, lines.length);
+    }
+
+    @Test
+    void writesOneEventPerAppointmentAndReadsOneCursorAtATime() throws IOException {
+        AtomicBoolean archivedClosed = new AtomicBoolean();
+        AtomicBoolean hotClosed = new AtomicBoolean();
+        when(archivedAppointmentRepository.streamDoctorSchedule(eq(3L), any(), any()))
+                .thenReturn(Stream.<Object[]>empty().onClose(() -> archivedClosed.set(true)));
+        // The hot cursor is opened only once the archived one is closed
+        when(appointmentRepository.streamDoctorSchedule(eq(3L), any(), any())).thenAnswer(invocation -> {
+            assertTrue(archivedClosed.get());
+            return Stream.of(
+                    row(2, START.plusHours(10), 0, "Smith; Jane, " + "x".repeat(80)),
+                    row(3, START.plusHours(11), 2, "Cy")).onClose(() -> hotClosed.set(true));
+        });
+        when(appointmentRepository.findFirstScheduleTime(eq(3L), any(), any())).thenReturn(START.plusHours(10));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(3L, START, END, ScheduleExporter.Format.ICS, out);
+        String ics = out.toString(StandardCharsets.UTF_8);
+
+        assertTrue(ics.startsWith("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n"));
+        assertTrue(ics.endsWith("END:VCALENDAR\r\n"));
+        assertEquals(2, ics.split("BEGIN:VEVENT", -1).length - 1);
+        assertTrue(ics.contains("UID:appointment-2@clinic\r\n"));
+        assertTrue(ics.contains("SUMMARY:Appointment with Smith\\; Jane\\, xxx"));
+        assertTrue(ics.contains("STATUS:CANCELLED\r\n"));
+        for (String line : ics.split("\r\n")) {
+            assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75, line);
+        }
+        assertTrue(archivedClosed.get() && hotClosed.get());
+    }
+
+    @Test
+    void csvCellsThatWouldRunAsFormulasAreQuoted() {
+        assertEquals("\"'=HYPERLINK(\"\"http://x\"\")\"", ScheduleExporter.csvField("=HYPERLINK(\"http://x\")"));
+        assertEquals("'+441234567890", ScheduleExporter.csvField("+441234567890"));
+        assertEquals("'-2+3", ScheduleExporter.csvField("-2+3"));
+        assertEquals("'@SUM(A1)", ScheduleExporter.csvField("@SUM(A1)"));
+        assertEquals("\"'=1,2\"", ScheduleExporter.csvField("=1,2"));
+        assertEquals("Ann-Marie", ScheduleExporter.csvField("Ann-Marie"));
+        assertEquals("", ScheduleExporter.csvField(null));
+    }
+
+    @Test
+    void foldsLongLinesWithoutSplittingCharacters() throws IOException {
+        StringWriter writer = new StringWriter();
+        ScheduleExporter.writeLine(writer, "DESCRIPTION:" + "é".repeat(100));
+
+        String[] lines = writer.toString().split("\r\n");
+        StringBuilder unfolded = new StringBuilder(lines[0]);
+        for (int i = 1; i < lines.length; i++) {
+            assertTrue(lines[i].startsWith(" "));
+            unfolded.append(lines[i].substring(1));
+        }
+        for (String line : lines) {
+            assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75);
+        }
+        assertEquals("DESCRIPTION:" + "é".repeat(100), unfolded.toString());
+    }
+
+    @Test
+    void streamsLargeRangesWithoutCollectingRows() throws IOException {
+        // 200k rows generated lazily; the exporter sees them only through the iterator
+        int count = 200_000;
+        when(archivedAppointmentRepository.streamDoctorSchedule(eq(3L), any(), any())).thenReturn(Stream.empty());
+        when(appointmentRepository.streamDoctorSchedule(eq(3L), any(), any())).thenReturn(
+                LongStream.range(0, count).mapToObj(i -> row(i, START.plusMinutes(i), 0, "Patient " + i)));
+
+        long[] written = new long[1];
+        OutputStream sink = new OutputStream() {
+            @Override public void write(int b) { written[0]++; }
+            @Override public void write(byte[] b, int off, int len) { written[0] += len; }
+        };
+        assertEquals(count, exporter.export(3L, START, END, ScheduleExporter.Format.CSV, sink));
+        assertTrue(written[0] > count * 60L);
+    }
+}
@@ -0,0 +1,88 @@
+package com.project.back_end.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void expiresEntriesAtTheirTickAndHonoursCancelAndReschedule() {
+        TimingWheel wheel = new TimingWheel(8, 100, START, 4);
+        wheel.schedule(1, START + 250);
+        wheel.schedule(2, START + 250);
+        wheel.schedule(3, START + 1_050); // more than a revolution ahead, same bucket as tick 2
+        wheel.schedule(4, START + 400);
+        wheel.schedule(4, START + 600);   // rescheduled
+        assertTrue(wheel.cancel(2));
+        assertFalse(wheel.cancel(2));
+        assertEquals(3, wheel.size());
+
+        assertArrayEquals(new long[0], wheel.advance(START + 299));
+        assertArrayEquals(new long[] {1}, wheel.advance(START + 300));
+        assertArrayEquals(new long[0], wheel.advance(START + 599));
+        assertArrayEquals(new long[] {4}, wheel.advance(START + 600));
+        assertArrayEquals(new long[0], wheel.advance(START + 1_099));
+        assertArrayEquals(new long[] {3}, wheel.advance(START + 1_100));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextAdvanceAndLongPausesSweepEveryBucket() {
+        TimingWheel wheel = new TimingWheel(4, 10, START, 4);
+        wheel.advance(START + 100);
+        wheel.schedule(7, START);
+        assertArrayEquals(new long[] {7}, wheel.advance(START + 110));
+
+        for (long id = 1; id <= 20; id++) {
+            wheel.schedule(id, START + 110 + id * 10);
+        }
+        long[] due = wheel.advance(START + 10_000);
+        Arrays.sort(due);
+        assertEquals(20, due.length);
+        assertEquals(1, due[0]);
+        assertEquals(20, due[19]);
+    }
+
+    @Test
+    void keepsHundredsOfThousandsOfEntriesWithRandomCancels() {
+        int count = 300_000;
+        long horizon = 14L * 24 * 3600 * 1000;
+        TimingWheel wheel = new TimingWheel(4096, 1000, START, 1024);
+        Random random = new Random(42);
+        Map<Long, Long> expected = new HashMap<>();
+        for (long id = 1; id <= count; id++) {
+            long deadline = START + 1000 + (long) (random.nextDouble() * horizon);
+            wheel.schedule(id, deadline);
+            expected.put(id, deadline);
+        }
+        for (long id = 1; id <= count; id += 3) {
+            assertTrue(wheel.cancel(id));
+            expected.remove(id);
+        }
+        assertEquals(expected.size(), wheel.size());
+
+        int fired = 0;
+        for (long now = START; now <= START + horizon + 2000; now += 3_600_000) {
+            for (long id : wheel.advance(now)) {
+                Long deadline = expected.remove(id);
+                assertTrue(deadline != null && deadline <= now, "id " + id + " fired early or twice");
+                assertTrue(deadline > now - 3_600_000 - 1000, "id " + id + " fired late");
+                fired++;
+            }
+        }
+        assertTrue(expected.isEmpty());
+        assertEquals(count - (count + 2) / 3, fired);
+        assertEquals(0, wheel.size());
+    }
+}
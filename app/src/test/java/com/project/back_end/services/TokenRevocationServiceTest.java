@@ -0,0 +1,71 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.RevokedTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the real INSERT IGNORE against H2 in MySQL mode
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:token-revocation;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.data.mongodb.uri=mongodb://localhost:27017/prescriptions",
+        "spring.jpa.show-sql=false",
+        "appointment.archive.initial-delay-ms=3600000",
+        "prescription.outbox.initial-delay-ms=3600000",
+        "reminder.enabled=false"
+})
+class TokenRevocationServiceTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private TokenRevocationService revocationService;
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Test
+    void revokingTheSameKeyConcurrentlyKeepsOneRowWithoutErrors() throws Exception {
+        String key = "doctor:4242";
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> revokes = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                revokes.add(pool.submit(() -> {
+                    start.await();
+                    revocationService.revoke(key, expiresAt);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> revoke : revokes) {
+                revoke.get(); // rethrows a failed insert
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, revokedTokenRepository.findAll().stream()
+                .filter(r -> key.equals(r.getRevocationKey())).count());
+        assertTrue(revocationService.isRevoked(key));
+
+        // And again later, from a single caller
+        revocationService.revoke(key, expiresAt.plusMinutes(5));
+        assertEquals(1, revokedTokenRepository.findAll().stream()
+                .filter(r -> key.equals(r.getRevocationKey())).count());
+    }
+}
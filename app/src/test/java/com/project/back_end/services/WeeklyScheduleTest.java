@@ -0,0 +1,91 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.ScheduleOverride;
+import com.project.back_end.models.ScheduleRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeeklyScheduleTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 7);
+
+    @Test
+    void weeklyRulesAreCutIntoSlotsPerWeekday() {
+        WeeklySchedule schedule = WeeklySchedule.compile(List.of("09:00-10:00"), List.of(
+                new ScheduleRule(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 45), 30),
+                new ScheduleRule(DayOfWeek.WEDNESDAY, LocalTime.of(14, 0), LocalTime.of(16, 0), 60)), List.of());
+
+        assertEquals(List.of("09:00-09:30", "09:30-10:00", "10:00-10:30"), labels(schedule.day(MONDAY)));
+        assertEquals(List.of(), labels(schedule.day(MONDAY.plusDays(1))));
+        assertEquals(List.of("14:00-15:00", "15:00-16:00"), labels(schedule.day(MONDAY.plusDays(2))));
+        // Same weekday next week
+        assertEquals(3, schedule.day(MONDAY.plusWeeks(1)).size());
+    }
+
+    @Test
+    void doctorsWithoutRulesKeepTheirAvailableTimesEveryDay() {
+        WeeklySchedule schedule = WeeklySchedule.compile(List.of("14:00-15:00", "09:00-10:00"), List.of(), null);
+
+        assertEquals(List.of("14:00-15:00", "09:00-10:00"), labels(schedule.day(MONDAY)));
+        assertEquals(List.of("14:00-15:00", "09:00-10:00"), labels(schedule.day(MONDAY.plusDays(5))));
+        assertTrue(schedule.hasSlotsIn("am"));
+        assertTrue(schedule.hasSlotsIn("PM"));
+    }
+
+    @Test
+    void dateExceptionsCloseAndAddSlots() {
+        List<ScheduleRule> rules = List.of(new ScheduleRule(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(12, 0), 60));
+        List<ScheduleOverride> overrides = List.of(
+                new ScheduleOverride(MONDAY, ScheduleOverride.Type.CLOSED, LocalTime.of(10, 0), LocalTime.of(11, 0), 60),
+                new ScheduleOverride(MONDAY, ScheduleOverride.Type.EXTRA, LocalTime.of(17, 0), LocalTime.of(18, 0), 30),
+                new ScheduleOverride(MONDAY.plusWeeks(1), ScheduleOverride.Type.CLOSED, null, null, 60));
+
+        WeeklySchedule schedule = WeeklySchedule.compile(List.of(), rules, overrides);
+
+        assertEquals(List.of("09:00-10:00", "11:00-12:00", "17:00-17:30", "17:30-18:00"), labels(schedule.day(MONDAY)));
+        assertEquals(List.of(), labels(schedule.day(MONDAY.plusWeeks(1))));
+        assertEquals(3, schedule.day(MONDAY.plusWeeks(2)).size());
+        // AM/PM flags describe the weekly template, not one-off clinics
+        assertTrue(schedule.hasSlotsIn("AM"));
+        assertFalse(schedule.hasSlotsIn("PM"));
+    }
+
+    @Test
+    void slotLengthsOutsideTheEntityBoundsAreInvalid() {
+        LocalTime nine = LocalTime.of(9, 0);
+        LocalTime five = LocalTime.of(17, 0);
+        assertFalse(WeeklySchedule.isValid(nine, five, 0));
+        assertFalse(WeeklySchedule.isValid(nine, five, ScheduleRule.MIN_SLOT_MINUTES - 1));
+        assertTrue(WeeklySchedule.isValid(nine, five, ScheduleRule.MIN_SLOT_MINUTES));
+        assertTrue(WeeklySchedule.isValid(nine, five, ScheduleRule.MAX_SLOT_MINUTES));
+        assertFalse(WeeklySchedule.isValid(nine, five, ScheduleRule.MAX_SLOT_MINUTES + 1));
+    }
+
+    @Test
+    void expandListsConcreteSlotStartsOverARange() {
+        WeeklySchedule schedule = WeeklySchedule.compile(List.of(), List.of(
+                new ScheduleRule(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(11, 0), 60),
+                new ScheduleRule(DayOfWeek.FRIDAY, LocalTime.of(13, 0), LocalTime.of(14, 0), 60)), List.of());
+
+        assertEquals(List.of(MONDAY.atTime(9, 0), MONDAY.atTime(10, 0), MONDAY.plusDays(4).atTime(13, 0),
+                        MONDAY.plusWeeks(1).atTime(9, 0), MONDAY.plusWeeks(1).atTime(10, 0)),
+                schedule.expand(MONDAY, MONDAY.plusWeeks(1)));
+    }
+
+    private static List<String> labels(WeeklySchedule.Day day) {
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < day.size(); i++) {
+            labels.add(day.label(i));
+        }
+        return labels;
+    }
+}